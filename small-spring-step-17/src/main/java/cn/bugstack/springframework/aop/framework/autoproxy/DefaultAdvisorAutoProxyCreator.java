@@ -90,6 +90,18 @@ public class DefaultAdvisorAutoProxyCreator implements InstantiationAwareBeanPos
         return bean;
     }
 
+    /**
+     * 只有被某个切面的 ClassFilter 匹配到的 Class 才需要创建代理
+     */
+    @Override
+    public boolean supports(Class<?> beanClass) {
+        if (isInfrastructureClass(beanClass)) return false;
+        for (AspectJExpressionPointcutAdvisor advisor : beanFactory.getBeansOfType(AspectJExpressionPointcutAdvisor.class).values()) {
+            if (advisor.getPointcut().getClassFilter().matches(beanClass)) return true;
+        }
+        return false;
+    }
+
     @Override
     public Object getEarlyBeanReference(Object bean, String beanName) {
         earlyProxyReferences.add(beanName);
@@ -0,0 +1,26 @@
+package cn.bugstack.springframework.beans;
+
+import cn.bugstack.springframework.core.convert.ConversionService;
+
+/**
+ * The central interface of the low-level JavaBeans infrastructure.
+ * Wraps a bean instance and provides access to its properties through
+ * the cached per-class accessors of {@link CachedIntrospectionResults}.
+ * <p>
+ * Bean 包装器，对外提供属性的读写和类型转换
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface BeanWrapper extends PropertyAccessor, TypeConverter {
+
+    Object getWrappedInstance();
+
+    Class<?> getWrappedClass();
+
+    void setConversionService(ConversionService conversionService);
+
+    ConversionService getConversionService();
+
+}
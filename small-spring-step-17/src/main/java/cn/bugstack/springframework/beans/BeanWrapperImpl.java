@@ -0,0 +1,173 @@
+package cn.bugstack.springframework.beans;
+
+import cn.bugstack.springframework.core.convert.ConversionService;
+
+/**
+ * Default {@link BeanWrapper} implementation. Property access goes through the
+ * per-class accessors cached in {@link CachedIntrospectionResults}; values that
+ * are not assignable to the property type are converted with the configured
+ * {@link ConversionService}, falling back to hutool's basic conversion.
+ * <p>
+ * 默认的 Bean 包装器实现
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class BeanWrapperImpl implements BeanWrapper {
+
+    private final Object wrappedObject;
+
+    private final CachedIntrospectionResults introspectionResults;
+
+    private ConversionService conversionService;
+
+    public BeanWrapperImpl(Object wrappedObject) {
+        if (null == wrappedObject) {
+            throw new IllegalArgumentException("Bean object must not be null");
+        }
+        this.wrappedObject = wrappedObject;
+        this.introspectionResults = CachedIntrospectionResults.forClass(wrappedObject.getClass());
+    }
+
+    @Override
+    public Object getWrappedInstance() {
+        return wrappedObject;
+    }
+
+    @Override
+    public Class<?> getWrappedClass() {
+        return wrappedObject.getClass();
+    }
+
+    @Override
+    public void setConversionService(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    @Override
+    public ConversionService getConversionService() {
+        return conversionService;
+    }
+
+    @Override
+    public boolean isReadableProperty(String propertyName) {
+        try {
+            BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
+            CachedIntrospectionResults.PropertyHandler handler = nestedBw.introspectionResults.getPropertyHandler(getFinalPropertyName(propertyName));
+            return null != handler && handler.isReadable();
+        } catch (BeansException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isWritableProperty(String propertyName) {
+        try {
+            BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
+            CachedIntrospectionResults.PropertyHandler handler = nestedBw.introspectionResults.getPropertyHandler(getFinalPropertyName(propertyName));
+            return null != handler && handler.isWritable();
+        } catch (BeansException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Class<?> getPropertyType(String propertyName) throws BeansException {
+        BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
+        return nestedBw.getPropertyHandler(getFinalPropertyName(propertyName)).getPropertyType();
+    }
+
+    @Override
+    public Object getPropertyValue(String propertyName) throws BeansException {
+        BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
+        return nestedBw.getLocalPropertyValue(getFinalPropertyName(propertyName));
+    }
+
+    @Override
+    public void setPropertyValue(PropertyValue pv) throws BeansException {
+        setPropertyValue(pv.getName(), pv.getValue());
+    }
+
+    @Override
+    public void setPropertyValue(String propertyName, Object value) throws BeansException {
+        BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(propertyName);
+        nestedBw.setLocalPropertyValue(getFinalPropertyName(propertyName), value);
+    }
+
+    private Object getLocalPropertyValue(String propertyName) {
+        CachedIntrospectionResults.PropertyHandler handler = getPropertyHandler(propertyName);
+        try {
+            return handler.getValue(wrappedObject);
+        } catch (BeansException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new BeansException("Failed to read property '" + propertyName + "' of bean class [" + getWrappedClass().getName() + "]", e);
+        }
+    }
+
+    private void setLocalPropertyValue(String propertyName, Object value) {
+        CachedIntrospectionResults.PropertyHandler handler = getPropertyHandler(propertyName);
+        Object convertedValue = convertIfNecessary(propertyName, value, handler.getPropertyType());
+        try {
+            handler.setValue(wrappedObject, convertedValue);
+        } catch (BeansException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new BeansException("Failed to write property '" + propertyName + "' of bean class [" + getWrappedClass().getName() + "]", e);
+        }
+    }
+
+    private CachedIntrospectionResults.PropertyHandler getPropertyHandler(String propertyName) {
+        CachedIntrospectionResults.PropertyHandler handler = introspectionResults.getPropertyHandler(propertyName);
+        if (null == handler) {
+            throw new BeansException("Invalid property '" + propertyName + "' of bean class [" + getWrappedClass().getName() + "]");
+        }
+        return handler;
+    }
+
+    @Override
+    public <T> T convertIfNecessary(Object value, Class<T> requiredType) throws BeansException {
+        if (null == value && requiredType.isPrimitive()) {
+            throw new BeansException("Cannot convert null to primitive type [" + requiredType.getName() + "]");
+        }
+        return (T) SimpleTypeConverter.convertIfNecessary(null, value, requiredType, conversionService);
+    }
+
+    /**
+     * 类型转换规则与 {@link SimpleTypeConverter} 一致：先走 ConversionService，再回退到 hutool 的基础类型转换
+     */
+    private Object convertIfNecessary(String propertyName, Object value, Class<?> requiredType) {
+        if (null == value && requiredType.isPrimitive()) {
+            throw new BeansException("Cannot set null to primitive property '" + propertyName + "' of bean class [" + getWrappedClass().getName() + "]");
+        }
+        return SimpleTypeConverter.convertIfNecessary(propertyName, value, requiredType, conversionService);
+    }
+
+    /**
+     * 解析嵌套属性路径，返回最后一级属性所在对象的包装器
+     */
+    private BeanWrapperImpl getBeanWrapperForPropertyPath(String propertyPath) {
+        BeanWrapperImpl bw = this;
+        int start = 0;
+        int separatorIndex;
+        while ((separatorIndex = propertyPath.indexOf(NESTED_PROPERTY_SEPARATOR, start)) != -1) {
+            String nestedProperty = propertyPath.substring(start, separatorIndex);
+            Object nestedValue = bw.getLocalPropertyValue(nestedProperty);
+            if (null == nestedValue) {
+                throw new BeansException("Value of nested property '" + propertyPath.substring(0, separatorIndex) + "' is null");
+            }
+            BeanWrapperImpl nestedBw = new BeanWrapperImpl(nestedValue);
+            nestedBw.setConversionService(this.conversionService);
+            bw = nestedBw;
+            start = separatorIndex + 1;
+        }
+        return bw;
+    }
+
+    private static String getFinalPropertyName(String propertyPath) {
+        int separatorIndex = propertyPath.lastIndexOf(NESTED_PROPERTY_SEPARATOR);
+        return separatorIndex == -1 ? propertyPath : propertyPath.substring(separatorIndex + 1);
+    }
+
+}
@@ -0,0 +1,231 @@
+package cn.bugstack.springframework.beans;
+
+import cn.bugstack.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Internal class that caches the property accessors of a Java class.
+ * Each property is resolved once per class: setter/getter methods first,
+ * falling back to the declared field, and bound as {@link MethodHandle}s.
+ * <p>
+ * 按 Class 缓存的属性访问信息，属性按名称懒解析一次，之后的读写都通过绑定好的 MethodHandle 完成
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public final class CachedIntrospectionResults {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Class --> CachedIntrospectionResults
+     */
+    private static final Map<Class<?>, CachedIntrospectionResults> classCache = new ConcurrentHashMap<>(64);
+
+    private final Class<?> beanClass;
+
+    /**
+     * 属性名称 --> PropertyHandler，不存在的属性用 NO_PROPERTY 占位，避免重复查找
+     */
+    private final Map<String, PropertyHandler> propertyHandlers = new ConcurrentHashMap<>();
+
+    private static final PropertyHandler NO_PROPERTY = new PropertyHandler(null, null, null, null);
+
+    private CachedIntrospectionResults(Class<?> beanClass) {
+        this.beanClass = beanClass;
+    }
+
+    public static CachedIntrospectionResults forClass(Class<?> beanClass) {
+        CachedIntrospectionResults results = classCache.get(beanClass);
+        if (null == results) {
+            results = new CachedIntrospectionResults(beanClass);
+            CachedIntrospectionResults existing = classCache.putIfAbsent(beanClass, results);
+            if (null != existing) results = existing;
+        }
+        return results;
+    }
+
+    public static void clearClassCache() {
+        classCache.clear();
+    }
+
+    public Class<?> getBeanClass() {
+        return beanClass;
+    }
+
+    /**
+     * 获取属性的访问器，属性不存在时返回 null
+     */
+    public PropertyHandler getPropertyHandler(String propertyName) {
+        PropertyHandler handler = propertyHandlers.get(propertyName);
+        if (null == handler) {
+            handler = buildPropertyHandler(propertyName);
+            propertyHandlers.put(propertyName, handler);
+        }
+        return handler == NO_PROPERTY ? null : handler;
+    }
+
+    private PropertyHandler buildPropertyHandler(String propertyName) {
+        // CGLIB 代理类上的属性在父类中声明
+        Class<?> targetClass = ClassUtils.isCglibProxyClass(beanClass) ? beanClass.getSuperclass() : beanClass;
+        Field field = findField(targetClass, propertyName);
+        Method writeMethod = findWriteMethod(targetClass, propertyName, null != field ? field.getType() : null);
+        Method readMethod = findReadMethod(targetClass, propertyName);
+        if (null == field && null == writeMethod && null == readMethod) {
+            return NO_PROPERTY;
+        }
+
+        Class<?> propertyType = null != writeMethod ? writeMethod.getParameterTypes()[0]
+                : null != field ? field.getType() : readMethod.getReturnType();
+        try {
+            MethodHandle getter = null;
+            if (null != readMethod) {
+                readMethod.setAccessible(true);
+                getter = LOOKUP.unreflect(readMethod).asType(GETTER_TYPE);
+            } else if (null != field) {
+                getter = PropertyHandler.bindGetter(field);
+            }
+            MethodHandle setter = null;
+            if (null != writeMethod) {
+                writeMethod.setAccessible(true);
+                setter = LOOKUP.unreflect(writeMethod).asType(SETTER_TYPE);
+            } else if (null != field && !Modifier.isFinal(field.getModifiers())) {
+                setter = PropertyHandler.bindSetter(field);
+            }
+            return new PropertyHandler(propertyName, propertyType, getter, setter);
+        } catch (IllegalAccessException e) {
+            throw new BeansException("Could not access property '" + propertyName + "' of bean class [" + beanClass.getName() + "]", e);
+        }
+    }
+
+    private static Field findField(Class<?> clazz, String name) {
+        for (Class<?> searchType = clazz; null != searchType && Object.class != searchType; searchType = searchType.getSuperclass()) {
+            for (Field field : searchType.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Method findWriteMethod(Class<?> clazz, String propertyName, Class<?> fieldType) {
+        String methodName = "set" + capitalize(propertyName);
+        Method candidate = null;
+        for (Method method : clazz.getMethods()) {
+            if (!method.getName().equals(methodName) || method.getParameterCount() != 1 || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            // 存在重载时，优先使用参数类型与字段类型一致的 setter
+            if (method.getParameterTypes()[0] == fieldType) return method;
+            if (null == candidate) candidate = method;
+        }
+        return candidate;
+    }
+
+    private static Method findReadMethod(Class<?> clazz, String propertyName) {
+        String suffix = capitalize(propertyName);
+        for (String prefix : new String[]{"get", "is"}) {
+            try {
+                Method method = clazz.getMethod(prefix + suffix);
+                if (void.class != method.getReturnType() && !Modifier.isStatic(method.getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ignore) {
+                // try next prefix
+            }
+        }
+        return null;
+    }
+
+    private static String capitalize(String name) {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * 单个属性的访问器，读写方法都已绑定为 MethodHandle
+     */
+    public static final class PropertyHandler {
+
+        private final String name;
+
+        private final Class<?> propertyType;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        PropertyHandler(String name, Class<?> propertyType, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.propertyType = propertyType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        /**
+         * 直接读写字段的访问器，供注解字段注入使用
+         */
+        public static PropertyHandler forField(Field field) {
+            try {
+                return new PropertyHandler(field.getName(), field.getType(), bindGetter(field), bindSetter(field));
+            } catch (IllegalAccessException e) {
+                throw new BeansException("Could not access field '" + field.getName() + "' of class [" + field.getDeclaringClass().getName() + "]", e);
+            }
+        }
+
+        static MethodHandle bindGetter(Field field) throws IllegalAccessException {
+            field.setAccessible(true);
+            return LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+        }
+
+        static MethodHandle bindSetter(Field field) throws IllegalAccessException {
+            field.setAccessible(true);
+            return LOOKUP.unreflectSetter(field).asType(SETTER_TYPE);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getPropertyType() {
+            return propertyType;
+        }
+
+        public boolean isReadable() {
+            return null != getter;
+        }
+
+        public boolean isWritable() {
+            return null != setter;
+        }
+
+        public Object getValue(Object target) throws Throwable {
+            if (null == getter) {
+                throw new BeansException("Property '" + name + "' is not readable");
+            }
+            return (Object) getter.invokeExact(target);
+        }
+
+        public void setValue(Object target, Object value) throws Throwable {
+            if (null == setter) {
+                throw new BeansException("Property '" + name + "' is not writable");
+            }
+            setter.invokeExact(target, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package cn.bugstack.springframework.beans;
+
+/**
+ * Common interface for classes that can access named properties
+ * (such as bean properties of an object or fields in an object).
+ * Property names may be nested paths like {@code address.city}.
+ * <p>
+ * 属性访问接口，支持 a.b.c 形式的嵌套属性路径
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface PropertyAccessor {
+
+    /**
+     * Path separator for nested properties.
+     */
+    String NESTED_PROPERTY_SEPARATOR = ".";
+
+    boolean isReadableProperty(String propertyName);
+
+    boolean isWritableProperty(String propertyName);
+
+    /**
+     * 属性的类型，优先取 setter 方法的参数类型，没有 setter 时取字段类型
+     */
+    Class<?> getPropertyType(String propertyName) throws BeansException;
+
+    Object getPropertyValue(String propertyName) throws BeansException;
+
+    /**
+     * 设置属性值，类型不匹配时按属性类型做转换
+     */
+    void setPropertyValue(String propertyName, Object value) throws BeansException;
+
+    void setPropertyValue(PropertyValue pv) throws BeansException;
+
+}
@@ -1,40 +1,232 @@
 package cn.bugstack.springframework.beans;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
+ * 属性值集合，属性名和属性值分别存放在两个平行数组中，属性较多时再建立开放寻址的散列索引，
+ * 添加和查找都是 O(1)，并保持插入顺序。属性名会被 intern，大量 BeanDefinition 之间共享同一份字符串。
+ * <p>
+ * 通过 {@link #PropertyValues(PropertyValues)} 可以创建一个覆盖层：读取时先查自身再查父集合，
+ * 写入只落在覆盖层上，不会修改父集合。创建 Bean 时 BeanPostProcessor 的处理结果放在覆盖层中，
+ * 共享的 BeanDefinition 保持不变。
+ * <p>
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
  * 公众号：bugstack虫洞栈
  * Create by 小傅哥(fustack)
  */
 public class PropertyValues {
 
-    private final List<PropertyValue> propertyValueList = new ArrayList<>();
+    /**
+     * 共享的空集合，不能修改
+     */
+    public static final PropertyValues EMPTY = new PropertyValues(null, true);
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    /**
+     * 属性个数超过该值时才建立散列索引，少量属性直接顺序查找
+     */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private final PropertyValues parent;
+
+    private final boolean unmodifiable;
+
+    private String[] names = NO_NAMES;
+
+    private Object[] values = NO_VALUES;
+
+    private int size;
+
+    /**
+     * 开放寻址（线性探测）的散列索引，存放属性在数组中的位置 + 1，0 表示空槽
+     */
+    private int[] index;
+
+    /**
+     * 覆盖层与父集合合并后的视图，写入后失效
+     */
+    private volatile PropertyValues mergedView;
+
+    public PropertyValues() {
+        this(null, false);
+    }
+
+    /**
+     * 创建 parent 的覆盖层
+     */
+    public PropertyValues(PropertyValues parent) {
+        this(parent, false);
+    }
+
+    private PropertyValues(PropertyValues parent, boolean unmodifiable) {
+        this.parent = parent;
+        this.unmodifiable = unmodifiable;
+    }
 
     public void addPropertyValue(PropertyValue pv) {
-        for (int i = 0; i < this.propertyValueList.size(); i++) {
-            PropertyValue currentPv = this.propertyValueList.get(i);
-            if (currentPv.getName().equals(pv.getName())) {
-                // 覆盖原有的属性值
-                this.propertyValueList.set(i, pv);
-                return;
+        addPropertyValue(pv.getName(), pv.getValue());
+    }
+
+    public void addPropertyValue(String propertyName, Object value) {
+        if (unmodifiable) {
+            throw new UnsupportedOperationException("Shared empty PropertyValues cannot be modified");
+        }
+        int i = indexOf(propertyName);
+        if (i >= 0) {
+            // 覆盖原有的属性值，保持原来的位置
+            values[i] = value;
+        } else {
+            append(propertyName.intern(), value);
+        }
+        this.mergedView = null;
+    }
+
+    private void append(String propertyName, Object value) {
+        if (size == names.length) {
+            int capacity = Math.max(4, size * 2);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        names[size] = propertyName;
+        values[size] = value;
+        size++;
+        if (size > INDEX_THRESHOLD) {
+            if (null == index || size * 2 > index.length) {
+                rebuildIndex();
+            } else {
+                insertIndex(size - 1);
             }
         }
-        this.propertyValueList.add(pv);
     }
 
+    private void rebuildIndex() {
+        int capacity = 16;
+        while (capacity < size * 4) capacity <<= 1;
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insertIndex(i);
+        }
+    }
+
+    private void insertIndex(int position) {
+        int mask = index.length - 1;
+        int slot = spread(names[position].hashCode()) & mask;
+        while (index[slot] != 0) slot = (slot + 1) & mask;
+        index[slot] = position + 1;
+    }
+
+    /**
+     * 查找自身（不含父集合）中属性的位置
+     */
+    private int indexOf(String propertyName) {
+        if (null == index) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(propertyName)) return i;
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        int slot = spread(propertyName.hashCode()) & mask;
+        int position;
+        while ((position = index[slot]) != 0) {
+            if (names[position - 1].equals(propertyName)) return position - 1;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 覆盖层与父集合合并后的结果，覆盖层中的同名属性替换父集合中的值
+     */
+    private PropertyValues view() {
+        if (null == parent) {
+            return this;
+        }
+        if (0 == size) {
+            return parent.view();
+        }
+        PropertyValues merged = this.mergedView;
+        if (null == merged) {
+            merged = new PropertyValues();
+            PropertyValues parentView = parent.view();
+            for (int i = 0; i < parentView.size; i++) {
+                merged.addPropertyValue(parentView.names[i], parentView.values[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                merged.addPropertyValue(names[i], values[i]);
+            }
+            this.mergedView = merged;
+        }
+        return merged;
+    }
+
+    public int size() {
+        return view().size;
+    }
+
+    /**
+     * 按位置读取属性名，遍历时不需要创建 PropertyValue 对象
+     */
+    public String getName(int i) {
+        PropertyValues view = view();
+        checkIndex(i, view.size);
+        return view.names[i];
+    }
+
+    public Object getValue(int i) {
+        PropertyValues view = view();
+        checkIndex(i, view.size);
+        return view.values[i];
+    }
+
+    private static void checkIndex(int i, int size) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+    }
+
+    /**
+     * 返回全部属性值，每次调用都会创建新的数组和 PropertyValue 对象，遍历时优先使用 {@link #getName(int)}、{@link #getValue(int)}
+     */
     public PropertyValue[] getPropertyValues() {
-        return this.propertyValueList.toArray(new PropertyValue[0]);
+        PropertyValues view = view();
+        PropertyValue[] propertyValues = new PropertyValue[view.size];
+        for (int i = 0; i < view.size; i++) {
+            propertyValues[i] = new PropertyValue(view.names[i], view.values[i]);
+        }
+        return propertyValues;
     }
 
     public PropertyValue getPropertyValue(String propertyName) {
-        for (PropertyValue pv : this.propertyValueList) {
-            if (pv.getName().equals(propertyName)) {
-                return pv;
-            }
+        int i = indexOf(propertyName);
+        if (i >= 0) {
+            return new PropertyValue(names[i], values[i]);
         }
-        return null;
+        return null != parent ? parent.getPropertyValue(propertyName) : null;
+    }
+
+    public boolean contains(String propertyName) {
+        return indexOf(propertyName) >= 0 || (null != parent && parent.contains(propertyName));
+    }
+
+    public boolean isEmpty() {
+        return 0 == size && (null == parent || parent.isEmpty());
+    }
+
+    /**
+     * 释放数组中多余的容量，配置加载完成后调用
+     */
+    public void trimToSize() {
+        if (unmodifiable || size == names.length) return;
+        names = 0 == size ? NO_NAMES : Arrays.copyOf(names, size);
+        values = 0 == size ? NO_VALUES : Arrays.copyOf(values, size);
     }
 
 }
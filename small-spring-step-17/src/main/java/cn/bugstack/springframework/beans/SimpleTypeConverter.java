@@ -0,0 +1,70 @@
+package cn.bugstack.springframework.beans;
+
+import cn.bugstack.springframework.core.convert.ConversionService;
+import cn.hutool.core.convert.Convert;
+
+import java.lang.invoke.MethodType;
+
+/**
+ * Simple implementation of the {@link TypeConverter} interface that does not operate on
+ * a specific target object.
+ * <p>
+ * 不依赖目标对象的类型转换器，注解注入等不经过 {@link BeanWrapper} 的路径使用它做类型转换
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class SimpleTypeConverter implements TypeConverter {
+
+    private ConversionService conversionService;
+
+    public SimpleTypeConverter() {
+    }
+
+    public SimpleTypeConverter(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    public void setConversionService(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    public ConversionService getConversionService() {
+        return conversionService;
+    }
+
+    @Override
+    public <T> T convertIfNecessary(Object value, Class<T> requiredType) throws BeansException {
+        if (null == value && requiredType.isPrimitive()) {
+            throw new BeansException("Cannot convert null to primitive type [" + requiredType.getName() + "]");
+        }
+        return (T) convertIfNecessary(null, value, requiredType, conversionService);
+    }
+
+    /**
+     * 类型转换：值已经可以赋给目标类型时不做处理，否则先走 ConversionService，再回退到 hutool 的基础类型转换。
+     * null 值由调用方处理
+     */
+    static Object convertIfNecessary(String propertyName, Object value, Class<?> requiredType, ConversionService conversionService) {
+        if (null == value) {
+            return null;
+        }
+        Class<?> wrapperType = requiredType.isPrimitive() ? MethodType.methodType(requiredType).wrap().returnType() : requiredType;
+        if (wrapperType.isInstance(value)) {
+            return value;
+        }
+        if (null != conversionService && conversionService.canConvert(value.getClass(), requiredType)) {
+            return conversionService.convert(value, requiredType);
+        }
+        String target = null != propertyName ? " for property '" + propertyName + "'" : "";
+        try {
+            Object convertedValue = Convert.convert(wrapperType, value);
+            if (null != convertedValue) return convertedValue;
+        } catch (RuntimeException e) {
+            throw new BeansException("Failed to convert value of type [" + value.getClass().getName() + "] to required type [" + requiredType.getName() + "]" + target, e);
+        }
+        throw new BeansException("Cannot convert value of type [" + value.getClass().getName() + "] to required type [" + requiredType.getName() + "]" + target);
+    }
+
+}
@@ -0,0 +1,23 @@
+package cn.bugstack.springframework.beans;
+
+/**
+ * Interface that defines type conversion methods. Typically (but not necessarily)
+ * implemented in conjunction with the {@link PropertyAccessor} interface.
+ * <p>
+ * 类型转换接口：XML 属性、@Value 注解等所有注入路径使用同一套转换规则，
+ * 先走 ConversionService，再回退到 hutool 的基础类型转换
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface TypeConverter {
+
+    /**
+     * Convert the value to the required type (if necessary from a String).
+     * <p>
+     * 值已经可以赋给目标类型时原样返回；目标类型是基本类型时返回包装类型的值
+     */
+    <T> T convertIfNecessary(Object value, Class<T> requiredType) throws BeansException;
+
+}
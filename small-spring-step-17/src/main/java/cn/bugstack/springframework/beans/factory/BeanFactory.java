@@ -17,6 +17,27 @@ public interface BeanFactory {
 
     <T> T getBean(Class<T> requiredType) throws BeansException;
 
+    /**
+     * 获取预先解析的 Bean 句柄，适合在请求路径上反复获取同一个 Bean
+     *
+     * @param name
+     * @param requiredType
+     * @return
+     * @throws BeansException
+     */
+    <T> BeanHandle<T> getBeanHandle(String name, Class<T> requiredType) throws BeansException;
+
+    /**
+     * 从 pooled 作用域 Bean 的对象池中借出一个对象，租约关闭时归还；
+     * 与 getBean 返回的代理不同，租约期间多次方法调用使用的是同一个对象
+     *
+     * @param name
+     * @param requiredType
+     * @return
+     * @throws BeansException
+     */
+    <T> BeanLease<T> borrowBean(String name, Class<T> requiredType) throws BeansException;
+
     /**
      * Does this bean factory contain a bean definition or externally registered singleton
      * instance with the given name?
@@ -0,0 +1,24 @@
+package cn.bugstack.springframework.beans.factory;
+
+import cn.bugstack.springframework.beans.BeansException;
+
+/**
+ * Pre-resolved reference to a bean, obtained once through
+ * {@link BeanFactory#getBeanHandle(String, Class)} and dereferenced on hot paths.
+ * <p>
+ * Bean 句柄：按名称解析一次，之后获取单例对象只需要一次数组读取，不再做字符串散列查找；
+ * 非单例的 Bean 每次 get 都会按作用域重新获取
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface BeanHandle<T> {
+
+    String getBeanName();
+
+    Class<T> getRequiredType();
+
+    T get() throws BeansException;
+
+}
@@ -0,0 +1,27 @@
+package cn.bugstack.springframework.beans.factory;
+
+import cn.bugstack.springframework.beans.BeansException;
+
+/**
+ * 从对象池中借出的 Bean，通过 {@link BeanFactory#borrowBean(String, Class)} 获取，
+ * 在 try-with-resources 中使用，close 时归还对象池
+ * <p>
+ * 租约期间对象只被当前借用方使用，可以连续调用多个方法；归还后不能再调用 {@link #get()}
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface BeanLease<T> extends AutoCloseable {
+
+    String getBeanName();
+
+    T get() throws BeansException;
+
+    /**
+     * 归还对象，重复调用不会重复归还
+     */
+    @Override
+    void close();
+
+}
@@ -19,6 +19,16 @@ public interface ConfigurableListableBeanFactory extends ListableBeanFactory, Au
 
     BeanDefinition getBeanDefinition(String beanName) throws BeansException;
 
+    /**
+     * Freeze all bean definitions, signalling that the registered bean definitions
+     * will not be modified or post-processed any further.
+     * <p>
+     * 冻结配置，之后的 BeanDefinition 读取都走不可变快照
+     */
+    void freezeConfiguration();
+
+    boolean isConfigurationFrozen();
+
     void preInstantiateSingletons() throws BeansException;
 
     void addBeanPostProcessor(BeanPostProcessor beanPostProcessor);
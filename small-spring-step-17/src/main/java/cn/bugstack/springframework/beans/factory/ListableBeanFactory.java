@@ -26,6 +26,16 @@ public interface ListableBeanFactory extends BeanFactory{
      */
     <T> Map<String, T> getBeansOfType(Class<T> type) throws BeansException;
 
+    /**
+     * Return the names of beans matching the given type (including subclasses),
+     * judging from the bean definitions. Does not instantiate any bean.
+     *
+     * 按照类型返回 Bean 名称，不会实例化 Bean 对象
+     * @param type
+     * @return
+     */
+    String[] getBeanNamesForType(Class<?> type);
+
     /**
      * Return the names of all beans defined in this registry.
      *
@@ -0,0 +1,15 @@
+package cn.bugstack.springframework.beans.factory;
+
+/**
+ * pooled 作用域的 Bean 实现该接口后，每次归还对象池前都会调用 {@link #reset()}，
+ * 清理上一个借用方留下的状态。reset 抛出异常时该对象会被销毁，不再放回对象池
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface PooledBean {
+
+    void reset() throws Exception;
+
+}
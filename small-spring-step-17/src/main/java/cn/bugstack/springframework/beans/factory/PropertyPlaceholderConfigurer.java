@@ -1,15 +1,17 @@
 package cn.bugstack.springframework.beans.factory;
 
 import cn.bugstack.springframework.beans.BeansException;
-import cn.bugstack.springframework.beans.PropertyValue;
 import cn.bugstack.springframework.beans.PropertyValues;
 import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
 import cn.bugstack.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import cn.bugstack.springframework.core.io.ByteBufferInputStream;
 import cn.bugstack.springframework.core.io.DefaultResourceLoader;
 import cn.bugstack.springframework.core.io.Resource;
 import cn.bugstack.springframework.util.StringValueResolver;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 /**
@@ -42,20 +44,23 @@ public class PropertyPlaceholderConfigurer implements BeanFactoryPostProcessor {
             DefaultResourceLoader resourceLoader = new DefaultResourceLoader();
             Resource resource = resourceLoader.getResource(location);
 
-            // 占位符替换属性值
+            // 占位符替换属性值，文件资源直接读取 ByteBuffer
             Properties properties = new Properties();
-            properties.load(resource.getInputStream());
+            ByteBuffer buffer = resource.asByteBuffer();
+            try (InputStream inputStream = null != buffer ? new ByteBufferInputStream(buffer) : resource.getInputStream()) {
+                properties.load(inputStream);
+            }
 
             String[] beanDefinitionNames = beanFactory.getBeanDefinitionNames();
             for (String beanName : beanDefinitionNames) {
                 BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                if (!beanDefinition.hasPropertyValues()) continue;
 
                 PropertyValues propertyValues = beanDefinition.getPropertyValues();
-                for (PropertyValue propertyValue : propertyValues.getPropertyValues()) {
-                    Object value = propertyValue.getValue();
+                for (int i = 0; i < propertyValues.size(); i++) {
+                    Object value = propertyValues.getValue(i);
                     if (!(value instanceof String)) continue;
-                    value = resolvePlaceholder((String) value, properties);
-                    propertyValues.addPropertyValue(new PropertyValue(propertyValue.getName(), value));
+                    propertyValues.addPropertyValue(propertyValues.getName(i), resolvePlaceholder((String) value, properties));
                 }
             }
 
@@ -81,6 +86,10 @@ public class PropertyPlaceholderConfigurer implements BeanFactoryPostProcessor {
         return buffer.toString();
     }
 
+    public String getLocation() {
+        return location;
+    }
+
     public void setLocation(String location) {
         this.location = location;
     }
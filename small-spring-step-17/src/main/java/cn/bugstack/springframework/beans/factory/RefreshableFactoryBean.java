@@ -0,0 +1,41 @@
+package cn.bugstack.springframework.beans.factory;
+
+/**
+ * A singleton {@link FactoryBean} whose object expires after a time-to-live and
+ * is rebuilt in the background.
+ * <p>
+ * 对象过期后由后台线程重新调用 getObject 创建新对象并原子替换，调用方在刷新期间继续拿到旧对象，不会阻塞。
+ * 刷新失败时保留旧对象，下一次访问再重试，失败交给刷新线程的 UncaughtExceptionHandler 报告。
+ * 被替换的旧对象可能仍被其他线程使用，等待 {@link #getDestroyDelayMillis()} 之后才销毁。
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface RefreshableFactoryBean<T> extends FactoryBean<T> {
+
+    /**
+     * 对象的存活时间（毫秒），小于等于 0 表示不刷新
+     */
+    long getTimeToLiveMillis();
+
+    /**
+     * 旧对象被替换并经过 {@link #getDestroyDelayMillis()} 后回调，用于释放旧对象持有的资源；
+     * 容器关闭时尚未销毁的旧对象立即回调
+     */
+    default void destroyObject(T object) throws Exception {
+    }
+
+    /**
+     * 旧对象被替换后延迟销毁的时间（毫秒），调用方持有对象的时间不应超过该值；默认等于存活时间，小于等于 0 时替换后立即销毁
+     */
+    default long getDestroyDelayMillis() {
+        return getTimeToLiveMillis();
+    }
+
+    @Override
+    default boolean isSingleton() {
+        return true;
+    }
+
+}
@@ -2,16 +2,22 @@ package cn.bugstack.springframework.beans.factory.annotation;
 
 import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.PropertyValues;
+import cn.bugstack.springframework.beans.SimpleTypeConverter;
 import cn.bugstack.springframework.beans.factory.BeanFactory;
 import cn.bugstack.springframework.beans.factory.BeanFactoryAware;
 import cn.bugstack.springframework.beans.factory.ConfigurableListableBeanFactory;
 import cn.bugstack.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import cn.bugstack.springframework.context.annotation.Lazy;
 import cn.bugstack.springframework.core.convert.ConversionService;
 import cn.bugstack.springframework.util.ClassUtils;
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.util.TypeUtil;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.LazyLoader;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@link cn.bugstack.springframework.beans.factory.config.BeanPostProcessor} implementation
@@ -29,6 +35,16 @@ public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareB
 
     private ConfigurableListableBeanFactory beanFactory;
 
+    /**
+     * 注入元数据缓存：Class --> InjectionMetadata，@Value 的值基于当前 BeanFactory 解析，所以按处理器实例缓存
+     */
+    private final Map<Class<?>, InjectionMetadata> injectionMetadataCache = new ConcurrentHashMap<>(256);
+
+    /**
+     * @Value 的类型转换器，与 XML 属性使用同一套转换规则；BeanFactory 的 ConversionService 变化时重新创建
+     */
+    private volatile SimpleTypeConverter typeConverter;
+
     @Override
     public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
         this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
@@ -36,29 +52,41 @@ public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareB
 
     @Override
     public PropertyValues postProcessPropertyValues(PropertyValues pvs, Object bean, String beanName) throws BeansException {
-        // 1. 处理注解 @Value
         Class<?> clazz = bean.getClass();
         clazz = ClassUtils.isCglibProxyClass(clazz) ? clazz.getSuperclass() : clazz;
 
+        InjectionMetadata metadata = findInjectionMetadata(clazz);
+        metadata.inject(bean, beanName);
+
+        return pvs;
+    }
+
+    protected InjectionMetadata findInjectionMetadata(Class<?> clazz) {
+        InjectionMetadata metadata = this.injectionMetadataCache.get(clazz);
+        if (null == metadata) {
+            metadata = buildInjectionMetadata(clazz);
+            this.injectionMetadataCache.put(clazz, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * 清除注入元数据缓存，属性文件变化后 @Value 的值需要重新解析
+     */
+    public void clearInjectionMetadataCache() {
+        this.injectionMetadataCache.clear();
+    }
+
+    private InjectionMetadata buildInjectionMetadata(Class<?> clazz) {
+        List<InjectionMetadata.InjectedElement> elements = new ArrayList<>();
         Field[] declaredFields = clazz.getDeclaredFields();
 
+        // 1. 处理注解 @Value
         for (Field field : declaredFields) {
             Value valueAnnotation = field.getAnnotation(Value.class);
             if (null != valueAnnotation) {
-                Object value = valueAnnotation.value();
-                value = beanFactory.resolveEmbeddedValue((String) value);
-
-                // 类型转换
-                Class<?> sourceType = value.getClass();
-                Class<?> targetType = (Class<?>) TypeUtil.getType(field);
-                ConversionService conversionService = beanFactory.getConversionService();
-                if (conversionService != null) {
-                    if (conversionService.canConvert(sourceType, targetType)) {
-                        value = conversionService.convert(value, targetType);
-                    }
-                }
-
-                BeanUtil.setFieldValue(bean, field.getName(), value);
+                String value = beanFactory.resolveEmbeddedValue(valueAnnotation.value());
+                elements.add(new ValueFieldElement(field, value));
             }
         }
 
@@ -66,21 +94,24 @@ public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareB
         for (Field field : declaredFields) {
             Autowired autowiredAnnotation = field.getAnnotation(Autowired.class);
             if (null != autowiredAnnotation) {
-                Class<?> fieldType = field.getType();
-                String dependentBeanName = null;
                 Qualifier qualifierAnnotation = field.getAnnotation(Qualifier.class);
-                Object dependentBean = null;
-                if (null != qualifierAnnotation) {
-                    dependentBeanName = qualifierAnnotation.value();
-                    dependentBean = beanFactory.getBean(dependentBeanName, fieldType);
-                } else {
-                    dependentBean = beanFactory.getBean(fieldType);
-                }
-                BeanUtil.setFieldValue(bean, field.getName(), dependentBean);
+                String dependentBeanName = null != qualifierAnnotation ? qualifierAnnotation.value() : null;
+                Lazy lazyAnnotation = field.getAnnotation(Lazy.class);
+                boolean lazy = null != lazyAnnotation && lazyAnnotation.value();
+                elements.add(new AutowiredFieldElement(field, dependentBeanName, lazy));
             }
         }
 
-        return pvs;
+        return new InjectionMetadata(clazz, elements.toArray(new InjectionMetadata.InjectedElement[0]));
+    }
+
+    /**
+     * 没有 @Value、@Autowired 注解字段的 Class 不需要处理
+     */
+    @Override
+    public boolean supports(Class<?> beanClass) {
+        Class<?> clazz = ClassUtils.isCglibProxyClass(beanClass) ? beanClass.getSuperclass() : beanClass;
+        return !findInjectionMetadata(clazz).isEmpty();
     }
 
     @Override
@@ -102,4 +133,101 @@ public class AutowiredAnnotationBeanPostProcessor implements InstantiationAwareB
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
         return null;
     }
+
+    private SimpleTypeConverter getTypeConverter() {
+        ConversionService conversionService = beanFactory.getConversionService();
+        SimpleTypeConverter converter = this.typeConverter;
+        if (null == converter || converter.getConversionService() != conversionService) {
+            converter = new SimpleTypeConverter(conversionService);
+            this.typeConverter = converter;
+        }
+        return converter;
+    }
+
+    /**
+     * @Value 注解的字段，占位符在解析元数据时就已经替换完成
+     */
+    private class ValueFieldElement extends InjectionMetadata.InjectedElement {
+
+        private final String value;
+
+        /**
+         * String 可以直接赋给字段时不需要转换
+         */
+        private final boolean conversionRequired;
+
+        ValueFieldElement(Field field, String value) {
+            super(field);
+            this.value = value;
+            this.conversionRequired = !field.getType().isAssignableFrom(String.class);
+        }
+
+        @Override
+        protected void inject(Object target, String beanName) throws Throwable {
+            // 类型转换：先走 ConversionService，再回退到 hutool 的基础类型转换
+            Object fieldValue = conversionRequired ? getTypeConverter().convertIfNecessary(value, field.getType()) : value;
+            setFieldValue(target, fieldValue);
+        }
+
+    }
+
+    /**
+     * @Autowired 注解的字段，@Qualifier 指定的 Bean 名称在解析元数据时确定
+     */
+    private class AutowiredFieldElement extends InjectionMetadata.InjectedElement {
+
+        private final String dependentBeanName;
+
+        private final boolean lazy;
+
+        AutowiredFieldElement(Field field, String dependentBeanName, boolean lazy) {
+            super(field);
+            this.dependentBeanName = dependentBeanName;
+            this.lazy = lazy;
+        }
+
+        @Override
+        protected void inject(Object target, String beanName) throws Throwable {
+            Object dependentBean = lazy ? buildLazyResolutionProxy(beanName) : resolveDependency(beanName);
+            setFieldValue(target, dependentBean);
+        }
+
+        private Object resolveDependency(String beanName) {
+            Class<?> fieldType = field.getType();
+            if (null != dependentBeanName) {
+                Object dependentBean = beanFactory.getBean(dependentBeanName, fieldType);
+                beanFactory.registerDependentBean(dependentBeanName, beanName);
+                return dependentBean;
+            }
+            Object dependentBean = beanFactory.getBean(fieldType);
+            // 按类型注入成功说明只有一个候选 Bean
+            String[] candidateNames = beanFactory.getBeanNamesForType(fieldType);
+            if (1 == candidateNames.length) {
+                beanFactory.registerDependentBean(candidateNames[0], beanName);
+            }
+            return dependentBean;
+        }
+
+        /**
+         * @Lazy 注入点：注入 CGLIB 代理，第一次调用方法时才获取目标 Bean。
+         * 类代理需要目标类有无参构造函数，创建代理时会执行一次该构造函数
+         */
+        private Object buildLazyResolutionProxy(String beanName) {
+            Class<?> fieldType = field.getType();
+            Enhancer enhancer = new Enhancer();
+            if (fieldType.isInterface()) {
+                enhancer.setInterfaces(new Class[]{fieldType});
+            } else {
+                enhancer.setSuperclass(fieldType);
+            }
+            enhancer.setCallback((LazyLoader) () -> resolveDependency(beanName));
+            try {
+                return enhancer.create();
+            } catch (RuntimeException e) {
+                throw new BeansException("Could not create lazy resolution proxy for field '" + field.getName() + "' of type [" + fieldType.getName() + "]", e);
+            }
+        }
+
+    }
+
 }
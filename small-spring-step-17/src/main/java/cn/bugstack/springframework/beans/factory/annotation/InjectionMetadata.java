@@ -0,0 +1,82 @@
+package cn.bugstack.springframework.beans.factory.annotation;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.CachedIntrospectionResults;
+
+import java.lang.reflect.Field;
+
+/**
+ * Internal class for managing injection metadata.
+ * Not intended for direct use in applications.
+ * <p>
+ * 某个 Class 上所有需要注入的字段，解析一次后缓存起来，后续创建的实例只需要遍历执行注入
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class InjectionMetadata {
+
+    private final Class<?> targetClass;
+
+    private final InjectedElement[] injectedElements;
+
+    public InjectionMetadata(Class<?> targetClass, InjectedElement[] injectedElements) {
+        this.targetClass = targetClass;
+        this.injectedElements = injectedElements;
+    }
+
+    public void inject(Object target, String beanName) throws BeansException {
+        for (InjectedElement element : this.injectedElements) {
+            try {
+                element.inject(target, beanName);
+            } catch (BeansException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new BeansException("Could not inject field '" + element.getField().getName() + "' of bean[" + beanName + "]", e);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.injectedElements.length == 0;
+    }
+
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    public InjectedElement[] getInjectedElements() {
+        return injectedElements;
+    }
+
+    /**
+     * A single injected field.
+     */
+    public abstract static class InjectedElement {
+
+        protected final Field field;
+
+        private final CachedIntrospectionResults.PropertyHandler fieldHandler;
+
+        protected InjectedElement(Field field) {
+            this.field = field;
+            this.fieldHandler = CachedIntrospectionResults.PropertyHandler.forField(field);
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * 通过绑定好的字段访问器写入值
+         */
+        protected void setFieldValue(Object target, Object value) throws Throwable {
+            this.fieldHandler.setValue(target, value);
+        }
+
+        protected abstract void inject(Object target, String beanName) throws Throwable;
+
+    }
+
+}
@@ -9,12 +9,30 @@ import cn.bugstack.springframework.beans.PropertyValues;
  */
 public class BeanDefinition {
 
-    String SCOPE_SINGLETON = ConfigurableBeanFactory.SCOPE_SINGLETON;
+    static final String SCOPE_SINGLETON = ConfigurableBeanFactory.SCOPE_SINGLETON;
 
-    String SCOPE_PROTOTYPE = ConfigurableBeanFactory.SCOPE_PROTOTYPE;
+    static final String SCOPE_PROTOTYPE = ConfigurableBeanFactory.SCOPE_PROTOTYPE;
+
+    static final String SCOPE_POOLED = ConfigurableBeanFactory.SCOPE_POOLED;
+
+    /**
+     * 布尔属性压缩到一个字段中
+     */
+    private static final byte FLAG_SINGLETON = 1;
+
+    private static final byte FLAG_PROTOTYPE = 1 << 1;
+
+    private static final byte FLAG_LAZY_INIT = 1 << 2;
+
+    private static final byte FLAG_TRIMMED = 1 << 3;
+
+    private static final byte FLAG_POOLED = 1 << 4;
 
     private Class beanClass;
 
+    /**
+     * 没有属性时共享 {@link PropertyValues#EMPTY}，第一次通过 getPropertyValues 获取时才创建可修改的集合
+     */
     private PropertyValues propertyValues;
 
     private String initMethodName;
@@ -23,9 +41,12 @@ public class BeanDefinition {
 
     private String scope = SCOPE_SINGLETON;
 
-    private boolean singleton = true;
+    private byte flags = FLAG_SINGLETON;
 
-    private boolean prototype = false;
+    /**
+     * 只有 pooled 作用域并且显式配置过对象池时才不为空
+     */
+    private PoolConfig poolConfig;
 
     public BeanDefinition(Class beanClass) {
         this(beanClass, null);
@@ -33,21 +54,41 @@ public class BeanDefinition {
 
     public BeanDefinition(Class beanClass, PropertyValues propertyValues) {
         this.beanClass = beanClass;
-        this.propertyValues = propertyValues != null ? propertyValues : new PropertyValues();
+        this.propertyValues = propertyValues != null ? propertyValues : PropertyValues.EMPTY;
     }
 
     public void setScope(String scope) {
-        this.scope = scope;
-        this.singleton = SCOPE_SINGLETON.equals(scope);
-        this.prototype = SCOPE_PROTOTYPE.equals(scope);
+        this.scope = null != scope ? scope.intern() : null;
+        setFlag(FLAG_SINGLETON, SCOPE_SINGLETON.equals(scope));
+        setFlag(FLAG_PROTOTYPE, SCOPE_PROTOTYPE.equals(scope));
+        setFlag(FLAG_POOLED, SCOPE_POOLED.equals(scope));
+    }
+
+    public String getScope() {
+        return scope;
     }
 
     public boolean isSingleton() {
-        return singleton;
+        return (flags & FLAG_SINGLETON) != 0;
     }
 
     public boolean isPrototype() {
-        return prototype;
+        return (flags & FLAG_PROTOTYPE) != 0;
+    }
+
+    public boolean isPooled() {
+        return (flags & FLAG_POOLED) != 0;
+    }
+
+    /**
+     * 对象池配置，未配置时返回 null，对象池使用默认配置
+     */
+    public PoolConfig getPoolConfig() {
+        return poolConfig;
+    }
+
+    public void setPoolConfig(PoolConfig poolConfig) {
+        this.poolConfig = poolConfig;
     }
 
     public Class getBeanClass() {
@@ -58,12 +99,22 @@ public class BeanDefinition {
         this.beanClass = beanClass;
     }
 
+    /**
+     * 获取可修改的属性值集合；只读取属性时先用 {@link #hasPropertyValues()} 判断，避免为空集合创建对象
+     */
     public PropertyValues getPropertyValues() {
+        if (this.propertyValues == PropertyValues.EMPTY) {
+            this.propertyValues = new PropertyValues();
+        }
         return propertyValues;
     }
 
+    public boolean hasPropertyValues() {
+        return !this.propertyValues.isEmpty();
+    }
+
     public void setPropertyValues(PropertyValues propertyValues) {
-        this.propertyValues = propertyValues;
+        this.propertyValues = propertyValues != null ? propertyValues : PropertyValues.EMPTY;
     }
 
     public String getInitMethodName() {
@@ -71,7 +122,7 @@ public class BeanDefinition {
     }
 
     public void setInitMethodName(String initMethodName) {
-        this.initMethodName = initMethodName;
+        this.initMethodName = null != initMethodName ? initMethodName.intern() : null;
     }
 
     public String getDestroyMethodName() {
@@ -79,6 +130,34 @@ public class BeanDefinition {
     }
 
     public void setDestroyMethodName(String destroyMethodName) {
-        this.destroyMethodName = destroyMethodName;
+        this.destroyMethodName = null != destroyMethodName ? destroyMethodName.intern() : null;
+    }
+
+    /**
+     * 懒加载的单例 Bean 不会在 preInstantiateSingletons 中提前创建
+     */
+    public boolean isLazyInit() {
+        return (flags & FLAG_LAZY_INIT) != 0;
     }
+
+    public void setLazyInit(boolean lazyInit) {
+        setFlag(FLAG_LAZY_INIT, lazyInit);
+    }
+
+    /**
+     * 单例对象创建完成后裁剪 BeanDefinition：释放属性值，之后不能再用它创建 Bean
+     */
+    public void trim() {
+        this.propertyValues = PropertyValues.EMPTY;
+        setFlag(FLAG_TRIMMED, true);
+    }
+
+    public boolean isTrimmed() {
+        return (flags & FLAG_TRIMMED) != 0;
+    }
+
+    private void setFlag(byte flag, boolean value) {
+        this.flags = (byte) (value ? flags | flag : flags & ~flag);
+    }
+
 }
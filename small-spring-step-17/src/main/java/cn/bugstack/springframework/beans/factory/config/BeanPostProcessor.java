@@ -34,4 +34,15 @@ public interface BeanPostProcessor {
      */
     Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException;
 
+    /**
+     * 该处理器是否可能处理这个 Class 的 Bean 对象，返回 false 时该 Class 的所有 Bean 都会跳过此处理器。
+     * 判断结果按 Class 缓存，所以只能依赖 Class 本身的信息
+     *
+     * @param beanClass
+     * @return
+     */
+    default boolean supports(Class<?> beanClass) {
+        return true;
+    }
+
 }
@@ -2,6 +2,7 @@ package cn.bugstack.springframework.beans.factory.config;
 
 import cn.bugstack.springframework.beans.factory.HierarchicalBeanFactory;
 import cn.bugstack.springframework.core.convert.ConversionService;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
 import cn.bugstack.springframework.util.StringValueResolver;
 import com.sun.istack.internal.Nullable;
 
@@ -17,13 +18,53 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 
     String SCOPE_PROTOTYPE = "prototype";
 
+    /**
+     * 对象池作用域：适合创建代价高、又不是线程安全的 Bean，每次使用时从对象池借出一个独占的对象
+     */
+    String SCOPE_POOLED = "pooled";
+
     void addBeanPostProcessor(BeanPostProcessor beanPostProcessor);
 
+    /**
+     * Register the given scope, backed by the given Scope implementation.
+     * <p>
+     * 注册自定义作用域，singleton、prototype、pooled 是内置作用域，不能被替换
+     * @param scopeName the scope identifier
+     * @param scope the backing Scope implementation
+     */
+    void registerScope(String scopeName, Scope scope);
+
+    /**
+     * Return the names of all currently registered scopes.
+     * <p>This will only return the names of explicitly registered scopes.
+     * Built-in scopes such as "singleton" and "prototype" won't be exposed.
+     */
+    String[] getRegisteredScopeNames();
+
+    /**
+     * Return the Scope implementation for the given scope name, if any.
+     */
+    @Nullable
+    Scope getRegisteredScope(String scopeName);
+
     /**
      * 销毁单例对象
      */
     void destroySingletons();
 
+    /**
+     * Register a dependent bean for the given bean,
+     * to be destroyed before the given bean is destroyed.
+     * <p>
+     * 记录 Bean 之间的依赖关系，销毁时依赖方先于被依赖方销毁
+     */
+    void registerDependentBean(String beanName, String dependentBeanName);
+
+    /**
+     * 获取 pooled 作用域 Bean 的对象池统计，对象池还没有创建时返回 null
+     */
+    PoolMetrics getPoolMetrics(String beanName);
+
     /**
      * Add a String resolver for embedded values such as annotation attributes.
      * @param valueResolver the String resolver to apply to embedded values
@@ -53,4 +94,14 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
     @Nullable
     ConversionService getConversionService();
 
+    /**
+     * Set the {@code StartupRecorder} for this bean factory.
+     * <p>This allows the application context to record metrics during application startup.
+     * <p>
+     * 设置启动过程埋点，Bean 的创建、BeanPostProcessor 处理和初始化方法都会记录为步骤
+     */
+    void setStartupRecorder(StartupRecorder startupRecorder);
+
+    StartupRecorder getStartupRecorder();
+
 }
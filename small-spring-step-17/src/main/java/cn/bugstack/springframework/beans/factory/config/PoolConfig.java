@@ -0,0 +1,95 @@
+package cn.bugstack.springframework.beans.factory.config;
+
+/**
+ * pooled 作用域 Bean 的对象池配置，未配置时使用默认值
+ * <p>
+ * maxSize 同时借出的对象上限；minIdle 对象池创建时预先填充、空闲回收时保留的对象数；
+ * maxIdleMillis 空闲超过该时间的对象会被回收，0 表示不回收；maxWaitMillis 对象池耗尽时借用方的最长等待时间，0 表示一直等待
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class PoolConfig {
+
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 5 * 60 * 1000L;
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    private int minIdle;
+
+    private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+
+    private long maxWaitMillis;
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool max size must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("Pool min idle must not be negative");
+        }
+        this.minIdle = minIdle;
+    }
+
+    public long getMaxIdleMillis() {
+        return maxIdleMillis;
+    }
+
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        if (maxIdleMillis < 0) {
+            throw new IllegalArgumentException("Pool max idle time must not be negative");
+        }
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("Pool max wait time must not be negative");
+        }
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PoolConfig)) return false;
+        PoolConfig that = (PoolConfig) o;
+        return maxSize == that.maxSize && minIdle == that.minIdle
+                && maxIdleMillis == that.maxIdleMillis && maxWaitMillis == that.maxWaitMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = maxSize;
+        result = 31 * result + minIdle;
+        result = 31 * result + Long.hashCode(maxIdleMillis);
+        result = 31 * result + Long.hashCode(maxWaitMillis);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{maxSize=" + maxSize + ", minIdle=" + minIdle
+                + ", maxIdleMillis=" + maxIdleMillis + ", maxWaitMillis=" + maxWaitMillis + "}";
+    }
+
+}
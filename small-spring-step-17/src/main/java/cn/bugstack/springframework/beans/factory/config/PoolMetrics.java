@@ -0,0 +1,130 @@
+package cn.bugstack.springframework.beans.factory.config;
+
+/**
+ * pooled 作用域 Bean 对象池的统计快照，用于评估对象池大小
+ * <p>
+ * hits 借用时直接拿到空闲对象的次数，misses 借用时需要新建对象的次数；
+ * 等待时间只统计借用方在对象池耗尽时的排队时间，不包含新建对象的耗时
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class PoolMetrics {
+
+    private final String beanName;
+
+    private final int maxSize;
+
+    private final int active;
+
+    private final int idle;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long created;
+
+    private final long destroyed;
+
+    private final long timeouts;
+
+    private final long totalWaitNanos;
+
+    private final long maxWaitNanos;
+
+    public PoolMetrics(String beanName, int maxSize, int active, int idle, long hits, long misses, long created,
+                       long destroyed, long timeouts, long totalWaitNanos, long maxWaitNanos) {
+        this.beanName = beanName;
+        this.maxSize = maxSize;
+        this.active = active;
+        this.idle = idle;
+        this.hits = hits;
+        this.misses = misses;
+        this.created = created;
+        this.destroyed = destroyed;
+        this.timeouts = timeouts;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 当前借出的对象数
+     */
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 成功借用的次数
+     */
+    public long getBorrows() {
+        return hits + misses;
+    }
+
+    public double getHitRatio() {
+        long borrows = getBorrows();
+        return 0 == borrows ? 0 : (double) hits / borrows;
+    }
+
+    /**
+     * 新建的对象数，包含预先填充的空闲对象
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * 等待超时的借用次数
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public double getAverageWaitMillis() {
+        long attempts = getBorrows() + timeouts;
+        return 0 == attempts ? 0 : totalWaitNanos / 1_000_000.0 / attempts;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{beanName='" + beanName + "', maxSize=" + maxSize + ", active=" + active + ", idle=" + idle
+                + ", hits=" + hits + ", misses=" + misses + ", created=" + created + ", destroyed=" + destroyed
+                + ", timeouts=" + timeouts + ", averageWaitMillis=" + getAverageWaitMillis()
+                + ", maxWaitMillis=" + maxWaitNanos / 1_000_000.0 + "}";
+    }
+
+}
@@ -0,0 +1,43 @@
+package cn.bugstack.springframework.beans.factory.config;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.ObjectFactory;
+
+/**
+ * Strategy interface used by a {@link ConfigurableBeanFactory},
+ * representing a target scope to hold bean instances in.
+ * <p>
+ * 自定义作用域：singleton、prototype、pooled 之外的作用域通过 {@link ConfigurableBeanFactory#registerScope(String, Scope)} 注册，
+ * 由作用域自己决定对象缓存在哪里、什么时候结束；作用域结束时需要执行登记的销毁回调
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface Scope {
+
+    /**
+     * Return the object with the given name from the underlying scope,
+     * {@link ObjectFactory#getObject() creating it} if not found in the underlying storage mechanism.
+     */
+    Object get(String name, ObjectFactory<?> objectFactory) throws BeansException;
+
+    /**
+     * Remove the object with the given {@code name} from the underlying scope.
+     * <p>
+     * 同时移除该对象的销毁回调，由调用方负责销毁；不存在时返回 null
+     */
+    Object remove(String name);
+
+    /**
+     * Register a callback to be executed on destruction of the specified
+     * object in the scope.
+     */
+    void registerDestructionCallback(String name, Runnable callback);
+
+    /**
+     * Return the <em>conversation ID</em> for the current underlying scope, if any.
+     */
+    String getConversationId();
+
+}
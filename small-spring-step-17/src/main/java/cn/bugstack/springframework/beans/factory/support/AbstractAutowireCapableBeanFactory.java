@@ -1,21 +1,21 @@
 package cn.bugstack.springframework.beans.factory.support;
 
+import cn.bugstack.springframework.beans.BeanWrapper;
+import cn.bugstack.springframework.beans.BeanWrapperImpl;
 import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.PropertyValue;
 import cn.bugstack.springframework.beans.PropertyValues;
 import cn.bugstack.springframework.beans.factory.*;
 import cn.bugstack.springframework.beans.factory.config.*;
 import cn.bugstack.springframework.context.ApplicationContextAware;
-import cn.bugstack.springframework.core.convert.ConversionService;
+import cn.bugstack.springframework.core.metrics.StartupStep;
 import cn.bugstack.springframework.util.ClassUtils;
-import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.convert.BasicType;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.core.util.TypeUtil;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract bean factory superclass that implements default bean creation,
@@ -31,18 +31,31 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     private InstantiationStrategy instantiationStrategy = new SimpleInstantiationStrategy();
 
+    /**
+     * Cache of bean creation plans: bean name --> BeanCreationPlan
+     */
+    private final Map<String, BeanCreationPlan> creationPlanCache = new ConcurrentHashMap<>();
+
     @Override
     protected Object createBean(String beanName, BeanDefinition beanDefinition, Object[] args) throws BeansException {
-        // 判断是否返回代理 Bean 对象
-        Object bean = resolveBeforeInstantiation(beanName, beanDefinition);
-        if (null != bean) {
-            return bean;
-        }
+        StartupStep beanCreation = getStartupRecorder().start("spring.beans.instantiate").tag("beanName", beanName);
+        try {
+            // 判断是否返回代理 Bean 对象
+            Object bean = resolveBeforeInstantiation(beanName, beanDefinition);
+            if (null != bean) {
+                return bean;
+            }
 
-        return doCreateBean(beanName, beanDefinition, args);
+            return doCreateBean(beanName, beanDefinition, args);
+        } finally {
+            beanCreation.end();
+        }
     }
 
     protected Object doCreateBean(String beanName, BeanDefinition beanDefinition, Object[] args) {
+        if (beanDefinition.isTrimmed()) {
+            throw new BeansException("Bean definition of '" + beanName + "' has been trimmed after the singleton was created and cannot create it again");
+        }
         Object bean = null;
         try {
             // 实例化 Bean
@@ -55,14 +68,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             }
 
             // 实例化后判断
-            boolean continueWithPropertyPopulation = applyBeanPostProcessorsAfterInstantiation(beanName, bean);
-            if (!continueWithPropertyPopulation) {
-                return bean;
+            StartupStep postProcess = getStartupRecorder().start("spring.beans.post-process").tag("phase", "properties");
+            PropertyValues propertyValues;
+            try {
+                boolean continueWithPropertyPopulation = applyBeanPostProcessorsAfterInstantiation(beanName, bean, beanDefinition);
+                if (!continueWithPropertyPopulation) {
+                    return bean;
+                }
+                // 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值
+                propertyValues = applyBeanPostProcessorsBeforeApplyingPropertyValues(beanName, bean, beanDefinition);
+            } finally {
+                postProcess.end();
             }
-            // 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值
-            applyBeanPostProcessorsBeforeApplyingPropertyValues(beanName, bean, beanDefinition);
             // 给 Bean 填充属性
-            applyPropertyValues(beanName, bean, beanDefinition);
+            applyPropertyValues(beanName, bean, propertyValues);
             // 执行 Bean 的初始化方法和 BeanPostProcessor 的前置和后置处理方法
             bean = initializeBean(beanName, bean, beanDefinition);
         } catch (Exception e) {
@@ -85,11 +104,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     protected Object getEarlyBeanReference(String beanName, BeanDefinition beanDefinition, Object bean) {
         Object exposedObject = bean;
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                exposedObject = ((InstantiationAwareBeanPostProcessor) beanPostProcessor).getEarlyBeanReference(exposedObject, beanName);
-                if (null == exposedObject) return exposedObject;
-            }
+        for (InstantiationAwareBeanPostProcessor beanPostProcessor : getBeanPostProcessorCache(beanDefinition.getBeanClass()).instantiationAware) {
+            exposedObject = beanPostProcessor.getEarlyBeanReference(exposedObject, beanName);
+            if (null == exposedObject) return exposedObject;
         }
 
         return exposedObject;
@@ -102,38 +119,44 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      * @param bean
      * @return
      */
-    private boolean applyBeanPostProcessorsAfterInstantiation(String beanName, Object bean) {
+    private boolean applyBeanPostProcessorsAfterInstantiation(String beanName, Object bean, BeanDefinition beanDefinition) {
         boolean continueWithPropertyPopulation = true;
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                InstantiationAwareBeanPostProcessor instantiationAwareBeanPostProcessor = (InstantiationAwareBeanPostProcessor) beanPostProcessor;
-                if (!instantiationAwareBeanPostProcessor.postProcessAfterInstantiation(bean, beanName)) {
-                    continueWithPropertyPopulation = false;
-                    break;
-                }
+        for (InstantiationAwareBeanPostProcessor beanPostProcessor : getBeanPostProcessorCache(beanDefinition.getBeanClass()).instantiationAware) {
+            if (!beanPostProcessor.postProcessAfterInstantiation(bean, beanName)) {
+                continueWithPropertyPopulation = false;
+                break;
             }
         }
         return continueWithPropertyPopulation;
     }
 
     /**
-     * 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值
+     * 在设置 Bean 属性之前，允许 BeanPostProcessor 修改属性值。
+     * 处理器返回的属性值合并到当前实例的覆盖层中，共享的 BeanDefinition 不会被修改
      *
      * @param beanName
      * @param bean
      * @param beanDefinition
+     * @return 当前实例需要填充的属性值
      */
-    protected void applyBeanPostProcessorsBeforeApplyingPropertyValues(String beanName, Object bean, BeanDefinition beanDefinition) {
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                PropertyValues pvs = ((InstantiationAwareBeanPostProcessor) beanPostProcessor).postProcessPropertyValues(beanDefinition.getPropertyValues(), bean, beanName);
-                if (null != pvs) {
-                    for (PropertyValue propertyValue : pvs.getPropertyValues()) {
-                        beanDefinition.getPropertyValues().addPropertyValue(propertyValue);
-                    }
+    protected PropertyValues applyBeanPostProcessorsBeforeApplyingPropertyValues(String beanName, Object bean, BeanDefinition beanDefinition) {
+        InstantiationAwareBeanPostProcessor[] beanPostProcessors = getBeanPostProcessorCache(beanDefinition.getBeanClass()).instantiationAware;
+        PropertyValues definitionValues = beanDefinition.hasPropertyValues() ? beanDefinition.getPropertyValues() : PropertyValues.EMPTY;
+        if (beanPostProcessors.length == 0) {
+            return definitionValues;
+        }
+        PropertyValues pvs = new PropertyValues(definitionValues);
+        for (InstantiationAwareBeanPostProcessor beanPostProcessor : beanPostProcessors) {
+            PropertyValues result = beanPostProcessor.postProcessPropertyValues(pvs, bean, beanName);
+            if (null == result || result == pvs) continue;
+            for (int i = 0; i < result.size(); i++) {
+                PropertyValue existing = pvs.getPropertyValue(result.getName(i));
+                if (null == existing || existing.getValue() != result.getValue(i)) {
+                    pvs.addPropertyValue(result.getName(i), result.getValue(i));
                 }
             }
         }
+        return pvs;
     }
 
     protected Object resolveBeforeInstantiation(String beanName, BeanDefinition beanDefinition) {
@@ -145,67 +168,101 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
     }
 
     protected Object applyBeanPostProcessorsBeforeInstantiation(Class<?> beanClass, String beanName) {
-        for (BeanPostProcessor beanPostProcessor : getBeanPostProcessors()) {
-            if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
-                Object result = ((InstantiationAwareBeanPostProcessor) beanPostProcessor).postProcessBeforeInstantiation(beanClass, beanName);
-                if (null != result) return result;
-            }
+        for (InstantiationAwareBeanPostProcessor beanPostProcessor : getBeanPostProcessorCache(beanClass).instantiationAware) {
+            Object result = beanPostProcessor.postProcessBeforeInstantiation(beanClass, beanName);
+            if (null != result) return result;
         }
         return null;
     }
 
     protected void registerDisposableBeanIfNecessary(String beanName, Object bean, BeanDefinition beanDefinition) {
-        // 非 Singleton 类型的 Bean 不执行销毁方法
-        if (!beanDefinition.isSingleton()) return;
+        // prototype 的 Bean 不执行销毁方法，pooled 的 Bean 由对象池销毁
+        if (beanDefinition.isPrototype() || beanDefinition.isPooled()) return;
+        if (!(bean instanceof DisposableBean) && StrUtil.isEmpty(beanDefinition.getDestroyMethodName())) return;
 
+        DisposableBeanAdapter disposableBean = new DisposableBeanAdapter(bean, beanName, beanDefinition, getCreationPlan(beanName, beanDefinition));
+        if (beanDefinition.isSingleton()) {
+            registerDisposableBean(beanName, disposableBean);
+            return;
+        }
+        // 自定义作用域的 Bean 在作用域结束时销毁
+        Scope scope = getRegisteredScope(beanDefinition.getScope());
+        if (null != scope) {
+            scope.registerDestructionCallback(beanName, () -> {
+                try {
+                    disposableBean.destroy();
+                } catch (Exception e) {
+                    throw new BeansException("Destroy method on scoped bean with name '" + beanName + "' threw an exception", e);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void destroyPooledObject(String beanName, Object bean, BeanDefinition beanDefinition) throws BeansException {
         if (bean instanceof DisposableBean || StrUtil.isNotEmpty(beanDefinition.getDestroyMethodName())) {
-            registerDisposableBean(beanName, new DisposableBeanAdapter(bean, beanName, beanDefinition));
+            try {
+                new DisposableBeanAdapter(bean, beanName, beanDefinition, getCreationPlan(beanName, beanDefinition)).destroy();
+            } catch (Exception e) {
+                throw new BeansException("Destroy method on pooled bean with name '" + beanName + "' threw an exception", e);
+            }
         }
     }
 
     protected Object createBeanInstance(BeanDefinition beanDefinition, String beanName, Object[] args) {
-        Constructor constructorToUse = null;
-        Class<?> beanClass = beanDefinition.getBeanClass();
-        Constructor<?>[] declaredConstructors = beanClass.getDeclaredConstructors();
-        for (Constructor ctor : declaredConstructors) {
-            if (null != args && ctor.getParameterTypes().length == args.length) {
-                constructorToUse = ctor;
-                break;
-            }
+        BeanCreationPlan creationPlan = getCreationPlan(beanName, beanDefinition);
+        Constructor<?> constructorToUse = creationPlan.resolveConstructor(args);
+        // 默认的实例化策略直接使用创建计划中绑定好的构造函数
+        if (getInstantiationStrategy().getClass() == SimpleInstantiationStrategy.class) {
+            return creationPlan.instantiate(constructorToUse, args);
         }
         return getInstantiationStrategy().instantiate(beanDefinition, beanName, constructorToUse, args);
     }
 
+    /**
+     * 获取 Bean 的创建计划，BeanDefinition 被替换或修改了 Class 时重新解析
+     */
+    protected BeanCreationPlan getCreationPlan(String beanName, BeanDefinition beanDefinition) {
+        BeanCreationPlan creationPlan = creationPlanCache.get(beanName);
+        if (null == creationPlan || !creationPlan.isValidFor(beanDefinition)) {
+            creationPlan = new BeanCreationPlan(beanDefinition);
+            creationPlanCache.put(beanName, creationPlan);
+        }
+        return creationPlan;
+    }
+
+    @Override
+    public void destroySingleton(String beanName) {
+        super.destroySingleton(beanName);
+        creationPlanCache.remove(beanName);
+    }
+
+    protected void clearCreationPlan(String beanName) {
+        creationPlanCache.remove(beanName);
+    }
+
     /**
      * Bean 属性填充
      */
-    protected void applyPropertyValues(String beanName, Object bean, BeanDefinition beanDefinition) {
+    protected void applyPropertyValues(String beanName, Object bean, PropertyValues propertyValues) {
         try {
-            PropertyValues propertyValues = beanDefinition.getPropertyValues();
-            for (PropertyValue propertyValue : propertyValues.getPropertyValues()) {
+            BeanWrapper beanWrapper = new BeanWrapperImpl(bean);
+            beanWrapper.setConversionService(getConversionService());
+
+            for (int i = 0; i < propertyValues.size(); i++) {
 
-                String name = propertyValue.getName();
-                Object value = propertyValue.getValue();
+                String name = propertyValues.getName(i);
+                Object value = propertyValues.getValue(i);
 
                 if (value instanceof BeanReference) {
                     // A 依赖 B，获取 B 的实例化
                     BeanReference beanReference = (BeanReference) value;
                     value = getBean(beanReference.getBeanName());
-                }
-                // 类型转换
-                else {
-                    Class<?> sourceType = value.getClass();
-                    Class<?> targetType = (Class<?>) TypeUtil.getFieldType(bean.getClass(), name);
-                    ConversionService conversionService = getConversionService();
-                    if (conversionService != null) {
-                        if (conversionService.canConvert(sourceType, targetType)) {
-                            value = conversionService.convert(value, targetType);
-                        }
-                    }
+                    registerDependentBean(beanReference.getBeanName(), beanName);
                 }
 
-                // 反射设置属性填充
-                 BeanUtil.setFieldValue(bean, name, value);
+                // 属性填充，类型转换由 BeanWrapper 按属性类型完成
+                beanWrapper.setPropertyValue(name, value);
             }
         } catch (Exception e) {
             throw new BeansException("Error setting property values：" + beanName + " message：" + e);
@@ -235,18 +292,35 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             }
         }
 
+        // 对该 Class 生效的 BeanPostProcessor，没有处理器关心时直接跳过整个处理链
+        BeanPostProcessorCache beanPostProcessorCache = getBeanPostProcessorCache(beanDefinition.getBeanClass());
+
         // 1. 执行 BeanPostProcessor Before 处理
-        Object wrappedBean = applyBeanPostProcessorsBeforeInitialization(bean, beanName);
+        Object wrappedBean;
+        StartupStep postProcess = getStartupRecorder().start("spring.beans.post-process").tag("phase", "before-initialization");
+        try {
+            wrappedBean = applyBeanPostProcessorsBeforeInitialization(beanPostProcessorCache, bean, beanName);
+        } finally {
+            postProcess.end();
+        }
 
         // 执行 Bean 对象的初始化方法
+        StartupStep init = getStartupRecorder().start("spring.beans.init");
         try {
             invokeInitMethods(beanName, wrappedBean, beanDefinition);
         } catch (Exception e) {
             throw new BeansException("Invocation of init method of bean[" + beanName + "] failed", e);
+        } finally {
+            init.end();
         }
 
         // 2. 执行 BeanPostProcessor After 处理
-        wrappedBean = applyBeanPostProcessorsAfterInitialization(wrappedBean, beanName);
+        postProcess = getStartupRecorder().start("spring.beans.post-process").tag("phase", "after-initialization");
+        try {
+            wrappedBean = applyBeanPostProcessorsAfterInitialization(beanPostProcessorCache, wrappedBean, beanName);
+        } finally {
+            postProcess.end();
+        }
         return wrappedBean;
     }
 
@@ -257,20 +331,30 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         }
 
         // 2. 注解配置 init-method {判断是为了避免二次执行销毁}
-        String initMethodName = beanDefinition.getInitMethodName();
-        if (StrUtil.isNotEmpty(initMethodName)) {
-            Method initMethod = beanDefinition.getBeanClass().getMethod(initMethodName);
-            if (null == initMethod) {
-                throw new BeansException("Could not find an init method named '" + initMethodName + "' on bean with name '" + beanName + "'");
+        if (StrUtil.isNotEmpty(beanDefinition.getInitMethodName())) {
+            try {
+                getCreationPlan(beanName, beanDefinition).invokeInitMethod(bean, beanName);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new BeansException("Invocation of init method of bean[" + beanName + "] failed", e);
             }
-            initMethod.invoke(bean);
         }
     }
 
     @Override
     public Object applyBeanPostProcessorsBeforeInitialization(Object existingBean, String beanName) throws BeansException {
+        return applyBeanPostProcessorsBeforeInitialization(getBeanPostProcessorCache(existingBean.getClass()), existingBean, beanName);
+    }
+
+    @Override
+    public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName) throws BeansException {
+        return applyBeanPostProcessorsAfterInitialization(getBeanPostProcessorCache(existingBean.getClass()), existingBean, beanName);
+    }
+
+    private Object applyBeanPostProcessorsBeforeInitialization(BeanPostProcessorCache beanPostProcessorCache, Object existingBean, String beanName) throws BeansException {
         Object result = existingBean;
-        for (BeanPostProcessor processor : getBeanPostProcessors()) {
+        for (BeanPostProcessor processor : beanPostProcessorCache.beanPostProcessors) {
             Object current = processor.postProcessBeforeInitialization(result, beanName);
             if (null == current) return result;
             result = current;
@@ -278,10 +362,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         return result;
     }
 
-    @Override
-    public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName) throws BeansException {
+    private Object applyBeanPostProcessorsAfterInitialization(BeanPostProcessorCache beanPostProcessorCache, Object existingBean, String beanName) throws BeansException {
         Object result = existingBean;
-        for (BeanPostProcessor processor : getBeanPostProcessors()) {
+        for (BeanPostProcessor processor : beanPostProcessorCache.beanPostProcessors) {
             Object current = processor.postProcessAfterInitialization(result, beanName);
             if (null == current) return result;
             result = current;
@@ -1,8 +1,8 @@
 package cn.bugstack.springframework.beans.factory.support;
 
 import cn.bugstack.springframework.beans.BeansException;
-import cn.bugstack.springframework.core.io.DefaultResourceLoader;
 import cn.bugstack.springframework.core.io.ResourceLoader;
+import cn.bugstack.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
 /**
  * Abstract base class for bean definition readers which implement
@@ -19,7 +19,7 @@ public abstract class AbstractBeanDefinitionReader implements BeanDefinitionRead
     private ResourceLoader resourceLoader;
 
     protected AbstractBeanDefinitionReader(BeanDefinitionRegistry registry) {
-        this(registry, new DefaultResourceLoader());
+        this(registry, new PathMatchingResourcePatternResolver());
     }
 
     public AbstractBeanDefinitionReader(BeanDefinitionRegistry registry, ResourceLoader resourceLoader) {
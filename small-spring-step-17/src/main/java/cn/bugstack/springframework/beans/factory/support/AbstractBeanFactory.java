@@ -2,16 +2,28 @@ package cn.bugstack.springframework.beans.factory.support;
 
 import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.factory.BeanFactory;
+import cn.bugstack.springframework.beans.factory.BeanHandle;
+import cn.bugstack.springframework.beans.factory.BeanLease;
 import cn.bugstack.springframework.beans.factory.FactoryBean;
+import cn.bugstack.springframework.beans.factory.RefreshableFactoryBean;
 import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
 import cn.bugstack.springframework.beans.factory.config.BeanPostProcessor;
 import cn.bugstack.springframework.beans.factory.config.ConfigurableBeanFactory;
+import cn.bugstack.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import cn.bugstack.springframework.beans.factory.config.PoolMetrics;
+import cn.bugstack.springframework.beans.factory.config.Scope;
 import cn.bugstack.springframework.core.convert.ConversionService;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
 import cn.bugstack.springframework.util.ClassUtils;
 import cn.bugstack.springframework.util.StringValueResolver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
@@ -32,6 +44,16 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
      */
     private final List<BeanPostProcessor> beanPostProcessors = new ArrayList<BeanPostProcessor>();
 
+    /**
+     * Immutable snapshot of the BeanPostProcessors partitioned by kind, rebuilt on registration
+     */
+    private volatile BeanPostProcessorCache beanPostProcessorCache = new BeanPostProcessorCache(new BeanPostProcessor[0]);
+
+    /**
+     * Cache of the BeanPostProcessors that support a bean class: bean class --> filtered BeanPostProcessorCache
+     */
+    private final Map<Class<?>, BeanPostProcessorCache> applicableBeanPostProcessorCache = new ConcurrentHashMap<>(256);
+
     /**
      * String resolvers to apply e.g. to annotation attribute values
      */
@@ -39,6 +61,28 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
 
     private ConversionService conversionService;
 
+    private StartupRecorder startupRecorder = StartupRecorder.DEFAULT;
+
+    /**
+     * Dense bean ids assigned on registration: bean name --> index into the resolved singleton table
+     */
+    private final Map<String, Integer> beanIds = new ConcurrentHashMap<>(256);
+
+    /**
+     * Fully resolved singleton objects (FactoryBean objects already unwrapped), indexed by bean id
+     */
+    private volatile AtomicReferenceArray<Object> resolvedSingletons = new AtomicReferenceArray<>(64);
+
+    /**
+     * Object pools of pooled beans: bean name --> BeanPool
+     */
+    private final Map<String, BeanPool> beanPools = new ConcurrentHashMap<>(16);
+
+    /**
+     * Map from scope identifier String to corresponding Scope
+     */
+    private final Map<String, Scope> scopes = new ConcurrentHashMap<>(8);
+
     @Override
     public Object getBean(String name) throws BeansException {
         return doGetBean(name, null);
@@ -62,15 +106,51 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
     protected abstract boolean containsBeanDefinition(String beanName);
 
     protected <T> T doGetBean(final String name, final Object[] args) {
+        // 已解析的单例对象直接按 id 读取
+        Integer beanId = beanIds.get(name);
+        if (null != beanId) {
+            Object resolvedSingleton = getResolvedSingleton(beanId);
+            if (null != resolvedSingleton) {
+                return (T) resolvedSingleton;
+            }
+        }
+
         Object sharedInstance = getSingleton(name);
         if (sharedInstance != null) {
             // 如果是 FactoryBean，则需要调用 FactoryBean#getObject
-            return (T) getObjectForBeanInstance(sharedInstance, name);
+            Object bean = getObjectForBeanInstance(sharedInstance, name);
+            // 提前暴露的对象还没有创建完成，不在一级缓存中，不会放入已解析的单例表
+            cacheResolvedSingleton(name, sharedInstance, bean);
+            return (T) bean;
         }
 
         BeanDefinition beanDefinition = getBeanDefinition(name);
-        Object bean = createBean(name, beanDefinition, args);
-        return (T) getObjectForBeanInstance(bean, name);
+        if (beanDefinition.isSingleton()) {
+            // 同一个单例 Bean 只允许一个线程创建，其他线程等待创建结果
+            Object singletonInstance = getSingleton(name, () -> createBean(name, beanDefinition, args));
+            Object bean = getObjectForBeanInstance(singletonInstance, name);
+            cacheResolvedSingleton(name, singletonInstance, bean);
+            return (T) bean;
+        }
+
+        if (beanDefinition.isPooled()) {
+            // 对象池作用域返回代理，每次方法调用借出一个对象
+            return (T) getBeanPool(name, beanDefinition).getProxy();
+        }
+
+        if (beanDefinition.isPrototype()) {
+            Object bean = createBean(name, beanDefinition, args);
+            return (T) getObjectForBeanInstance(bean, name);
+        }
+
+        // 自定义作用域，由作用域决定复用已有的对象还是创建新的对象
+        String scopeName = beanDefinition.getScope();
+        Scope scope = null != scopeName ? scopes.get(scopeName) : null;
+        if (null == scope) {
+            throw new BeansException("No Scope registered for scope name '" + scopeName + "' of bean '" + name + "'");
+        }
+        Object scopedInstance = scope.get(name, () -> createBean(name, beanDefinition, args));
+        return (T) getObjectForBeanInstance(scopedInstance, name);
     }
 
     private Object getObjectForBeanInstance(Object beanInstance, String beanName) {
@@ -88,14 +168,223 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
         return object;
     }
 
+    @Override
+    public <T> BeanHandle<T> getBeanHandle(String name, Class<T> requiredType) throws BeansException {
+        boolean singleton;
+        if (containsBeanDefinition(name)) {
+            singleton = getBeanDefinition(name).isSingleton();
+        } else if (null != getSingleton(name)) {
+            singleton = true;
+        } else {
+            throw new BeansException("No bean named '" + name + "' is defined");
+        }
+        BeanHandle<T> beanHandle = new DefaultBeanHandle<>(getBeanId(name), name, requiredType);
+        // 单例 Bean 在获取句柄时解析一次，同时校验类型
+        if (singleton) {
+            beanHandle.get();
+        }
+        return beanHandle;
+    }
+
+    @Override
+    public <T> BeanLease<T> borrowBean(String name, Class<T> requiredType) throws BeansException {
+        BeanDefinition beanDefinition = getBeanDefinition(name);
+        if (!beanDefinition.isPooled()) {
+            throw new BeansException("Bean named '" + name + "' is not in scope '" + SCOPE_POOLED + "'");
+        }
+        BeanLease<Object> lease = getBeanPool(name, beanDefinition).lease();
+        Object bean = lease.get();
+        if (!requiredType.isInstance(bean)) {
+            lease.close();
+            throw new BeansException("Bean named '" + name + "' is expected to be of type [" + requiredType.getName() + "] but was actually of type [" + bean.getClass().getName() + "]");
+        }
+        return (BeanLease<T>) (BeanLease<?>) lease;
+    }
+
+    @Override
+    public PoolMetrics getPoolMetrics(String beanName) {
+        BeanPool beanPool = beanPools.get(beanName);
+        return null != beanPool ? beanPool.getMetrics() : null;
+    }
+
+    /**
+     * 获取 pooled Bean 的对象池，第一次获取时创建并预先填充 minIdle 个对象
+     */
+    private BeanPool getBeanPool(String beanName, BeanDefinition beanDefinition) {
+        BeanPool beanPool = beanPools.get(beanName);
+        if (null == beanPool) {
+            BeanPool newPool = new BeanPool(beanName, beanDefinition.getBeanClass(), beanDefinition.getPoolConfig(),
+                    () -> createBean(beanName, beanDefinition, null),
+                    object -> destroyPooledObject(beanName, object, beanDefinition));
+            beanPool = beanPools.putIfAbsent(beanName, newPool);
+            if (null == beanPool) {
+                beanPool = newPool;
+            }
+        }
+        // 在 Map 外部填充，创建对象时可能需要其他对象池
+        beanPool.initialize();
+        return beanPool;
+    }
+
+    private void closeBeanPool(String beanName) {
+        BeanPool beanPool = beanPools.remove(beanName);
+        if (null != beanPool) {
+            beanPool.close();
+        }
+    }
+
+    /**
+     * 获取 Bean 名称对应的稠密 id，不存在时分配新的 id
+     */
+    protected int getBeanId(String beanName) {
+        Integer beanId = beanIds.get(beanName);
+        if (null != beanId) {
+            return beanId;
+        }
+        synchronized (this.beanIds) {
+            beanId = beanIds.get(beanName);
+            if (null == beanId) {
+                beanId = beanIds.size();
+                AtomicReferenceArray<Object> table = this.resolvedSingletons;
+                if (beanId >= table.length()) {
+                    AtomicReferenceArray<Object> newTable = new AtomicReferenceArray<>(table.length() * 2);
+                    for (int i = 0; i < table.length(); i++) {
+                        newTable.set(i, table.get(i));
+                    }
+                    this.resolvedSingletons = newTable;
+                }
+                beanIds.put(beanName, beanId);
+            }
+            return beanId;
+        }
+    }
+
+    private Object getResolvedSingleton(int beanId) {
+        AtomicReferenceArray<Object> table = this.resolvedSingletons;
+        return beanId < table.length() ? table.get(beanId) : null;
+    }
+
+    /**
+     * 单例对象创建完成后放入已解析的单例表；非单例的 FactoryBean 每次都需要重新 getObject，
+     * RefreshableFactoryBean 的对象会被后台替换，都不做缓存
+     * <p>
+     * 读取到对象之后它可能已经被销毁或替换（增量刷新），所以与 {@link #clearResolvedSingleton(String)} 使用同一把锁，
+     * 只有一级缓存仍然注册着同一个对象时才写入，否则旧对象会被写回并一直由无锁路径返回
+     */
+    private void cacheResolvedSingleton(String beanName, Object beanInstance, Object bean) {
+        if (null == bean || (beanInstance instanceof FactoryBean && !((FactoryBean<?>) beanInstance).isSingleton())
+                || beanInstance instanceof RefreshableFactoryBean) {
+            return;
+        }
+        int beanId = getBeanId(beanName);
+        synchronized (this.beanIds) {
+            if (isCurrentSingleton(beanName, beanInstance)) {
+                this.resolvedSingletons.set(beanId, bean);
+            }
+        }
+    }
+
+    /**
+     * 清除已解析的单例对象，Bean 被重新注册或销毁时调用
+     */
+    protected void clearResolvedSingleton(String beanName) {
+        Integer beanId = beanIds.get(beanName);
+        if (null != beanId) {
+            synchronized (this.beanIds) {
+                this.resolvedSingletons.set(beanId, null);
+            }
+        }
+    }
+
+    @Override
+    public void registerSingleton(String beanName, Object singletonObject) {
+        super.registerSingleton(beanName, singletonObject);
+        clearResolvedSingleton(beanName);
+    }
+
+    @Override
+    public void destroySingleton(String beanName) {
+        super.destroySingleton(beanName);
+        clearResolvedSingleton(beanName);
+        closeBeanPool(beanName);
+    }
+
+    @Override
+    public void destroySingletons() {
+        synchronized (this.beanIds) {
+            this.resolvedSingletons = new AtomicReferenceArray<>(this.resolvedSingletons.length());
+        }
+        // 借出的对象此时多半已经不再使用，先关闭对象池，再按依赖顺序销毁单例
+        BeansException poolFailure = null;
+        for (String beanName : new ArrayList<>(beanPools.keySet())) {
+            try {
+                closeBeanPool(beanName);
+            } catch (BeansException e) {
+                if (null == poolFailure) {
+                    poolFailure = e;
+                } else {
+                    poolFailure.addSuppressed(e);
+                }
+            }
+        }
+        try {
+            super.destroySingletons();
+        } finally {
+            // 销毁期间并发的 getBean 可能又把对象写入了已解析的单例表，销毁完成后再清空一次
+            synchronized (this.beanIds) {
+                this.resolvedSingletons = new AtomicReferenceArray<>(this.resolvedSingletons.length());
+            }
+        }
+        if (null != poolFailure) {
+            throw poolFailure;
+        }
+    }
+
     protected abstract BeanDefinition getBeanDefinition(String beanName) throws BeansException;
 
     protected abstract Object createBean(String beanName, BeanDefinition beanDefinition, Object[] args) throws BeansException;
 
+    /**
+     * 销毁对象池中被回收的对象，执行 Bean 的销毁方法
+     */
+    protected abstract void destroyPooledObject(String beanName, Object bean, BeanDefinition beanDefinition) throws BeansException;
+
     @Override
     public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
-        this.beanPostProcessors.remove(beanPostProcessor);
-        this.beanPostProcessors.add(beanPostProcessor);
+        synchronized (this.beanPostProcessors) {
+            this.beanPostProcessors.remove(beanPostProcessor);
+            this.beanPostProcessors.add(beanPostProcessor);
+            this.beanPostProcessorCache = new BeanPostProcessorCache(this.beanPostProcessors.toArray(new BeanPostProcessor[0]));
+            this.applicableBeanPostProcessorCache.clear();
+        }
+    }
+
+    /**
+     * 清空按 Class 过滤的 BeanPostProcessor 缓存，处理器判断条件依赖的配置变化时调用
+     */
+    protected void clearApplicableBeanPostProcessorCache() {
+        this.applicableBeanPostProcessorCache.clear();
+    }
+
+    @Override
+    public void registerScope(String scopeName, Scope scope) {
+        if (null == scopeName || null == scope) {
+            throw new IllegalArgumentException("Scope identifier and Scope must not be null");
+        }
+        if (SCOPE_SINGLETON.equals(scopeName) || SCOPE_PROTOTYPE.equals(scopeName) || SCOPE_POOLED.equals(scopeName)) {
+            throw new IllegalArgumentException("Cannot replace existing scope '" + scopeName + "'");
+        }
+        this.scopes.put(scopeName, scope);
+    }
+
+    @Override
+    public String[] getRegisteredScopeNames() {
+        return this.scopes.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public Scope getRegisteredScope(String scopeName) {
+        return null != scopeName ? this.scopes.get(scopeName) : null;
     }
 
     @Override
@@ -103,6 +392,14 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
         this.embeddedValueResolvers.add(valueResolver);
     }
 
+    /**
+     * 用另一个 BeanFactory 的字符串解析器替换当前的解析器，增量刷新时属性文件可能已经变化
+     */
+    public void copyEmbeddedValueResolversFrom(AbstractBeanFactory otherFactory) {
+        this.embeddedValueResolvers.clear();
+        this.embeddedValueResolvers.addAll(otherFactory.embeddedValueResolvers);
+    }
+
     @Override
     public String resolveEmbeddedValue(String value) {
         String result = value;
@@ -122,16 +419,121 @@ public abstract class AbstractBeanFactory extends FactoryBeanRegistrySupport imp
         return conversionService;
     }
 
+    @Override
+    public void setStartupRecorder(StartupRecorder startupRecorder) {
+        if (null == startupRecorder) {
+            throw new IllegalArgumentException("StartupRecorder must not be null");
+        }
+        this.startupRecorder = startupRecorder;
+    }
+
+    @Override
+    public StartupRecorder getStartupRecorder() {
+        return startupRecorder;
+    }
+
     /**
      * Return the list of BeanPostProcessors that will get applied
      * to beans created with this factory.
      */
     public List<BeanPostProcessor> getBeanPostProcessors() {
-        return this.beanPostProcessors;
+        return Collections.unmodifiableList(Arrays.asList(this.beanPostProcessorCache.beanPostProcessors));
+    }
+
+    /**
+     * 获取对该 Class 生效的 BeanPostProcessor，按 {@link BeanPostProcessor#supports(Class)} 过滤后按 Class 缓存
+     */
+    protected BeanPostProcessorCache getBeanPostProcessorCache(Class<?> beanClass) {
+        BeanPostProcessorCache allProcessors = this.beanPostProcessorCache;
+        if (null == beanClass) {
+            return allProcessors;
+        }
+        BeanPostProcessorCache applicable = this.applicableBeanPostProcessorCache.get(beanClass);
+        if (null == applicable) {
+            // supports 中可能会创建其他 Bean，这里不能使用 computeIfAbsent
+            List<BeanPostProcessor> supported = new ArrayList<>(allProcessors.beanPostProcessors.length);
+            for (BeanPostProcessor beanPostProcessor : allProcessors.beanPostProcessors) {
+                if (beanPostProcessor.supports(beanClass)) supported.add(beanPostProcessor);
+            }
+            applicable = supported.size() == allProcessors.beanPostProcessors.length ? allProcessors
+                    : new BeanPostProcessorCache(supported.toArray(new BeanPostProcessor[0]));
+            // 计算期间注册了新的处理器时不写入缓存
+            if (allProcessors == this.beanPostProcessorCache) {
+                this.applicableBeanPostProcessorCache.put(beanClass, applicable);
+            }
+        }
+        return applicable;
     }
 
     public ClassLoader getBeanClassLoader() {
         return this.beanClassLoader;
     }
 
+    /**
+     * 默认的 Bean 句柄：单例对象直接读取已解析的单例表，未命中时走 getBean
+     */
+    private final class DefaultBeanHandle<T> implements BeanHandle<T> {
+
+        private final int beanId;
+
+        private final String beanName;
+
+        private final Class<T> requiredType;
+
+        DefaultBeanHandle(int beanId, String beanName, Class<T> requiredType) {
+            this.beanId = beanId;
+            this.beanName = beanName;
+            this.requiredType = requiredType;
+        }
+
+        @Override
+        public String getBeanName() {
+            return beanName;
+        }
+
+        @Override
+        public Class<T> getRequiredType() {
+            return requiredType;
+        }
+
+        @Override
+        public T get() throws BeansException {
+            Object bean = getResolvedSingleton(beanId);
+            if (null == bean) {
+                bean = getBean(beanName);
+            }
+            if (!requiredType.isInstance(bean)) {
+                throw new BeansException("Bean named '" + beanName + "' is expected to be of type [" + requiredType.getName() + "] but was actually of type [" + (null != bean ? bean.getClass().getName() : null) + "]");
+            }
+            return (T) bean;
+        }
+
+    }
+
+    /**
+     * 按类型预先分组的 BeanPostProcessor 数组，创建 Bean 时无需再做 instanceof 判断
+     */
+    protected static final class BeanPostProcessorCache {
+
+        final BeanPostProcessor[] beanPostProcessors;
+
+        final InstantiationAwareBeanPostProcessor[] instantiationAware;
+
+        BeanPostProcessorCache(BeanPostProcessor[] beanPostProcessors) {
+            this.beanPostProcessors = beanPostProcessors;
+            List<InstantiationAwareBeanPostProcessor> instantiationAware = new ArrayList<>();
+            for (BeanPostProcessor beanPostProcessor : beanPostProcessors) {
+                if (beanPostProcessor instanceof InstantiationAwareBeanPostProcessor) {
+                    instantiationAware.add((InstantiationAwareBeanPostProcessor) beanPostProcessor);
+                }
+            }
+            this.instantiationAware = instantiationAware.toArray(new InstantiationAwareBeanPostProcessor[0]);
+        }
+
+        boolean isEmpty() {
+            return this.beanPostProcessors.length == 0;
+        }
+
+    }
+
 }
@@ -0,0 +1,188 @@
+package cn.bugstack.springframework.beans.factory.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+import cn.hutool.core.util.StrUtil;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creation plan of a bean definition, resolved on first use and reused for every
+ * following instance: the constructors bound as {@link MethodHandle}s, plus the
+ * init and destroy method invokers.
+ * <p>
+ * Bean 创建计划，避免每次创建原型 Bean 时重复查找构造函数、初始化和销毁方法
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public final class BeanCreationPlan {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private static final MethodType METHOD_TYPE = MethodType.methodType(void.class, Object.class);
+
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final BeanDefinition beanDefinition;
+
+    private final Class<?> beanClass;
+
+    private final Constructor<?>[] declaredConstructors;
+
+    /**
+     * 按实参类型缓存匹配到的构造函数
+     */
+    private final Map<List<Class<?>>, Constructor<?>> resolvedConstructors = new ConcurrentHashMap<>();
+
+    private final Map<Constructor<?>, MethodHandle> constructorHandles = new ConcurrentHashMap<>();
+
+    private volatile MethodHandle defaultConstructorHandle;
+
+    private volatile MethodHandle initMethodHandle;
+
+    private volatile MethodHandle destroyMethodHandle;
+
+    public BeanCreationPlan(BeanDefinition beanDefinition) {
+        this.beanDefinition = beanDefinition;
+        this.beanClass = beanDefinition.getBeanClass();
+        this.declaredConstructors = beanClass.getDeclaredConstructors();
+    }
+
+    /**
+     * 计划是否仍然对应这个 BeanDefinition
+     */
+    public boolean isValidFor(BeanDefinition beanDefinition) {
+        return this.beanDefinition == beanDefinition && this.beanClass == beanDefinition.getBeanClass();
+    }
+
+    /**
+     * 按照参数个数和参数类型匹配构造函数，没有参数时返回 null 表示使用无参构造函数
+     */
+    public Constructor<?> resolveConstructor(Object[] args) {
+        if (null == args) return null;
+        Class<?>[] argTypes = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            argTypes[i] = null != args[i] ? args[i].getClass() : null;
+        }
+        List<Class<?>> key = Arrays.asList(argTypes);
+        Constructor<?> constructor = resolvedConstructors.get(key);
+        if (null == constructor) {
+            for (Constructor<?> candidate : declaredConstructors) {
+                if (isAssignable(candidate.getParameterTypes(), argTypes)) {
+                    constructor = candidate;
+                    resolvedConstructors.put(key, constructor);
+                    break;
+                }
+            }
+        }
+        return constructor;
+    }
+
+    /**
+     * 通过绑定好的 MethodHandle 实例化 Bean 对象
+     */
+    public Object instantiate(Constructor<?> constructor, Object[] args) throws BeansException {
+        try {
+            MethodHandle handle;
+            if (null == constructor) {
+                handle = this.defaultConstructorHandle;
+                if (null == handle) {
+                    handle = bindConstructor(beanClass.getDeclaredConstructor());
+                    this.defaultConstructorHandle = handle;
+                }
+                args = EMPTY_ARGS;
+            } else {
+                handle = constructorHandles.get(constructor);
+                if (null == handle) {
+                    handle = bindConstructor(constructor);
+                    constructorHandles.put(constructor, handle);
+                }
+            }
+            return (Object) handle.invokeExact(args);
+        } catch (BeansException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new BeansException("Failed to instantiate [" + beanClass.getName() + "]", e);
+        }
+    }
+
+    /**
+     * 执行 init-method 配置的初始化方法
+     */
+    public void invokeInitMethod(Object bean, String beanName) throws Throwable {
+        MethodHandle handle = this.initMethodHandle;
+        if (null == handle) {
+            String initMethodName = beanDefinition.getInitMethodName();
+            if (StrUtil.isEmpty(initMethodName)) return;
+            Method initMethod;
+            try {
+                initMethod = beanClass.getMethod(initMethodName);
+            } catch (NoSuchMethodException e) {
+                throw new BeansException("Could not find an init method named '" + initMethodName + "' on bean with name '" + beanName + "'");
+            }
+            handle = LOOKUP.unreflect(initMethod).asType(METHOD_TYPE);
+            this.initMethodHandle = handle;
+        }
+        handle.invokeExact(bean);
+    }
+
+    /**
+     * 销毁方法绑定在 Bean 的 Class 上，代理对象等其他类型的实例需要回退到反射调用
+     */
+    public boolean canInvokeDestroyMethod(Object bean) {
+        return beanClass.isInstance(bean);
+    }
+
+    public void invokeDestroyMethod(Object bean, String beanName) throws Throwable {
+        MethodHandle handle = this.destroyMethodHandle;
+        if (null == handle) {
+            String destroyMethodName = beanDefinition.getDestroyMethodName();
+            Method destroyMethod;
+            try {
+                destroyMethod = beanClass.getMethod(destroyMethodName);
+            } catch (NoSuchMethodException e) {
+                throw new BeansException("Couldn't find a destroy method named '" + destroyMethodName + "' on bean with name '" + beanName + "'");
+            }
+            handle = LOOKUP.unreflect(destroyMethod).asType(METHOD_TYPE);
+            this.destroyMethodHandle = handle;
+        }
+        handle.invokeExact(bean);
+    }
+
+    private static MethodHandle bindConstructor(Constructor<?> constructor) throws IllegalAccessException {
+        constructor.setAccessible(true);
+        return LOOKUP.unreflectConstructor(constructor)
+                .asSpreader(Object[].class, constructor.getParameterCount())
+                .asType(CONSTRUCTOR_TYPE);
+    }
+
+    private static boolean isAssignable(Class<?>[] parameterTypes, Class<?>[] argTypes) {
+        if (parameterTypes.length != argTypes.length) return false;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            Class<?> argType = argTypes[i];
+            if (null == argType) {
+                if (parameterType.isPrimitive()) return false;
+                continue;
+            }
+            if (parameterType.isPrimitive()) {
+                parameterType = MethodType.methodType(parameterType).wrap().returnType();
+            }
+            if (!parameterType.isAssignableFrom(argType)) return false;
+        }
+        return true;
+    }
+
+}
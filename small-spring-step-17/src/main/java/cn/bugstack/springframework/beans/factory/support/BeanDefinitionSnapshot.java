@@ -0,0 +1,214 @@
+package cn.bugstack.springframework.beans.factory.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.PropertyValue;
+import cn.bugstack.springframework.beans.PropertyValues;
+import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+import cn.bugstack.springframework.beans.factory.config.BeanReference;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact binary snapshot of a bean definition registry, taken right after the
+ * configuration has been loaded and before any BeanFactoryPostProcessor runs.
+ * Restoring a snapshot skips XML parsing and classpath scanning; the recorded
+ * resource checksums decide whether the snapshot is still valid.
+ * <p>
+ * BeanDefinition 注册表快照：Bean 名称、Class、作用域、初始化和销毁方法、懒加载以及 String 和 BeanReference 类型的属性值。
+ * 占位符保持未解析的状态，仍然由 BeanFactoryPostProcessor 在每次启动时处理
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class BeanDefinitionSnapshot {
+
+    private static final int MAGIC = 0x53534e50;
+
+    private static final short VERSION = 1;
+
+    private static final byte VALUE_NULL = 0;
+
+    private static final byte VALUE_STRING = 1;
+
+    private static final byte VALUE_BEAN_REFERENCE = 2;
+
+    /**
+     * 配置资源 --> 校验和
+     */
+    private final Map<String, Long> resourceChecksums;
+
+    private final Map<String, BeanDefinition> beanDefinitions;
+
+    private BeanDefinitionSnapshot(Map<String, Long> resourceChecksums, Map<String, BeanDefinition> beanDefinitions) {
+        this.resourceChecksums = resourceChecksums;
+        this.beanDefinitions = beanDefinitions;
+    }
+
+    /**
+     * 快照是否支持该注册表：属性值只能是 String、BeanReference 或 null，也不记录对象池配置
+     */
+    public static boolean isSupported(BeanDefinitionRegistry registry) {
+        for (String beanName : registry.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = registry.getBeanDefinition(beanName);
+            if (null != beanDefinition.getPoolConfig()) return false;
+            if (!beanDefinition.hasPropertyValues()) continue;
+            PropertyValues propertyValues = beanDefinition.getPropertyValues();
+            for (int i = 0; i < propertyValues.size(); i++) {
+                Object value = propertyValues.getValue(i);
+                if (null != value && !(value instanceof String) && !(value instanceof BeanReference)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public static void write(BeanDefinitionRegistry registry, Map<String, Long> resourceChecksums, DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        out.writeInt(resourceChecksums.size());
+        for (Map.Entry<String, Long> entry : resourceChecksums.entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+
+        String[] beanNames = registry.getBeanDefinitionNames();
+        out.writeInt(beanNames.length);
+        for (String beanName : beanNames) {
+            BeanDefinition beanDefinition = registry.getBeanDefinition(beanName);
+            writeString(out, beanName);
+            writeString(out, beanDefinition.getBeanClass().getName());
+            writeString(out, beanDefinition.getScope());
+            writeString(out, beanDefinition.getInitMethodName());
+            writeString(out, beanDefinition.getDestroyMethodName());
+            out.writeBoolean(beanDefinition.isLazyInit());
+
+            PropertyValues propertyValues = beanDefinition.hasPropertyValues() ? beanDefinition.getPropertyValues() : PropertyValues.EMPTY;
+            out.writeInt(propertyValues.size());
+            for (int i = 0; i < propertyValues.size(); i++) {
+                writeString(out, propertyValues.getName(i));
+                Object value = propertyValues.getValue(i);
+                if (null == value) {
+                    out.writeByte(VALUE_NULL);
+                } else if (value instanceof String) {
+                    out.writeByte(VALUE_STRING);
+                    writeString(out, (String) value);
+                } else if (value instanceof BeanReference) {
+                    out.writeByte(VALUE_BEAN_REFERENCE);
+                    writeString(out, ((BeanReference) value).getBeanName());
+                } else {
+                    throw new BeansException("Unsupported property value type [" + value.getClass().getName() + "] of bean[" + beanName + "] in snapshot");
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取快照，格式不正确或 Class 已不存在时抛出异常，调用方回退到正常加载
+     */
+    public static BeanDefinitionSnapshot read(DataInputStream in, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            throw new IOException("Not a bean definition snapshot or unsupported snapshot version");
+        }
+
+        int resourceCount = in.readInt();
+        Map<String, Long> resourceChecksums = new LinkedHashMap<>(resourceCount * 2);
+        for (int i = 0; i < resourceCount; i++) {
+            resourceChecksums.put(readString(in), in.readLong());
+        }
+
+        int beanCount = in.readInt();
+        Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<>(beanCount * 2);
+        for (int i = 0; i < beanCount; i++) {
+            String beanName = readString(in);
+            BeanDefinition beanDefinition = new BeanDefinition(Class.forName(readString(in), false, classLoader));
+            String scope = readString(in);
+            if (null != scope) beanDefinition.setScope(scope);
+            beanDefinition.setInitMethodName(readString(in));
+            beanDefinition.setDestroyMethodName(readString(in));
+            beanDefinition.setLazyInit(in.readBoolean());
+
+            int propertyCount = in.readInt();
+            for (int j = 0; j < propertyCount; j++) {
+                String name = readString(in);
+                byte kind = in.readByte();
+                Object value;
+                switch (kind) {
+                    case VALUE_NULL:
+                        value = null;
+                        break;
+                    case VALUE_STRING:
+                        value = readString(in);
+                        break;
+                    case VALUE_BEAN_REFERENCE:
+                        value = new BeanReference(readString(in));
+                        break;
+                    default:
+                        throw new IOException("Corrupt snapshot: unknown property value kind " + kind);
+                }
+                beanDefinition.getPropertyValues().addPropertyValue(new PropertyValue(name, value));
+            }
+            beanDefinitions.put(beanName, beanDefinition);
+        }
+        return new BeanDefinitionSnapshot(resourceChecksums, beanDefinitions);
+    }
+
+    /**
+     * 快照记录的资源校验和与当前资源是否完全一致
+     */
+    public boolean matches(Map<String, Long> currentChecksums) {
+        return resourceChecksums.equals(currentChecksums);
+    }
+
+    /**
+     * 快照记录了校验和的资源位置，即校验和 key 中 "|" 之前的部分
+     */
+    public Set<String> getResourceLocations() {
+        Set<String> locations = new LinkedHashSet<>();
+        for (String key : resourceChecksums.keySet()) {
+            int separator = key.indexOf('|');
+            locations.add(separator < 0 ? key : key.substring(0, separator));
+        }
+        return locations;
+    }
+
+    public void registerBeanDefinitions(BeanDefinitionRegistry registry) {
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitions.entrySet()) {
+            registry.registerBeanDefinition(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public List<String> getBeanNames() {
+        return new ArrayList<>(beanDefinitions.keySet());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (null == value) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,475 @@
+package cn.bugstack.springframework.beans.factory.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.BeanLease;
+import cn.bugstack.springframework.beans.factory.ObjectFactory;
+import cn.bugstack.springframework.beans.factory.PooledBean;
+import cn.bugstack.springframework.beans.factory.config.PoolConfig;
+import cn.bugstack.springframework.beans.factory.config.PoolMetrics;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * pooled 作用域 Bean 的对象池，每个 BeanDefinition 一个
+ * <p>
+ * 空闲对象放在无锁的双端队列中，按后进先出借用，最近归还的对象最可能还在 CPU 缓存里；
+ * 队尾是空闲最久的对象，回收时从队尾开始。借出对象数通过 CAS 计数限制，借用和归还在未耗尽时不加锁；
+ * 只有对象池耗尽时借用方才在锁的条件队列上等待，归还时有等待者才加锁唤醒。等待不保证公平，新来的借用方可能先于等待者拿到对象。
+ * <p>
+ * 空闲回收不需要后台线程，借用和归还时按间隔顺便检查；回收和关闭对象池时按 Bean 的销毁方法销毁对象。
+ * 回收、reset 失败销毁对象后，空闲对象不足 minIdle 时顺便补充
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class BeanPool {
+
+    /**
+     * 两次空闲回收检查的最大间隔
+     */
+    private static final long EVICTION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String beanName;
+
+    private final Class<?> beanClass;
+
+    private final int maxSize;
+
+    private final int minIdle;
+
+    private final long maxIdleNanos;
+
+    private final long maxWaitMillis;
+
+    private final long evictionIntervalNanos;
+
+    private final ObjectFactory<Object> objectFactory;
+
+    private final Consumer<Object> destroyer;
+
+    private final ConcurrentLinkedDeque<IdleObject> idleObjects = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * 已借出（包括正在创建）的对象数，不超过 maxSize
+     */
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /**
+     * 对象池耗尽时等待的借用方，只在慢路径上使用
+     */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition objectReturned = waitLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
+    private final AtomicBoolean filling = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder destroyed = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private volatile Object proxy;
+
+    private volatile boolean closed;
+
+    public BeanPool(String beanName, Class<?> beanClass, PoolConfig poolConfig, ObjectFactory<Object> objectFactory, Consumer<Object> destroyer) {
+        PoolConfig config = null != poolConfig ? poolConfig : new PoolConfig();
+        this.beanName = beanName;
+        this.beanClass = beanClass;
+        this.maxSize = config.getMaxSize();
+        this.minIdle = Math.min(config.getMinIdle(), config.getMaxSize());
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxIdleMillis());
+        this.maxWaitMillis = config.getMaxWaitMillis();
+        this.evictionIntervalNanos = maxIdleNanos > 0 ? Math.min(maxIdleNanos, EVICTION_INTERVAL_NANOS) : 0;
+        this.objectFactory = objectFactory;
+        this.destroyer = destroyer;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    /**
+     * 预先填充 minIdle 个空闲对象，填充成功后不再执行；填充失败时异常抛给调用方，下一次获取对象池时重试
+     */
+    public void initialize() throws BeansException {
+        if (initialized.get()) return;
+        if (fillIdleObjects()) {
+            initialized.set(true);
+        }
+    }
+
+    /**
+     * 补充空闲对象到 minIdle 个，空闲和借出的对象总数不超过 maxSize。同一时间只有一个线程补充，
+     * 其他线程直接返回 false
+     */
+    private boolean fillIdleObjects() throws BeansException {
+        if (!filling.compareAndSet(false, true)) return false;
+        try {
+            while (!closed && idleCount.get() < minIdle && idleCount.get() + activeCount.get() < maxSize) {
+                Object object = objectFactory.getObject();
+                created.increment();
+                idleObjects.offerLast(new IdleObject(object, System.nanoTime()));
+                idleCount.incrementAndGet();
+            }
+        } finally {
+            filling.set(false);
+        }
+        // 补充期间对象池被关闭时，关闭方可能已经清空了队列
+        if (closed) {
+            drainIdleObjects();
+        }
+        return true;
+    }
+
+    private void fillIdleObjectsQuietly() {
+        if (closed || idleCount.get() >= minIdle) return;
+        try {
+            fillIdleObjects();
+        } catch (RuntimeException e) {
+            // 补充发生在借用方线程上，创建失败不影响借用和归还，下一次回收或销毁后再补充
+        }
+    }
+
+    /**
+     * 借出一个对象，用完后必须调用 {@link #release(Object)} 归还
+     */
+    public Object borrow() throws BeansException {
+        if (closed) {
+            throw new BeansException("Pool of bean '" + beanName + "' has been closed");
+        }
+        // 借用前先回收空闲过久的对象，优先借出最近归还的对象
+        evictIfDue();
+        if (!tryReserve()) {
+            long start = System.nanoTime();
+            try {
+                awaitReserve();
+            } finally {
+                // 超时的借用也计入等待时间
+                recordWait(System.nanoTime() - start);
+            }
+        }
+        try {
+            IdleObject idle = idleObjects.pollFirst();
+            Object object;
+            if (null != idle) {
+                idleCount.decrementAndGet();
+                hits.increment();
+                object = idle.object;
+            } else {
+                misses.increment();
+                object = objectFactory.getObject();
+                created.increment();
+            }
+            return object;
+        } catch (RuntimeException e) {
+            unreserve();
+            throw e;
+        }
+    }
+
+    /**
+     * 快路径：借出数未达上限时 CAS 占用一个名额
+     */
+    private boolean tryReserve() {
+        int active;
+        while ((active = activeCount.get()) < maxSize) {
+            if (activeCount.compareAndSet(active, active + 1)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 慢路径：先登记为等待者再重试，归还方减少借出数后检查等待者，两边至少有一方能看到对方，不会丢失唤醒
+     */
+    private void awaitReserve() {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        waitLock.lock();
+        waiters.incrementAndGet();
+        try {
+            while (!tryReserve()) {
+                if (closed) {
+                    throw new BeansException("Pool of bean '" + beanName + "' has been closed");
+                }
+                if (maxWaitMillis <= 0) {
+                    objectReturned.await();
+                } else if (remainingNanos <= 0) {
+                    timeouts.increment();
+                    throw new BeansException("Timeout waiting " + maxWaitMillis + "ms for pooled bean '" + beanName + "', all " + maxSize + " objects are in use");
+                } else {
+                    remainingNanos = objectReturned.awaitNanos(remainingNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeansException("Interrupted while waiting for pooled bean '" + beanName + "'", e);
+        } finally {
+            waiters.decrementAndGet();
+            waitLock.unlock();
+        }
+    }
+
+    private void unreserve() {
+        activeCount.decrementAndGet();
+        signalWaiter();
+    }
+
+    private void signalWaiter() {
+        if (0 == waiters.get()) return;
+        waitLock.lock();
+        try {
+            objectReturned.signal();
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            // 其他线程更新了最大值，重新比较
+        }
+    }
+
+    /**
+     * 归还对象：调用 {@link PooledBean#reset()} 后放回队头；reset 失败或对象池已关闭时销毁该对象
+     */
+    public void release(Object object) {
+        boolean discarded = false;
+        try {
+            if (closed || !reset(object)) {
+                discarded = true;
+                destroy(object);
+                return;
+            }
+            idleObjects.offerFirst(new IdleObject(object, System.nanoTime()));
+            idleCount.incrementAndGet();
+            // 归还期间对象池被关闭时，关闭方可能已经清空了队列
+            if (closed) {
+                drainIdleObjects();
+            }
+        } finally {
+            // 对象放回队列后再释放名额，被唤醒的借用方可以直接拿到它
+            unreserve();
+            if (discarded) {
+                fillIdleObjectsQuietly();
+            }
+            evictIfDue();
+        }
+    }
+
+    private boolean reset(Object object) {
+        if (!(object instanceof PooledBean)) return true;
+        try {
+            ((PooledBean) object).reset();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 借出一个对象并包装为租约，close 时归还
+     */
+    public BeanLease<Object> lease() throws BeansException {
+        return new PooledBeanLease(borrow());
+    }
+
+    /**
+     * 对象池代理：每次方法调用借出一个对象，调用结束后立即归还。
+     * 代理本身没有状态，可以作为普通单例注入；需要在多次调用之间保持同一个对象时使用 {@link #lease()}。
+     * 类代理需要 Bean 有无参构造函数，创建代理时会执行一次该构造函数
+     */
+    public Object getProxy() throws BeansException {
+        Object proxy = this.proxy;
+        if (null == proxy) {
+            synchronized (this) {
+                proxy = this.proxy;
+                if (null == proxy) {
+                    proxy = createProxy();
+                    this.proxy = proxy;
+                }
+            }
+        }
+        return proxy;
+    }
+
+    private Object createProxy() {
+        Enhancer enhancer = new Enhancer();
+        enhancer.setSuperclass(beanClass);
+        enhancer.setCallback((MethodInterceptor) (obj, method, args, methodProxy) -> {
+            Object target = borrow();
+            try {
+                Object result = methodProxy.invoke(target, args);
+                // 返回 this 的方法（例如链式调用）不能把池中的对象泄露出去
+                return result == target ? obj : result;
+            } finally {
+                release(target);
+            }
+        });
+        try {
+            return enhancer.create();
+        } catch (RuntimeException e) {
+            throw new BeansException("Could not create pool proxy for bean '" + beanName + "' of type [" + beanClass.getName() + "]", e);
+        }
+    }
+
+    private void evictIfDue() {
+        if (0 == evictionIntervalNanos) return;
+        long now = System.nanoTime();
+        long last = lastEviction.get();
+        if (now - last >= evictionIntervalNanos && lastEviction.compareAndSet(last, now)) {
+            evict();
+            fillIdleObjectsQuietly();
+        }
+    }
+
+    /**
+     * 销毁空闲超过 maxIdle 的对象，至少保留 minIdle 个
+     */
+    public void evict() {
+        if (0 == maxIdleNanos) return;
+        long deadline = System.nanoTime() - maxIdleNanos;
+        while (idleCount.get() > minIdle) {
+            IdleObject eldest = idleObjects.peekLast();
+            if (null == eldest || eldest.returnedAt - deadline > 0) break;
+            // 与借用方竞争同一个对象，删除成功才销毁
+            if (idleObjects.removeLastOccurrence(eldest)) {
+                idleCount.decrementAndGet();
+                destroyQuietly(eldest.object);
+            }
+        }
+    }
+
+    private void destroyQuietly(Object object) {
+        try {
+            destroy(object);
+        } catch (RuntimeException e) {
+            // 回收发生在借用方线程上，销毁失败不影响借用
+        }
+    }
+
+    private void destroy(Object object) {
+        destroyed.increment();
+        destroyer.accept(object);
+    }
+
+    /**
+     * 关闭对象池，销毁空闲对象；借出的对象归还时销毁
+     */
+    public void close() throws BeansException {
+        closed = true;
+        // 唤醒等待的借用方，让它们发现对象池已关闭
+        waitLock.lock();
+        try {
+            objectReturned.signalAll();
+        } finally {
+            waitLock.unlock();
+        }
+        drainIdleObjects();
+    }
+
+    private void drainIdleObjects() {
+        BeansException failure = null;
+        IdleObject idle;
+        while (null != (idle = idleObjects.pollFirst())) {
+            idleCount.decrementAndGet();
+            try {
+                destroy(idle.object);
+            } catch (RuntimeException e) {
+                if (null == failure) {
+                    failure = new BeansException("Could not destroy pooled objects of bean '" + beanName + "'", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(beanName, maxSize, activeCount.get(), idleCount.get(), hits.sum(), misses.sum(), created.sum(),
+                destroyed.sum(), timeouts.sum(), totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    private static final class IdleObject {
+
+        final Object object;
+
+        final long returnedAt;
+
+        IdleObject(Object object, long returnedAt) {
+            this.object = object;
+            this.returnedAt = returnedAt;
+        }
+
+    }
+
+    private final class PooledBeanLease implements BeanLease<Object> {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final Object object;
+
+        PooledBeanLease(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public String getBeanName() {
+            return beanName;
+        }
+
+        @Override
+        public Object get() throws BeansException {
+            if (released.get()) {
+                throw new BeansException("Lease of pooled bean '" + beanName + "' has already been closed");
+            }
+            return object;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(object);
+            }
+        }
+
+    }
+
+}
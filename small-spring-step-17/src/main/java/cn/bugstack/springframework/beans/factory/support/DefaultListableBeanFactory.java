@@ -1,12 +1,22 @@
 package cn.bugstack.springframework.beans.factory.support;
 
 import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.PropertyValues;
 import cn.bugstack.springframework.beans.factory.ConfigurableListableBeanFactory;
+import cn.bugstack.springframework.beans.factory.annotation.Autowired;
+import cn.bugstack.springframework.beans.factory.annotation.Qualifier;
 import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+import cn.bugstack.springframework.beans.factory.config.BeanReference;
 import cn.bugstack.springframework.beans.factory.config.ConfigurableBeanFactory;
+import cn.bugstack.springframework.context.annotation.Lazy;
+import cn.bugstack.springframework.util.ClassUtils;
 
+import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
@@ -17,59 +27,520 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
     private Map<String, BeanDefinition> beanDefinitionMap = new ConcurrentHashMap<>();
 
+    /**
+     * Index of bean names, keyed by the bean class and all of its superclasses and interfaces
+     */
+    private final Map<Class<?>, Set<String>> beanNamesByType = new HashMap<>();
+
+    /**
+     * Cache of resolved bean name arrays, keyed by the requested type
+     */
+    private final Map<Class<?>, String[]> resolvedBeanNamesByType = new ConcurrentHashMap<>();
+
+    /**
+     * Whether to pre-instantiate independent singletons in parallel, following the dependency graph
+     */
+    private boolean parallelPreInstantiation = false;
+
+    private int preInstantiationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether bean definition metadata may be cached for all beans
+     */
+    private volatile boolean configurationFrozen = false;
+
+    /**
+     * Immutable snapshot of the bean definitions, only present while the configuration is frozen
+     */
+    private volatile FrozenBeanDefinitions frozenBeanDefinitions;
+
+    /**
+     * 提前实例化完成后是否裁剪已创建单例的 BeanDefinition
+     */
+    private boolean trimCreatedSingletonDefinitions = false;
+
     @Override
     public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) {
-        beanDefinitionMap.put(beanName, beanDefinition);
+        synchronized (this.beanNamesByType) {
+            BeanDefinition existingDefinition = beanDefinitionMap.put(beanName, beanDefinition);
+            // 重复注册时，先移除旧 Class 对应的类型索引
+            if (null != existingDefinition) {
+                for (Class<?> type : getTypeHierarchy(existingDefinition.getBeanClass())) {
+                    Set<String> beanNames = this.beanNamesByType.get(type);
+                    if (null != beanNames) beanNames.remove(beanName);
+                }
+            }
+            for (Class<?> type : getTypeHierarchy(beanDefinition.getBeanClass())) {
+                this.beanNamesByType.computeIfAbsent(type, key -> new LinkedHashSet<>()).add(beanName);
+            }
+            this.resolvedBeanNamesByType.clear();
+            clearApplicableBeanPostProcessorCache();
+            // 分配稠密 id，重复注册时清除已解析的单例对象
+            getBeanId(beanName);
+            clearResolvedSingleton(beanName);
+            // 冻结后的注册会生成新的快照
+            if (this.configurationFrozen) {
+                this.frozenBeanDefinitions = new FrozenBeanDefinitions(this.beanDefinitionMap);
+            }
+        }
+    }
+
+    /**
+     * 移除 BeanDefinition，已创建的单例对象需要调用方先行销毁
+     */
+    public void removeBeanDefinition(String beanName) throws BeansException {
+        synchronized (this.beanNamesByType) {
+            BeanDefinition existingDefinition = beanDefinitionMap.remove(beanName);
+            if (null == existingDefinition) {
+                throw new BeansException("No bean named '" + beanName + "' is defined");
+            }
+            for (Class<?> type : getTypeHierarchy(existingDefinition.getBeanClass())) {
+                Set<String> beanNames = this.beanNamesByType.get(type);
+                if (null != beanNames) beanNames.remove(beanName);
+            }
+            this.resolvedBeanNamesByType.clear();
+            clearApplicableBeanPostProcessorCache();
+            clearResolvedSingleton(beanName);
+            if (this.configurationFrozen) {
+                this.frozenBeanDefinitions = new FrozenBeanDefinitions(this.beanDefinitionMap);
+            }
+        }
     }
 
     @Override
     public boolean containsBeanDefinition(String beanName) {
+        FrozenBeanDefinitions frozen = this.frozenBeanDefinitions;
+        if (null != frozen) {
+            return null != frozen.get(beanName);
+        }
         return beanDefinitionMap.containsKey(beanName);
     }
 
+    @Override
+    public String[] getBeanNamesForType(Class<?> type) {
+        String[] resolvedBeanNames = this.resolvedBeanNamesByType.get(type);
+        if (null != resolvedBeanNames) {
+            return resolvedBeanNames;
+        }
+        synchronized (this.beanNamesByType) {
+            Set<String> beanNames = this.beanNamesByType.get(type);
+            resolvedBeanNames = (null != beanNames ? beanNames.toArray(new String[0]) : new String[0]);
+            this.resolvedBeanNamesByType.put(type, resolvedBeanNames);
+        }
+        return resolvedBeanNames;
+    }
+
     @Override
     public <T> Map<String, T> getBeansOfType(Class<T> type) throws BeansException {
-        Map<String, T> result = new HashMap<>();
-        beanDefinitionMap.forEach((beanName, beanDefinition) -> {
-            Class beanClass = beanDefinition.getBeanClass();
-            if (type.isAssignableFrom(beanClass)) {
-                result.put(beanName, (T) getBean(beanName));
-            }
-        });
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String beanName : getBeanNamesForType(type)) {
+            result.put(beanName, (T) getBean(beanName));
+        }
         return result;
     }
 
     @Override
     public String[] getBeanDefinitionNames() {
+        FrozenBeanDefinitions frozen = this.frozenBeanDefinitions;
+        if (null != frozen) {
+            return frozen.beanNames.clone();
+        }
         return beanDefinitionMap.keySet().toArray(new String[0]);
     }
 
     @Override
     public BeanDefinition getBeanDefinition(String beanName) throws BeansException {
-        BeanDefinition beanDefinition = beanDefinitionMap.get(beanName);
+        FrozenBeanDefinitions frozen = this.frozenBeanDefinitions;
+        BeanDefinition beanDefinition = null != frozen ? frozen.get(beanName) : beanDefinitionMap.get(beanName);
         if (beanDefinition == null) throw new BeansException("No bean named '" + beanName + "' is defined");
         return beanDefinition;
     }
 
     @Override
-    public void preInstantiateSingletons() throws BeansException {
-        beanDefinitionMap.keySet().forEach(this::getBean);
+    public void freezeConfiguration() {
+        synchronized (this.beanNamesByType) {
+            this.configurationFrozen = true;
+            this.frozenBeanDefinitions = new FrozenBeanDefinitions(this.beanDefinitionMap);
+            // 配置不再变化，释放属性值数组中多余的容量
+            for (BeanDefinition beanDefinition : this.beanDefinitionMap.values()) {
+                if (beanDefinition.hasPropertyValues()) beanDefinition.getPropertyValues().trimToSize();
+            }
+        }
     }
 
     @Override
-    public <T> T getBean(Class<T> requiredType) throws BeansException {
-        List<String> beanNames = new ArrayList<>();
+    public boolean isConfigurationFrozen() {
+        return this.configurationFrozen;
+    }
+
+    @Override
+    public void preInstantiateSingletons() throws BeansException {
+        if (parallelPreInstantiation) {
+            preInstantiateSingletonsInParallel();
+        } else {
+            FrozenBeanDefinitions frozen = this.frozenBeanDefinitions;
+            String[] beanNames = null != frozen ? frozen.beanNames : beanDefinitionMap.keySet().toArray(new String[0]);
+            for (String beanName : beanNames) {
+                if (isEagerSingleton(getBeanDefinition(beanName))) {
+                    getBean(beanName);
+                }
+            }
+        }
+        preparePools();
+        if (trimCreatedSingletonDefinitions) {
+            trimCreatedSingletonDefinitions();
+        }
+    }
+
+    /**
+     * 配置了 minIdle 的非懒加载 pooled Bean 在启动时创建对象池并预先填充空闲对象
+     */
+    private void preparePools() {
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            BeanDefinition beanDefinition = entry.getValue();
+            if (beanDefinition.isPooled() && !beanDefinition.isLazyInit()
+                    && null != beanDefinition.getPoolConfig() && beanDefinition.getPoolConfig().getMinIdle() > 0) {
+                getBean(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 裁剪已创建单例的 BeanDefinition：属性值和创建计划只在创建时使用，创建完成后释放。
+     * 裁剪后的 BeanDefinition 不能再用于创建 Bean，所以不能与增量刷新同时使用
+     */
+    public void trimCreatedSingletonDefinitions() {
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            BeanDefinition beanDefinition = entry.getValue();
+            if (beanDefinition.isSingleton() && !beanDefinition.isTrimmed() && isSingletonCreated(entry.getKey())) {
+                beanDefinition.trim();
+                clearCreationPlan(entry.getKey());
+            }
+        }
+    }
+
+    public boolean isTrimCreatedSingletonDefinitions() {
+        return trimCreatedSingletonDefinitions;
+    }
+
+    public void setTrimCreatedSingletonDefinitions(boolean trimCreatedSingletonDefinitions) {
+        this.trimCreatedSingletonDefinitions = trimCreatedSingletonDefinitions;
+    }
+
+    /**
+     * 只有非懒加载的单例 Bean 需要提前实例化
+     */
+    private boolean isEagerSingleton(BeanDefinition beanDefinition) {
+        return beanDefinition.isSingleton() && !beanDefinition.isLazyInit();
+    }
+
+    /**
+     * 按照依赖关系图并行实例化单例 Bean：一个 Bean 只有在它依赖的 Bean 都创建完成后才会被提交，
+     * 相互独立的 Bean 在线程池中并行创建。处于循环依赖中的 Bean 最后在当前线程中串行创建，继续交给三级缓存处理。
+     */
+    protected void preInstantiateSingletonsInParallel() throws BeansException {
+        Set<String> beanNames = new LinkedHashSet<>();
         for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
-            Class beanClass = entry.getValue().getBeanClass();
-            if (requiredType.isAssignableFrom(beanClass)) {
+            if (isEagerSingleton(entry.getValue())) {
                 beanNames.add(entry.getKey());
             }
         }
-        if (1 == beanNames.size()) {
-            return getBean(beanNames.get(0), requiredType);
+
+        // 1. 构建依赖关系图，只保留需要提前实例化的单例 Bean
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Map<String, Set<String>> dependents = new HashMap<>();
+        for (String beanName : beanNames) {
+            Set<String> dependsOn = new LinkedHashSet<>(getDependenciesForBean(beanName, beanDefinitionMap.get(beanName)));
+            dependsOn.retainAll(beanNames);
+            dependsOn.remove(beanName);
+            dependencies.put(beanName, dependsOn);
+            for (String dependency : dependsOn) {
+                dependents.computeIfAbsent(dependency, key -> new LinkedHashSet<>()).add(beanName);
+            }
+        }
+
+        // 2. 拓扑排序，剩余未排序的 Bean 处于循环依赖中（或依赖于循环依赖）
+        List<String> orderedBeanNames = new ArrayList<>();
+        Map<String, Integer> inDegree = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (String beanName : beanNames) {
+            inDegree.put(beanName, dependencies.get(beanName).size());
+            if (dependencies.get(beanName).isEmpty()) ready.add(beanName);
+        }
+        while (!ready.isEmpty()) {
+            String beanName = ready.poll();
+            orderedBeanNames.add(beanName);
+            for (String dependent : dependents.getOrDefault(beanName, Collections.emptySet())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) ready.add(dependent);
+            }
+        }
+
+        // 3. 依赖完成后提交创建任务
+        ForkJoinPool pool = new ForkJoinPool(preInstantiationParallelism);
+        try {
+            Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+            for (String beanName : orderedBeanNames) {
+                CompletableFuture<?>[] dependencyFutures = dependencies.get(beanName).stream().map(futures::get).toArray(CompletableFuture[]::new);
+                futures.put(beanName, CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> getBean(beanName), pool));
+            }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BeansException) throw (BeansException) e.getCause();
+            throw new BeansException("Parallel pre-instantiation of singletons failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // 4. 循环依赖的 Bean 串行创建
+        for (String beanName : beanNames) {
+            if (inDegree.get(beanName) > 0) {
+                getBean(beanName);
+            }
+        }
+    }
+
+    /**
+     * 解析 Bean 依赖的其他 Bean 名称：属性中的 BeanReference 以及 @Autowired 注解的字段
+     */
+    protected Set<String> getDependenciesForBean(String beanName, BeanDefinition beanDefinition) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        if (beanDefinition.hasPropertyValues()) {
+            PropertyValues propertyValues = beanDefinition.getPropertyValues();
+            for (int i = 0; i < propertyValues.size(); i++) {
+                if (propertyValues.getValue(i) instanceof BeanReference) {
+                    dependencies.add(((BeanReference) propertyValues.getValue(i)).getBeanName());
+                }
+            }
+        }
+
+        Class<?> beanClass = beanDefinition.getBeanClass();
+        beanClass = ClassUtils.isCglibProxyClass(beanClass) ? beanClass.getSuperclass() : beanClass;
+        for (Field field : beanClass.getDeclaredFields()) {
+            if (null == field.getAnnotation(Autowired.class)) continue;
+            // @Lazy 注入点注入的是代理对象，不构成创建顺序上的依赖
+            Lazy lazy = field.getAnnotation(Lazy.class);
+            if (null != lazy && lazy.value()) continue;
+            Qualifier qualifierAnnotation = field.getAnnotation(Qualifier.class);
+            if (null != qualifierAnnotation) {
+                dependencies.add(qualifierAnnotation.value());
+            } else {
+                Collections.addAll(dependencies, getBeanNamesForType(field.getType()));
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * 与另一个 BeanFactory 中（已经过 BeanFactoryPostProcessor 处理）的 BeanDefinition 比较，
+     * 返回新增、删除以及内容发生变化的 Bean 名称
+     */
+    public Set<String> getChangedBeanNames(DefaultListableBeanFactory candidateFactory) {
+        Set<String> changedBeanNames = new LinkedHashSet<>();
+        for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+            BeanDefinition candidate = candidateFactory.beanDefinitionMap.get(entry.getKey());
+            if (null == candidate || !isEquivalent(entry.getValue(), candidate)) {
+                changedBeanNames.add(entry.getKey());
+            }
+        }
+        for (String beanName : candidateFactory.beanDefinitionMap.keySet()) {
+            if (!beanDefinitionMap.containsKey(beanName)) {
+                changedBeanNames.add(beanName);
+            }
+        }
+        return changedBeanNames;
+    }
+
+    /**
+     * 增量刷新：销毁发生变化的 Bean 以及所有直接、间接依赖它们的 Bean（依赖方先销毁），
+     * 再用新的 BeanDefinition 替换注册表中对应的条目。其他 Bean 的单例对象和 BeanDefinition 保持不变。
+     *
+     * @return 被销毁、需要重新创建的 Bean 名称
+     */
+    public Set<String> refreshBeanDefinitions(DefaultListableBeanFactory candidateFactory, Set<String> changedBeanNames) throws BeansException {
+        // 1. 依赖反向图：新旧两份配置都要考虑，新增的 Bean 可能被已有的 Bean 按类型注入；
+        // 静态解析跳过了 @Lazy 注入点，代理解析后缓存了目标对象，还要合并运行时记录的依赖关系
+        Map<String, Set<String>> dependents = new HashMap<>();
+        collectDependents(this, dependents);
+        collectDependents(candidateFactory, dependents);
+        for (String beanName : beanDefinitionMap.keySet()) {
+            for (String dependent : getDependentBeans(beanName)) {
+                dependents.computeIfAbsent(beanName, key -> new LinkedHashSet<>()).add(dependent);
+            }
+        }
+
+        // 2. 沿反向图求出受影响的 Bean
+        Set<String> affectedBeanNames = new LinkedHashSet<>();
+        Deque<String> candidates = new ArrayDeque<>(changedBeanNames);
+        while (!candidates.isEmpty()) {
+            String beanName = candidates.poll();
+            if (affectedBeanNames.add(beanName)) {
+                candidates.addAll(dependents.getOrDefault(beanName, Collections.emptySet()));
+            }
+        }
+
+        // 3. 依赖方先于被依赖方销毁
+        Set<String> destroyedBeanNames = new HashSet<>();
+        for (String beanName : affectedBeanNames) {
+            destroyDependentsFirst(beanName, affectedBeanNames, dependents, destroyedBeanNames);
+        }
+
+        // 4. 替换注册表，未变化的 BeanDefinition 保持原对象，创建计划等缓存继续有效
+        for (String beanName : changedBeanNames) {
+            BeanDefinition candidate = candidateFactory.beanDefinitionMap.get(beanName);
+            if (null == candidate) {
+                if (beanDefinitionMap.containsKey(beanName)) removeBeanDefinition(beanName);
+            } else {
+                registerBeanDefinition(beanName, candidate);
+            }
+        }
+        return affectedBeanNames;
+    }
+
+    private static void collectDependents(DefaultListableBeanFactory beanFactory, Map<String, Set<String>> dependents) {
+        for (Map.Entry<String, BeanDefinition> entry : beanFactory.beanDefinitionMap.entrySet()) {
+            for (String dependency : beanFactory.getDependenciesForBean(entry.getKey(), entry.getValue())) {
+                dependents.computeIfAbsent(dependency, key -> new LinkedHashSet<>()).add(entry.getKey());
+            }
+        }
+    }
+
+    private void destroyDependentsFirst(String beanName, Set<String> affectedBeanNames, Map<String, Set<String>> dependents, Set<String> destroyedBeanNames) {
+        // 先标记再递归，循环依赖时不会重复进入
+        if (!destroyedBeanNames.add(beanName)) return;
+        for (String dependent : dependents.getOrDefault(beanName, Collections.emptySet())) {
+            if (affectedBeanNames.contains(dependent)) {
+                destroyDependentsFirst(dependent, affectedBeanNames, dependents, destroyedBeanNames);
+            }
+        }
+        destroySingleton(beanName);
+    }
+
+    /**
+     * 两个 BeanDefinition 的内容是否相同，引用其他 Bean 的属性按 Bean 名称比较
+     */
+    private static boolean isEquivalent(BeanDefinition existing, BeanDefinition candidate) {
+        if (existing == candidate) return true;
+        if (existing.getBeanClass() != candidate.getBeanClass()
+                || !Objects.equals(existing.getScope(), candidate.getScope())
+                || existing.isLazyInit() != candidate.isLazyInit()
+                || !Objects.equals(existing.getPoolConfig(), candidate.getPoolConfig())
+                || !Objects.equals(existing.getInitMethodName(), candidate.getInitMethodName())
+                || !Objects.equals(existing.getDestroyMethodName(), candidate.getDestroyMethodName())) {
+            return false;
+        }
+        PropertyValues existingValues = existing.hasPropertyValues() ? existing.getPropertyValues() : PropertyValues.EMPTY;
+        PropertyValues candidateValues = candidate.hasPropertyValues() ? candidate.getPropertyValues() : PropertyValues.EMPTY;
+        if (existingValues.size() != candidateValues.size()) return false;
+        for (int i = 0; i < existingValues.size(); i++) {
+            if (!existingValues.getName(i).equals(candidateValues.getName(i))) return false;
+            Object existingValue = existingValues.getValue(i);
+            Object candidateValue = candidateValues.getValue(i);
+            if (existingValue instanceof BeanReference && candidateValue instanceof BeanReference) {
+                if (!((BeanReference) existingValue).getBeanName().equals(((BeanReference) candidateValue).getBeanName())) return false;
+            } else if (!Objects.equals(existingValue, candidateValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isParallelPreInstantiation() {
+        return parallelPreInstantiation;
+    }
+
+    /**
+     * 开启后，preInstantiateSingletons 按依赖关系图并行创建相互独立的单例 Bean
+     */
+    public void setParallelPreInstantiation(boolean parallelPreInstantiation) {
+        this.parallelPreInstantiation = parallelPreInstantiation;
+    }
+
+    public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+        if (preInstantiationParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.preInstantiationParallelism = preInstantiationParallelism;
+    }
+
+    @Override
+    public <T> T getBean(Class<T> requiredType) throws BeansException {
+        String[] beanNames = getBeanNamesForType(requiredType);
+        if (1 == beanNames.length) {
+            return getBean(beanNames[0], requiredType);
+        }
+
+        throw new BeansException(requiredType + "expected single bean but found " + beanNames.length + ": " + Arrays.toString(beanNames));
+    }
+
+    /**
+     * 获取 Class 自身及其所有父类、接口，用于维护类型索引
+     */
+    private Set<Class<?>> getTypeHierarchy(Class<?> beanClass) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        Deque<Class<?>> candidates = new ArrayDeque<>();
+        if (null != beanClass) candidates.add(beanClass);
+        while (!candidates.isEmpty()) {
+            Class<?> candidate = candidates.poll();
+            if (!types.add(candidate)) continue;
+            if (null != candidate.getSuperclass()) candidates.add(candidate.getSuperclass());
+            Collections.addAll(candidates, candidate.getInterfaces());
+        }
+        // 接口的 isAssignableFrom 同样对 Object 成立
+        types.add(Object.class);
+        return types;
+    }
+
+    /**
+     * 冻结后的 BeanDefinition 快照：开放寻址（线性探测）的只读散列表，查找时无锁、不产生任何对象
+     */
+    private static final class FrozenBeanDefinitions {
+
+        private final String[] beanNames;
+
+        private final String[] keys;
+
+        private final BeanDefinition[] values;
+
+        private final int mask;
+
+        FrozenBeanDefinitions(Map<String, BeanDefinition> beanDefinitionMap) {
+            List<String> names = new ArrayList<>(beanDefinitionMap.size());
+            List<BeanDefinition> definitions = new ArrayList<>(beanDefinitionMap.size());
+            for (Map.Entry<String, BeanDefinition> entry : beanDefinitionMap.entrySet()) {
+                names.add(entry.getKey());
+                definitions.add(entry.getValue());
+            }
+            this.beanNames = names.toArray(new String[0]);
+
+            // 容量取大于 2 倍元素个数的 2 的幂，保证探测链足够短
+            int capacity = 2;
+            while (capacity < beanNames.length * 2) capacity <<= 1;
+            this.keys = new String[capacity];
+            this.values = new BeanDefinition[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < beanNames.length; i++) {
+                int index = indexFor(beanNames[i]);
+                while (null != keys[index]) index = (index + 1) & mask;
+                keys[index] = beanNames[i];
+                values[index] = definitions.get(i);
+            }
+        }
+
+        BeanDefinition get(String beanName) {
+            int index = indexFor(beanName);
+            String key;
+            while (null != (key = keys[index])) {
+                if (key.equals(beanName)) return values[index];
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private int indexFor(String beanName) {
+            int h = beanName.hashCode();
+            return (h ^ (h >>> 16)) & mask;
         }
 
-        throw new BeansException(requiredType + "expected single bean but found " + beanNames.size() + ": " + beanNames);
     }
 
 }
@@ -5,11 +5,9 @@ import cn.bugstack.springframework.beans.factory.DisposableBean;
 import cn.bugstack.springframework.beans.factory.ObjectFactory;
 import cn.bugstack.springframework.beans.factory.config.SingletonBeanRegistry;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
@@ -34,35 +32,208 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
     /**
      * Cache of early singleton objects: bean name --> bean instance
      */
-    protected final Map<String, Object> earlySingletonObjects = new HashMap<String, Object>();
+    protected final Map<String, Object> earlySingletonObjects = new ConcurrentHashMap<String, Object>();
 
     // 三级缓存，存放代理对象
     /**
      * Cache of singleton factories: bean name --> ObjectFactory
      */
-    private final Map<String, ObjectFactory<?>> singletonFactories = new HashMap<String, ObjectFactory<?>>();
+    private final Map<String, ObjectFactory<?>> singletonFactories = new ConcurrentHashMap<String, ObjectFactory<?>>();
+
+    /**
+     * Per-bean creation locks: bean name --> lock, removed once the singleton is registered
+     */
+    private final Map<String, ReentrantLock> singletonLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 等待图：正在创建的 Bean --> 持有其创建锁的线程
+     */
+    private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>();
+
+    /**
+     * 等待图：线程 --> 该线程正在等待的 Bean
+     */
+    private final Map<Thread, String> threadsWaitingForSingleton = new ConcurrentHashMap<>();
+
+    /**
+     * Names of the singletons currently in creation on the current thread
+     */
+    private final ThreadLocal<Set<String>> singletonsCurrentlyInCreation = ThreadLocal.withInitial(HashSet::new);
 
     private final Map<String, DisposableBean> disposableBeans = new LinkedHashMap<>();
 
+    /**
+     * Map between dependent bean names: bean name --> Set of dependent bean names
+     */
+    private final Map<String, Set<String>> dependentBeanMap = new ConcurrentHashMap<>(64);
+
+    /**
+     * Map between depending bean names: bean name --> Set of bean names for the bean's dependencies
+     */
+    private final Map<String, Set<String>> dependenciesForBeanMap = new ConcurrentHashMap<>(64);
+
+    private int destructionParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 销毁全部单例的总时限，0 表示不限制
+     */
+    private long destructionTimeoutMillis = 0;
+
+    /**
+     * 无锁读取已创建完成的单例对象；只有当前线程正在创建该 Bean（循环依赖）时，才返回提前暴露的对象
+     */
     @Override
     public Object getSingleton(String beanName) {
         Object singletonObject = singletonObjects.get(beanName);
+        if (null == singletonObject && isSingletonCurrentlyInCreation(beanName)) {
+            singletonObject = getEarlySingletonReference(beanName);
+        }
+        return singletonObject;
+    }
+
+    /**
+     * 获取单例对象，不存在时通过 singletonFactory 创建。同一个 Bean 名称同时只会有一个线程执行创建，
+     * 其他线程只在这个 Bean 的锁上等待，不会影响其他 Bean 的创建。
+     *
+     * @param beanName
+     * @param singletonFactory
+     * @return
+     */
+    public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
+        Object singletonObject = singletonObjects.get(beanName);
+        if (null != singletonObject) {
+            return singletonObject;
+        }
+
+        ReentrantLock lock = singletonLocks.computeIfAbsent(beanName, key -> new ReentrantLock());
+        Set<String> inCreation = singletonsCurrentlyInCreation.get();
+        if (inCreation.isEmpty()) {
+            // 当前线程没有持有其他 Bean 的锁时不会形成环，直接阻塞等待
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            // 嵌套创建时持有其他 Bean 的锁：只有等待图中出现跨线程的环时才使用对方提前暴露的对象，否则阻塞等待对方创建完成
+            Object earlySingletonObject = awaitSingletonLock(beanName, lock);
+            if (null != earlySingletonObject) {
+                return earlySingletonObject;
+            }
+        }
+
+        Thread currentThread = Thread.currentThread();
+        try {
+            singletonObject = singletonObjects.get(beanName);
+            if (null != singletonObject) {
+                return singletonObject;
+            }
+
+            inCreation.add(beanName);
+            singletonCreationThreads.put(beanName, currentThread);
+            try {
+                singletonObject = singletonFactory.getObject();
+            } finally {
+                singletonCreationThreads.remove(beanName, currentThread);
+                inCreation.remove(beanName);
+            }
+
+            // doCreateBean 已注册的对象可能是代理对象，以注册的为准
+            Object registeredObject = singletonObjects.get(beanName);
+            if (null != registeredObject) {
+                singletonObject = registeredObject;
+            } else if (null != singletonObject) {
+                registerSingleton(beanName, singletonObject);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // 创建成功后释放锁对象，之后的访问走无锁的一级缓存
+        singletonLocks.remove(beanName, lock);
+        return singletonObject;
+    }
+
+    /**
+     * 在等待图中登记当前线程等待 beanName，再沿着 "Bean --> 持有线程 --> 该线程等待的 Bean" 查找环。
+     * 先登记再检查，两个线程同时进入时至少有一个能看到完整的环；没有环时阻塞等待锁，
+     * 之后加入的线程如果闭合了环，由它负责打破。
+     *
+     * @return 出现环时返回提前暴露的对象，正常获取到锁时返回 null
+     */
+    private Object awaitSingletonLock(String beanName, ReentrantLock lock) {
+        Thread currentThread = Thread.currentThread();
+        threadsWaitingForSingleton.put(currentThread, beanName);
+        try {
+            if (isWaitCycle(currentThread, beanName)) {
+                Object earlySingletonObject = getEarlySingletonReference(beanName);
+                if (null == earlySingletonObject) {
+                    throw new BeansException("Singleton bean '" + beanName + "' is part of a circular reference between threads and has not been exposed early; constructor injection cannot resolve it");
+                }
+                return earlySingletonObject;
+            }
+            lock.lockInterruptibly();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeansException("Interrupted while waiting for singleton bean '" + beanName + "'", e);
+        } finally {
+            threadsWaitingForSingleton.remove(currentThread);
+        }
+    }
+
+    private boolean isWaitCycle(Thread currentThread, String beanName) {
+        Set<Thread> visited = new HashSet<>();
+        String waitingFor = beanName;
+        while (null != waitingFor) {
+            Thread owner = singletonCreationThreads.get(waitingFor);
+            if (null == owner || !visited.add(owner)) return false;
+            if (owner == currentThread) return true;
+            waitingFor = threadsWaitingForSingleton.get(owner);
+        }
+        return false;
+    }
+
+    /**
+     * 从二级、三级缓存中获取提前暴露的对象，三级缓存中的工厂只会被执行一次
+     */
+    protected Object getEarlySingletonReference(String beanName) {
+        Object singletonObject = earlySingletonObjects.get(beanName);
+        // 判断二级缓存中是否有对象，这个对象就是代理对象，因为只有代理对象才会放到三级缓存中
         if (null == singletonObject) {
-            singletonObject = earlySingletonObjects.get(beanName);
-            // 判断二级缓存中是否有对象，这个对象就是代理对象，因为只有代理对象才会放到三级缓存中
-            if (null == singletonObject) {
-                ObjectFactory<?> singletonFactory = singletonFactories.get(beanName);
-                if (singletonFactory != null) {
-                    singletonObject = singletonFactory.getObject();
-                    // 把三级缓存中的代理对象中的真实对象获取出来，放入二级缓存中
-                    earlySingletonObjects.put(beanName, singletonObject);
-                    singletonFactories.remove(beanName);
+            ObjectFactory<?> singletonFactory = singletonFactories.get(beanName);
+            if (singletonFactory != null) {
+                synchronized (singletonFactory) {
+                    singletonObject = earlySingletonObjects.get(beanName);
+                    if (null == singletonObject && singletonFactories.get(beanName) == singletonFactory) {
+                        singletonObject = singletonFactory.getObject();
+                        // 把三级缓存中的代理对象中的真实对象获取出来，放入二级缓存中
+                        earlySingletonObjects.put(beanName, singletonObject);
+                        singletonFactories.remove(beanName);
+                    }
                 }
             }
         }
         return singletonObject;
     }
 
+    /**
+     * 单例对象是否已经创建完成并注册到一级缓存
+     */
+    protected boolean isSingletonCreated(String beanName) {
+        return singletonObjects.containsKey(beanName);
+    }
+
+    /**
+     * 一级缓存中该名称当前注册的是否就是这个对象，对象被销毁或替换后返回 false
+     */
+    protected boolean isCurrentSingleton(String beanName, Object singletonObject) {
+        return null != singletonObject && singletonObjects.get(beanName) == singletonObject;
+    }
+
+    /**
+     * 判断当前线程是否正在创建该单例 Bean
+     */
+    public boolean isSingletonCurrentlyInCreation(String beanName) {
+        return singletonsCurrentlyInCreation.get().contains(beanName);
+    }
+
     public void registerSingleton(String beanName, Object singletonObject) {
         singletonObjects.put(beanName, singletonObject);
         earlySingletonObjects.remove(beanName);
@@ -77,16 +248,50 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
     }
 
     public void registerDisposableBean(String beanName, DisposableBean bean) {
-        disposableBeans.put(beanName, bean);
+        synchronized (this.disposableBeans) {
+            disposableBeans.put(beanName, bean);
+        }
     }
 
-    public void destroySingletons() {
-        Set<String> keySet = this.disposableBeans.keySet();
-        Object[] disposableBeanNames = keySet.toArray();
+    /**
+     * 记录 dependentBeanName 依赖 beanName，销毁时 dependentBeanName 先于 beanName 销毁
+     */
+    public void registerDependentBean(String beanName, String dependentBeanName) {
+        if (beanName.equals(dependentBeanName)) return;
+        dependentBeanMap.computeIfAbsent(beanName, key -> ConcurrentHashMap.newKeySet()).add(dependentBeanName);
+        dependenciesForBeanMap.computeIfAbsent(dependentBeanName, key -> ConcurrentHashMap.newKeySet()).add(beanName);
+    }
 
-        for (int i = disposableBeanNames.length - 1; i >= 0; i--) {
-            Object beanName = disposableBeanNames[i];
-            DisposableBean disposableBean = disposableBeans.remove(beanName);
+    /**
+     * 返回直接依赖 beanName 的 Bean 名称
+     */
+    public String[] getDependentBeans(String beanName) {
+        Set<String> dependentBeans = dependentBeanMap.get(beanName);
+        return null != dependentBeans ? dependentBeans.toArray(new String[0]) : new String[0];
+    }
+
+    /**
+     * 返回 beanName 直接依赖的 Bean 名称
+     */
+    public String[] getDependenciesForBean(String beanName) {
+        Set<String> dependencies = dependenciesForBeanMap.get(beanName);
+        return null != dependencies ? dependencies.toArray(new String[0]) : new String[0];
+    }
+
+    /**
+     * 销毁单个单例对象：从各级缓存中移除，并执行它的销毁方法
+     */
+    public void destroySingleton(String beanName) {
+        singletonObjects.remove(beanName);
+        earlySingletonObjects.remove(beanName);
+        singletonFactories.remove(beanName);
+
+        DisposableBean disposableBean;
+        synchronized (this.disposableBeans) {
+            disposableBean = disposableBeans.remove(beanName);
+        }
+        removeDependencies(beanName);
+        if (null != disposableBean) {
             try {
                 disposableBean.destroy();
             } catch (Exception e) {
@@ -95,4 +300,218 @@ public class DefaultSingletonBeanRegistry implements SingletonBeanRegistry {
         }
     }
 
+    private void removeDependencies(String beanName) {
+        Set<String> dependencies = dependenciesForBeanMap.remove(beanName);
+        if (null != dependencies) {
+            for (String dependency : dependencies) {
+                Set<String> dependentBeans = dependentBeanMap.get(dependency);
+                if (null != dependentBeans) dependentBeans.remove(beanName);
+            }
+        }
+        // 依赖它的 Bean 由调用方负责先行销毁，这里只清理记录
+        Set<String> dependentBeans = dependentBeanMap.remove(beanName);
+        if (null != dependentBeans) {
+            for (String dependent : dependentBeans) {
+                Set<String> dependenciesOfDependent = dependenciesForBeanMap.get(dependent);
+                if (null != dependenciesOfDependent) dependenciesOfDependent.remove(beanName);
+            }
+        }
+    }
+
+    /**
+     * 销毁全部单例：按依赖关系图，依赖方先于被依赖方销毁，相互独立的 Bean 在线程池中并行销毁。
+     * 处于循环依赖中的 Bean 最后按注册顺序倒序串行销毁。单个 Bean 销毁失败不影响其他 Bean，
+     * 全部执行完（或超过总时限）后汇总抛出。
+     */
+    public void destroySingletons() {
+        Map<String, DisposableBean> disposables;
+        synchronized (this.disposableBeans) {
+            disposables = new LinkedHashMap<>(this.disposableBeans);
+            this.disposableBeans.clear();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(destructionTimeoutMillis);
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        Set<String> destroyedBeanNames = ConcurrentHashMap.newKeySet();
+        List<String> reversedBeanNames = new ArrayList<>(disposables.keySet());
+        Collections.reverse(reversedBeanNames);
+
+        // 1. 只保留需要销毁的 Bean 之间的依赖，穿过中间不需要销毁的 Bean 传递
+        Map<String, Set<String>> dependents = new HashMap<>();
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        Map<String, Integer> pendingDependents = new HashMap<>();
+        for (String beanName : disposables.keySet()) {
+            Set<String> disposableDependents = findDisposableDependents(beanName, disposables.keySet());
+            dependents.put(beanName, disposableDependents);
+            pendingDependents.put(beanName, disposableDependents.size());
+            for (String dependent : disposableDependents) {
+                dependencies.computeIfAbsent(dependent, key -> new LinkedHashSet<>()).add(beanName);
+            }
+        }
+
+        // 2. 拓扑排序：没有待销毁依赖方的 Bean 可以先销毁，没有依赖关系时保持注册顺序的倒序
+        Set<String> orderedBeanNames = new LinkedHashSet<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (String beanName : reversedBeanNames) {
+            if (pendingDependents.get(beanName) == 0) ready.add(beanName);
+        }
+        while (!ready.isEmpty()) {
+            String beanName = ready.poll();
+            orderedBeanNames.add(beanName);
+            for (String dependency : dependencies.getOrDefault(beanName, Collections.emptySet())) {
+                if (pendingDependents.merge(dependency, -1, Integer::sum) == 0) ready.add(dependency);
+            }
+        }
+
+        // 3. 依赖方销毁完成后提交销毁任务
+        if (destructionParallelism > 1 && orderedBeanNames.size() > 1) {
+            ForkJoinPool pool = new ForkJoinPool(destructionParallelism);
+            try {
+                Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+                for (String beanName : orderedBeanNames) {
+                    CompletableFuture<?>[] dependentFutures = dependents.get(beanName).stream().map(futures::get).toArray(CompletableFuture[]::new);
+                    futures.put(beanName, CompletableFuture.allOf(dependentFutures)
+                            .thenRunAsync(() -> destroyBean(beanName, disposables.get(beanName), failures, destroyedBeanNames), pool));
+                }
+                awaitDestruction(CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])), deadline, failures);
+            } finally {
+                pool.shutdownNow();
+            }
+        } else {
+            destroySerially(orderedBeanNames, disposables, deadline, failures, destroyedBeanNames);
+        }
+
+        // 4. 循环依赖的 Bean 按注册顺序倒序串行销毁
+        List<String> cyclicBeanNames = new ArrayList<>(reversedBeanNames);
+        cyclicBeanNames.removeAll(orderedBeanNames);
+        if (!isExpired(deadline)) {
+            destroySerially(cyclicBeanNames, disposables, deadline, failures, destroyedBeanNames);
+        }
+
+        this.dependentBeanMap.clear();
+        this.dependenciesForBeanMap.clear();
+
+        // 5. 汇总失败和超时未销毁的 Bean
+        Set<String> undestroyedBeanNames = new LinkedHashSet<>(disposables.keySet());
+        undestroyedBeanNames.removeAll(destroyedBeanNames);
+        if (!undestroyedBeanNames.isEmpty() && isExpired(deadline)) {
+            failures.add(new BeansException("Destruction of singletons did not complete within " + destructionTimeoutMillis + "ms"));
+        }
+        if (!failures.isEmpty()) {
+            Iterator<Exception> iterator = failures.iterator();
+            Exception first = iterator.next();
+            BeansException exception = new BeansException(failures.size() + " failure(s) while destroying singletons" +
+                    (undestroyedBeanNames.isEmpty() ? "" : ", not destroyed: " + undestroyedBeanNames) + ": " + first.getMessage(), first);
+            while (iterator.hasNext()) {
+                exception.addSuppressed(iterator.next());
+            }
+            throw exception;
+        }
+    }
+
+    private boolean isExpired(long deadline) {
+        return destructionTimeoutMillis > 0 && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * 按顺序逐个销毁。设置了总时限时在单独的线程中执行，当前线程最多等到截止时间，
+     * 卡住的销毁方法不会拖住关闭流程；超时后中断该线程，剩余的 Bean 不再销毁
+     */
+    private void destroySerially(Collection<String> beanNames, Map<String, DisposableBean> disposables, long deadline,
+                                 Queue<Exception> failures, Set<String> destroyedBeanNames) {
+        if (beanNames.isEmpty()) return;
+        Runnable task = () -> {
+            for (String beanName : beanNames) {
+                if (Thread.currentThread().isInterrupted()) break;
+                destroyBean(beanName, disposables.get(beanName), failures, destroyedBeanNames);
+            }
+        };
+        if (destructionTimeoutMillis <= 0) {
+            task.run();
+            return;
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "small-spring-destroy");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            awaitDestruction(executor.submit(task), deadline, failures);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitDestruction(Future<?> future, long deadline, Queue<Exception> failures) {
+        try {
+            if (destructionTimeoutMillis > 0) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } else {
+                future.get();
+            }
+        } catch (TimeoutException e) {
+            // 超时未销毁的 Bean 在最后统一报告
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.add(new BeansException("Interrupted while destroying singletons", e));
+        } catch (ExecutionException e) {
+            failures.add(new BeansException("Destruction of singletons failed", e.getCause()));
+        }
+    }
+
+    /**
+     * 销毁方法正常返回后才记为已销毁；抛出异常或被超时中断的 Bean 会出现在未销毁列表中
+     */
+    private void destroyBean(String beanName, DisposableBean disposableBean, Queue<Exception> failures, Set<String> destroyedBeanNames) {
+        try {
+            disposableBean.destroy();
+            destroyedBeanNames.add(beanName);
+        } catch (Exception e) {
+            failures.add(new BeansException("Destroy method on bean with name '" + beanName + "' threw an exception", e));
+        }
+    }
+
+    /**
+     * 查找直接或间接依赖 beanName 的待销毁 Bean，中间经过的 Bean 本身不需要销毁时继续向上查找
+     */
+    private Set<String> findDisposableDependents(String beanName, Set<String> disposableBeanNames) {
+        Set<String> result = new LinkedHashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> candidates = new ArrayDeque<>(Arrays.asList(getDependentBeans(beanName)));
+        while (!candidates.isEmpty()) {
+            String candidate = candidates.poll();
+            if (!visited.add(candidate) || candidate.equals(beanName)) continue;
+            if (disposableBeanNames.contains(candidate)) {
+                result.add(candidate);
+            } else {
+                Collections.addAll(candidates, getDependentBeans(candidate));
+            }
+        }
+        return result;
+    }
+
+    public void setDestructionParallelism(int destructionParallelism) {
+        if (destructionParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.destructionParallelism = destructionParallelism;
+    }
+
+    public int getDestructionParallelism() {
+        return destructionParallelism;
+    }
+
+    /**
+     * 设置销毁全部单例的总时限（毫秒），超时后不再等待剩余的销毁方法，0 表示不限制
+     */
+    public void setDestructionTimeoutMillis(long destructionTimeoutMillis) {
+        if (destructionTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.destructionTimeoutMillis = destructionTimeoutMillis;
+    }
+
+    public long getDestructionTimeoutMillis() {
+        return destructionTimeoutMillis;
+    }
+
 }
@@ -20,11 +20,17 @@ public class DisposableBeanAdapter implements DisposableBean {
     private final Object bean;
     private final String beanName;
     private String destroyMethodName;
+    private final BeanCreationPlan creationPlan;
 
     public DisposableBeanAdapter(Object bean, String beanName, BeanDefinition beanDefinition) {
+        this(bean, beanName, beanDefinition, null);
+    }
+
+    public DisposableBeanAdapter(Object bean, String beanName, BeanDefinition beanDefinition, BeanCreationPlan creationPlan) {
         this.bean = bean;
         this.beanName = beanName;
         this.destroyMethodName = beanDefinition.getDestroyMethodName();
+        this.creationPlan = creationPlan;
     }
 
     @Override
@@ -36,6 +42,17 @@ public class DisposableBeanAdapter implements DisposableBean {
 
         // 2. 注解配置 destroy-method {判断是为了避免二次执行销毁}
         if (StrUtil.isNotEmpty(destroyMethodName) && !(bean instanceof DisposableBean && "destroy".equals(this.destroyMethodName))) {
+            // 优先使用创建计划中绑定好的销毁方法
+            if (null != creationPlan && creationPlan.canInvokeDestroyMethod(bean)) {
+                try {
+                    creationPlan.invokeDestroyMethod(bean, beanName);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new BeansException("Destroy method on bean with name '" + beanName + "' threw an exception", e);
+                }
+                return;
+            }
             Method destroyMethod = bean.getClass().getMethod(destroyMethodName);
             if (null == destroyMethod) {
                 throw new BeansException("Couldn't find a destroy method named '" + destroyMethodName + "' on bean with name '" + beanName + "'");
@@ -2,9 +2,14 @@ package cn.bugstack.springframework.beans.factory.support;
 
 import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.factory.FactoryBean;
+import cn.bugstack.springframework.beans.factory.RefreshableFactoryBean;
 
+import java.util.HashSet;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Support base class for singleton registries which need to handle
@@ -22,22 +27,93 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
      */
     private final Map<String, Object> factoryBeanObjectCache = new ConcurrentHashMap<String, Object>();
 
+    /**
+     * 正在创建的 FactoryBean 对象：FactoryBean name --> 创建任务，同一个对象并发获取时只执行一次 getObject
+     */
+    private final Map<String, FutureTask<Object>> factoryBeanObjectsInCreation = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程正在创建的 FactoryBean 对象，用于发现 getObject 中对自身的递归获取
+     */
+    private final ThreadLocal<Set<String>> currentFactoryBeanObjects = ThreadLocal.withInitial(HashSet::new);
+
+    private volatile ExecutorService refreshExecutor;
+
+    /**
+     * 延迟销毁被替换的旧对象
+     */
+    private volatile ScheduledExecutorService destroyScheduler;
+
+    /**
+     * 已被替换、等待销毁的旧对象，容器关闭时立即销毁
+     */
+    private final Set<RetiredObject> retiredObjects = ConcurrentHashMap.newKeySet();
+
     protected Object getCachedObjectForFactoryBean(String beanName) {
-        Object object = this.factoryBeanObjectCache.get(beanName);
-        return (object != NULL_OBJECT ? object : null);
+        return unwrapCachedObject(this.factoryBeanObjectCache.get(beanName));
     }
 
     protected Object getObjectFromFactoryBean(FactoryBean factory, String beanName) {
-        if (factory.isSingleton()) {
-            Object object = this.factoryBeanObjectCache.get(beanName);
-            if (object == null) {
-                object = doGetObjectFromFactoryBean(factory, beanName);
-                this.factoryBeanObjectCache.put(beanName, (object != null ? object : NULL_OBJECT));
+        if (!factory.isSingleton()) {
+            return doGetObjectFromFactoryBean(factory, beanName);
+        }
+        Object cached = this.factoryBeanObjectCache.get(beanName);
+        if (cached != null) {
+            return unwrapCachedObject(cached);
+        }
+
+        FutureTask<Object> task = new FutureTask<>(() -> createCachedObject(factory, beanName));
+        FutureTask<Object> existingTask = this.factoryBeanObjectsInCreation.putIfAbsent(beanName, task);
+        if (null == existingTask) {
+            Set<String> currentObjects = this.currentFactoryBeanObjects.get();
+            currentObjects.add(beanName);
+            try {
+                task.run();
+            } finally {
+                currentObjects.remove(beanName);
+                this.factoryBeanObjectsInCreation.remove(beanName, task);
             }
-            return (object != NULL_OBJECT ? object : null);
+        } else if (this.currentFactoryBeanObjects.get().contains(beanName)) {
+            // getObject 中又获取了自己，等待自己的创建结果会死锁
+            throw new BeansException("FactoryBean object[" + beanName + "] is currently in creation: circular reference from its getObject method");
         } else {
-            return doGetObjectFromFactoryBean(factory, beanName);
+            task = existingTask;
+        }
+
+        try {
+            return unwrapCachedObject(task.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BeansException) throw (BeansException) e.getCause();
+            throw new BeansException("FactoryBean threw exception on object[" + beanName + "] creation", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeansException("Interrupted while waiting for FactoryBean object[" + beanName + "]", e);
+        }
+    }
+
+    /**
+     * 创建对象并放入缓存，放入缓存后再结束创建任务，之后的访问直接命中缓存
+     */
+    private Object createCachedObject(FactoryBean factory, String beanName) {
+        Object cached = this.factoryBeanObjectCache.get(beanName);
+        if (cached != null) {
+            return cached;
+        }
+        Object object = doGetObjectFromFactoryBean(factory, beanName);
+        if (factory instanceof RefreshableFactoryBean && ((RefreshableFactoryBean<?>) factory).getTimeToLiveMillis() > 0) {
+            cached = new RefreshableObject((RefreshableFactoryBean<?>) factory, beanName, object);
+        } else {
+            cached = object != null ? object : NULL_OBJECT;
+        }
+        this.factoryBeanObjectCache.put(beanName, cached);
+        return cached;
+    }
+
+    private Object unwrapCachedObject(Object cached) {
+        if (cached instanceof RefreshableObject) {
+            return ((RefreshableObject) cached).get();
         }
+        return (cached != NULL_OBJECT ? cached : null);
     }
 
     private Object doGetObjectFromFactoryBean(final FactoryBean factory, final String beanName){
@@ -48,4 +124,263 @@ public abstract class FactoryBeanRegistrySupport extends DefaultSingletonBeanReg
         }
     }
 
+    private ExecutorService getRefreshExecutor() {
+        ExecutorService executor = this.refreshExecutor;
+        if (null == executor) {
+            synchronized (this.factoryBeanObjectCache) {
+                executor = this.refreshExecutor;
+                if (null == executor) {
+                    executor = Executors.newCachedThreadPool(newDaemonThreadFactory("small-spring-factory-bean-refresh-"));
+                    this.refreshExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private ScheduledExecutorService getDestroyScheduler() {
+        ScheduledExecutorService scheduler = this.destroyScheduler;
+        if (null == scheduler) {
+            synchronized (this.factoryBeanObjectCache) {
+                scheduler = this.destroyScheduler;
+                if (null == scheduler) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory("small-spring-factory-bean-destroy-"));
+                    this.destroyScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    private static ThreadFactory newDaemonThreadFactory(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 后台线程中的失败没有调用方可以接收，交给当前线程的 UncaughtExceptionHandler
+     */
+    private static void reportFailure(Throwable failure) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+    }
+
+    @Override
+    public void destroySingleton(String beanName) {
+        super.destroySingleton(beanName);
+        Object cached = this.factoryBeanObjectCache.remove(beanName);
+        if (cached instanceof RefreshableObject) {
+            ((RefreshableObject) cached).close();
+        }
+    }
+
+    @Override
+    public void destroySingletons() {
+        // 先关闭 RefreshableFactoryBean 的当前对象，仍在执行的后台刷新结束后销毁自己的结果
+        BeansException retiredFailure = null;
+        for (Map.Entry<String, Object> entry : this.factoryBeanObjectCache.entrySet()) {
+            if (!(entry.getValue() instanceof RefreshableObject) || !this.factoryBeanObjectCache.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            try {
+                ((RefreshableObject) entry.getValue()).close();
+            } catch (BeansException e) {
+                if (null == retiredFailure) {
+                    retiredFailure = e;
+                } else {
+                    retiredFailure.addSuppressed(e);
+                }
+            }
+        }
+
+        ExecutorService executor = this.refreshExecutor;
+        if (null != executor) {
+            executor.shutdownNow();
+            this.refreshExecutor = null;
+        }
+        ScheduledExecutorService scheduler = this.destroyScheduler;
+        if (null != scheduler) {
+            scheduler.shutdownNow();
+            this.destroyScheduler = null;
+        }
+
+        // 等待延迟销毁的旧对象不再等待，与其他单例一起销毁，失败汇总抛出
+        for (RetiredObject retired : retiredObjects.toArray(new RetiredObject[0])) {
+            try {
+                retired.destroy();
+            } catch (BeansException e) {
+                if (null == retiredFailure) {
+                    retiredFailure = e;
+                } else {
+                    retiredFailure.addSuppressed(e);
+                }
+            }
+        }
+        try {
+            super.destroySingletons();
+        } catch (BeansException e) {
+            if (null != retiredFailure) e.addSuppressed(retiredFailure);
+            throw e;
+        }
+        if (null != retiredFailure) {
+            throw retiredFailure;
+        }
+    }
+
+    /**
+     * RefreshableFactoryBean 创建的对象：过期后第一个访问的线程提交后台刷新，所有线程继续返回当前对象；
+     * 被替换的旧对象延迟销毁。缓存项被移除（Bean 销毁、容器关闭）时关闭，销毁当前对象，之后不再刷新
+     */
+    private final class RefreshableObject {
+
+        private final RefreshableFactoryBean<Object> factory;
+
+        private final String beanName;
+
+        private volatile Object object;
+
+        private volatile long expiresAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private volatile boolean closed;
+
+        @SuppressWarnings("unchecked")
+        RefreshableObject(RefreshableFactoryBean<?> factory, String beanName, Object object) {
+            this.factory = (RefreshableFactoryBean<Object>) factory;
+            this.beanName = beanName;
+            this.object = object;
+            this.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(factory.getTimeToLiveMillis());
+        }
+
+        Object get() {
+            if (System.nanoTime() - expiresAt >= 0 && !closed && refreshing.compareAndSet(false, true)) {
+                try {
+                    getRefreshExecutor().execute(this::refresh);
+                } catch (RejectedExecutionException e) {
+                    // 容器正在关闭
+                    refreshing.set(false);
+                }
+            }
+            return object;
+        }
+
+        private void refresh() {
+            RuntimeException failure = null;
+            try {
+                Object newObject = doGetObjectFromFactoryBean(factory, beanName);
+                Object oldObject;
+                boolean discard;
+                synchronized (this) {
+                    oldObject = this.object;
+                    // 刷新期间缓存项已被移除，新对象没有人能拿到，直接销毁
+                    discard = closed;
+                    if (!discard) {
+                        this.object = newObject;
+                        this.expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(factory.getTimeToLiveMillis());
+                    }
+                }
+                if (discard) {
+                    if (null != newObject && oldObject != newObject) {
+                        destroyObject(newObject);
+                    }
+                } else if (null != oldObject && oldObject != newObject) {
+                    retire(oldObject);
+                }
+            } catch (RuntimeException e) {
+                // 刷新失败保留旧对象，下一次访问再重试
+                failure = e;
+            } finally {
+                refreshing.set(false);
+            }
+            if (null != failure) {
+                reportFailure(failure);
+            }
+        }
+
+        /**
+         * 关闭后不再刷新，当前对象立即销毁；之后才完成的后台刷新销毁自己的结果
+         */
+        void close() throws BeansException {
+            Object current;
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+                current = this.object;
+            }
+            if (null != current) {
+                destroyObject(current);
+            }
+        }
+
+        private void destroyObject(Object object) throws BeansException {
+            try {
+                factory.destroyObject(object);
+            } catch (Exception e) {
+                throw new BeansException("Destroy of object of FactoryBean '" + beanName + "' threw an exception", e);
+            }
+        }
+
+        /**
+         * 其他线程可能刚刚拿到旧对象还在使用，等待一段时间后再销毁
+         */
+        private void retire(Object oldObject) {
+            RetiredObject retired = new RetiredObject(factory, beanName, oldObject);
+            long delay = factory.getDestroyDelayMillis();
+            if (delay <= 0) {
+                retired.destroy();
+                return;
+            }
+            retiredObjects.add(retired);
+            try {
+                getDestroyScheduler().schedule(() -> {
+                    try {
+                        retired.destroy();
+                    } catch (BeansException e) {
+                        reportFailure(e);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 容器正在关闭
+                retired.destroy();
+            }
+        }
+
+    }
+
+    /**
+     * 被替换下来等待销毁的旧对象，只销毁一次
+     */
+    private final class RetiredObject {
+
+        private final RefreshableFactoryBean<Object> factory;
+
+        private final String beanName;
+
+        private final Object object;
+
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        RetiredObject(RefreshableFactoryBean<Object> factory, String beanName, Object object) {
+            this.factory = factory;
+            this.beanName = beanName;
+            this.object = object;
+        }
+
+        void destroy() throws BeansException {
+            if (!destroyed.compareAndSet(false, true)) return;
+            retiredObjects.remove(this);
+            try {
+                factory.destroyObject(object);
+            } catch (Exception e) {
+                throw new BeansException("Destroy of replaced object of FactoryBean '" + beanName + "' threw an exception", e);
+            }
+        }
+
+    }
+
 }
@@ -18,7 +18,8 @@ public class SimpleInstantiationStrategy implements InstantiationStrategy {
         Class clazz = beanDefinition.getBeanClass();
         try {
             if (null != ctor) {
-                return clazz.getDeclaredConstructor(ctor.getParameterTypes()).newInstance(args);
+                ctor.setAccessible(true);
+                return ctor.newInstance(args);
             } else {
                 return clazz.getDeclaredConstructor().newInstance();
             }
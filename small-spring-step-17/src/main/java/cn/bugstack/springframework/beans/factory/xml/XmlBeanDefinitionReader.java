@@ -4,20 +4,41 @@ import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.PropertyValue;
 import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
 import cn.bugstack.springframework.beans.factory.config.BeanReference;
+import cn.bugstack.springframework.beans.factory.config.ConfigurableBeanFactory;
+import cn.bugstack.springframework.beans.factory.config.PoolConfig;
 import cn.bugstack.springframework.beans.factory.support.AbstractBeanDefinitionReader;
 import cn.bugstack.springframework.beans.factory.support.BeanDefinitionRegistry;
 import cn.bugstack.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import cn.bugstack.springframework.core.io.ByteBufferInputStream;
 import cn.bugstack.springframework.core.io.Resource;
 import cn.bugstack.springframework.core.io.ResourceLoader;
+import cn.bugstack.springframework.core.io.support.ResourcePatternResolver;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
+import cn.bugstack.springframework.core.metrics.StartupStep;
 import cn.hutool.core.util.StrUtil;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Bean definition reader for XML bean definitions.
@@ -28,6 +49,19 @@ import java.util.List;
  */
 public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
 
+    private final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    private boolean streaming = false;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private StartupRecorder startupRecorder = StartupRecorder.DEFAULT;
+
+    /**
+     * component-scan 扫描过的包，多个配置文件可能并行解析
+     */
+    private final Set<String> scannedPackages = ConcurrentHashMap.newKeySet();
+
     public XmlBeanDefinitionReader(BeanDefinitionRegistry registry) {
         super(registry);
     }
@@ -36,43 +70,186 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
         super(registry, resourceLoader);
     }
 
+    /**
+     * 开启后使用 StAX 流式解析，边读取边注册 BeanDefinition，不在内存中构建完整的 Document
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 并行解析多个配置文件时使用的线程数，设置为 1 时逐个解析
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 已加载的配置中 component-scan 扫描过的包
+     */
+    public Set<String> getScannedPackages() {
+        return Collections.unmodifiableSet(scannedPackages);
+    }
+
+    public void setStartupRecorder(StartupRecorder startupRecorder) {
+        this.startupRecorder = null != startupRecorder ? startupRecorder : StartupRecorder.DEFAULT;
+    }
+
     @Override
     public void loadBeanDefinitions(Resource resource) throws BeansException {
+        StartupStep step = startupRecorder.start("spring.beans.xml.parse").tag("resource", String.valueOf(resource));
+        try {
+            parseResource(resource, new RegistryBeanDefinitionSink(getRegistry()));
+        } finally {
+            step.end();
+        }
+    }
+
+    private void parseResource(Resource resource, BeanDefinitionSink sink) throws BeansException {
         try {
-            try (InputStream inputStream = resource.getInputStream()) {
-                doLoadBeanDefinitions(inputStream);
+            try (InputStream inputStream = openInputStream(resource)) {
+                if (streaming) {
+                    doLoadBeanDefinitionsStreaming(inputStream, sink);
+                } else {
+                    doLoadBeanDefinitions(inputStream, sink);
+                }
             }
-        } catch (IOException | ClassNotFoundException | DocumentException e) {
+        } catch (IOException | ClassNotFoundException | DocumentException | XMLStreamException e) {
             throw new BeansException("IOException parsing XML document from " + resource, e);
         }
     }
 
+    /**
+     * 文件资源读取 {@link Resource#asByteBuffer()}，不经过流缓冲区复制，其他资源使用输入流
+     */
+    private static InputStream openInputStream(Resource resource) throws IOException {
+        ByteBuffer buffer = resource.asByteBuffer();
+        return null != buffer ? new ByteBufferInputStream(buffer) : resource.getInputStream();
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     @Override
     public void loadBeanDefinitions(Resource... resources) throws BeansException {
-        for (Resource resource : resources) {
-            loadBeanDefinitions(resource);
+        if (resources.length < 2 || parallelism < 2) {
+            for (Resource resource : resources) {
+                loadBeanDefinitions(resource);
+            }
+            return;
         }
+        loadBeanDefinitionsInParallel(resources);
     }
 
     @Override
     public void loadBeanDefinitions(String location) throws BeansException {
-        ResourceLoader resourceLoader = getResourceLoader();
-        Resource resource = resourceLoader.getResource(location);
-        loadBeanDefinitions(resource);
+        loadBeanDefinitions(new String[]{location});
     }
 
     @Override
     public void loadBeanDefinitions(String... locations) throws BeansException {
+        List<Resource> resources = new ArrayList<>();
         for (String location : locations) {
-            loadBeanDefinitions(location);
+            Collections.addAll(resources, resolveResources(location));
+        }
+        loadBeanDefinitions(resources.toArray(new Resource[0]));
+    }
+
+    /**
+     * ResourceLoader 支持通配符时，一个配置位置可以匹配多个文件，例如 classpath*:META-INF/beans/**&#47;*.xml
+     */
+    private Resource[] resolveResources(String location) throws BeansException {
+        ResourceLoader resourceLoader = getResourceLoader();
+        if (resourceLoader instanceof ResourcePatternResolver) {
+            try {
+                return ((ResourcePatternResolver) resourceLoader).getResources(location);
+            } catch (IOException e) {
+                throw new BeansException("Could not resolve bean definition resource pattern [" + location + "]", e);
+            }
+        }
+        return new Resource[]{resourceLoader.getResource(location)};
+    }
+
+    /**
+     * 并行解析多个配置文件，每个文件的注册操作先记录下来，全部解析完成后按照声明顺序回放到注册表中。
+     * 重名检查在回放时进行，结果与逐个解析完全一致；某个文件解析失败时，先回放它之前的文件和它已解析的部分，再抛出异常
+     */
+    protected void loadBeanDefinitionsInParallel(Resource... resources) throws BeansException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, resources.length));
+        List<Future<RecordingBeanDefinitionSink>> futures = new ArrayList<>(resources.length);
+        try {
+            // 1. 并行解析，组件扫描依赖线程上下文类加载器，与调用线程保持一致
+            for (Resource resource : resources) {
+                futures.add(pool.submit(() -> {
+                    Thread thread = Thread.currentThread();
+                    ClassLoader original = thread.getContextClassLoader();
+                    thread.setContextClassLoader(classLoader);
+                    RecordingBeanDefinitionSink sink = new RecordingBeanDefinitionSink();
+                    StartupStep step = startupRecorder.start("spring.beans.xml.parse").tag("resource", String.valueOf(resource));
+                    try {
+                        parseResource(resource, sink);
+                    } catch (RuntimeException e) {
+                        sink.failure = e;
+                    } finally {
+                        step.end();
+                        thread.setContextClassLoader(original);
+                    }
+                    return sink;
+                }));
+            }
+
+            // 2. 按声明顺序回放
+            StartupStep step = startupRecorder.start("spring.beans.xml.register").tag("resources", String.valueOf(resources.length));
+            try {
+                for (Future<RecordingBeanDefinitionSink> future : futures) {
+                    RecordingBeanDefinitionSink sink = future.get();
+                    sink.replay(getRegistry());
+                    if (null != sink.failure) {
+                        throw sink.failure;
+                    }
+                }
+            } finally {
+                step.end();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeansException("Interrupted while loading bean definitions", e);
+        } catch (ExecutionException e) {
+            throw new BeansException("Parallel loading of bean definitions failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
     }
 
     protected void doLoadBeanDefinitions(InputStream inputStream) throws ClassNotFoundException, DocumentException {
+        doLoadBeanDefinitions(inputStream, new RegistryBeanDefinitionSink(getRegistry()));
+    }
+
+    private void doLoadBeanDefinitions(InputStream inputStream, BeanDefinitionSink sink) throws ClassNotFoundException, DocumentException {
         SAXReader reader = new SAXReader();
         Document document = reader.read(inputStream);
         Element root = document.getRootElement();
 
+        // 根节点 default-lazy-init 配置全局的懒加载默认值
+        boolean defaultLazyInit = Boolean.parseBoolean(root.attributeValue("default-lazy-init"));
+
         // 解析 context:component-scan 标签，扫描包中的类并提取相关信息，用于组装 BeanDefinition
         Element componentScan = root.element("component-scan");
         if (null != componentScan) {
@@ -80,61 +257,295 @@ public class XmlBeanDefinitionReader extends AbstractBeanDefinitionReader {
             if (StrUtil.isEmpty(scanPath)) {
                 throw new BeansException("The value of base-package attribute can not be empty or null");
             }
-            scanPackage(scanPath);
+            scanPackage(sink, scanPath, defaultLazyInit);
         }
 
         List<Element> beanList = root.elements("bean");
         for (Element bean : beanList) {
-
-            String id = bean.attributeValue("id");
-            String name = bean.attributeValue("name");
-            String className = bean.attributeValue("class");
-            String initMethod = bean.attributeValue("init-method");
-            String destroyMethodName = bean.attributeValue("destroy-method");
-            String beanScope = bean.attributeValue("scope");
-
-            // 获取 Class，方便获取类中的名称
-            Class<?> clazz = Class.forName(className);
-            // 优先级 id > name
-            String beanName = StrUtil.isNotEmpty(id) ? id : name;
-            if (StrUtil.isEmpty(beanName)) {
-                beanName = StrUtil.lowerFirst(clazz.getSimpleName());
-            }
-
-            // 定义Bean
-            BeanDefinition beanDefinition = new BeanDefinition(clazz);
-            beanDefinition.setInitMethodName(initMethod);
-            beanDefinition.setDestroyMethodName(destroyMethodName);
-
-            if (StrUtil.isNotEmpty(beanScope)) {
-                beanDefinition.setScope(beanScope);
-            }
+            BeanDefinitionHolder holder = createBeanDefinition(bean.attributeValue("id"), bean.attributeValue("name"),
+                    bean.attributeValue("class"), bean.attributeValue("init-method"), bean.attributeValue("destroy-method"),
+                    bean.attributeValue("scope"), bean.attributeValue("lazy-init"), defaultLazyInit);
+            applyPoolConfig(holder, bean.attributeValue("pool-max-size"), bean.attributeValue("pool-min-idle"),
+                    bean.attributeValue("pool-max-idle-time"), bean.attributeValue("pool-max-wait"));
 
             List<Element> propertyList = bean.elements("property");
             // 读取属性并填充
             for (Element property : propertyList) {
-                // 解析标签：property
-                String attrName = property.attributeValue("name");
-                String attrValue = property.attributeValue("value");
-                String attrRef = property.attributeValue("ref");
-                // 获取属性值：引入对象、值对象
-                Object value = StrUtil.isNotEmpty(attrRef) ? new BeanReference(attrRef) : attrValue;
-                // 创建属性信息
-                PropertyValue propertyValue = new PropertyValue(attrName, value);
-                beanDefinition.getPropertyValues().addPropertyValue(propertyValue);
+                addPropertyValue(holder.beanDefinition, property.attributeValue("name"), property.attributeValue("value"), property.attributeValue("ref"));
             }
-            if (getRegistry().containsBeanDefinition(beanName)) {
-                throw new BeansException("Duplicate beanName[" + beanName + "] is not allowed");
+            sink.registerXmlBeanDefinition(holder);
+        }
+    }
+
+    /**
+     * 流式解析，语义与 {@link #doLoadBeanDefinitions(InputStream)} 一致：只处理根节点下的 bean、component-scan
+     * 以及 bean 下的 property。component-scan 出现在 bean 之后时，扫描到的组件与前面的 bean 重名同样报错
+     */
+    protected void doLoadBeanDefinitionsStreaming(InputStream inputStream) throws ClassNotFoundException, XMLStreamException {
+        doLoadBeanDefinitionsStreaming(inputStream, new RegistryBeanDefinitionSink(getRegistry()));
+    }
+
+    private void doLoadBeanDefinitionsStreaming(InputStream inputStream, BeanDefinitionSink sink) throws ClassNotFoundException, XMLStreamException {
+        XMLStreamReader reader;
+        synchronized (xmlInputFactory) {
+            reader = xmlInputFactory.createXMLStreamReader(inputStream);
+        }
+        try {
+            boolean defaultLazyInit = false;
+            boolean scanned = false;
+            BeanDefinitionHolder current = null;
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String localName = reader.getLocalName();
+                    if (depth == 1) {
+                        // 根节点 default-lazy-init 配置全局的懒加载默认值
+                        defaultLazyInit = Boolean.parseBoolean(reader.getAttributeValue(null, "default-lazy-init"));
+                    } else if (depth == 2 && "component-scan".equals(localName) && !scanned) {
+                        String scanPath = reader.getAttributeValue(null, "base-package");
+                        if (StrUtil.isEmpty(scanPath)) {
+                            throw new BeansException("The value of base-package attribute can not be empty or null");
+                        }
+                        scanned = true;
+                        scanPackage(sink, scanPath, defaultLazyInit);
+                    } else if (depth == 2 && "bean".equals(localName)) {
+                        current = createBeanDefinition(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "name"),
+                                reader.getAttributeValue(null, "class"), reader.getAttributeValue(null, "init-method"), reader.getAttributeValue(null, "destroy-method"),
+                                reader.getAttributeValue(null, "scope"), reader.getAttributeValue(null, "lazy-init"), defaultLazyInit);
+                        applyPoolConfig(current, reader.getAttributeValue(null, "pool-max-size"), reader.getAttributeValue(null, "pool-min-idle"),
+                                reader.getAttributeValue(null, "pool-max-idle-time"), reader.getAttributeValue(null, "pool-max-wait"));
+                    } else if (depth == 3 && null != current && "property".equals(localName)) {
+                        addPropertyValue(current.beanDefinition, reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"), reader.getAttributeValue(null, "ref"));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    // bean 标签结束时注册，属性已经全部读取
+                    if (depth == 2 && null != current) {
+                        sink.registerXmlBeanDefinition(current);
+                        current = null;
+                    }
+                    depth--;
+                }
             }
-            // 注册 BeanDefinition
-            getRegistry().registerBeanDefinition(beanName, beanDefinition);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private BeanDefinitionHolder createBeanDefinition(String id, String name, String className, String initMethod, String destroyMethodName,
+                                                      String beanScope, String lazyInit, boolean defaultLazyInit) throws ClassNotFoundException {
+        // 获取 Class，方便获取类中的名称
+        Class<?> clazz = Class.forName(className);
+        // 优先级 id > name
+        String beanName = StrUtil.isNotEmpty(id) ? id : name;
+        if (StrUtil.isEmpty(beanName)) {
+            beanName = StrUtil.lowerFirst(clazz.getSimpleName());
         }
+
+        // 定义Bean
+        BeanDefinition beanDefinition = new BeanDefinition(clazz);
+        beanDefinition.setInitMethodName(initMethod);
+        beanDefinition.setDestroyMethodName(destroyMethodName);
+
+        if (StrUtil.isNotEmpty(beanScope)) {
+            beanDefinition.setScope(beanScope);
+        }
+
+        // lazy-init 未配置或配置为 default 时使用全局默认值
+        if (StrUtil.isEmpty(lazyInit) || "default".equals(lazyInit)) {
+            beanDefinition.setLazyInit(defaultLazyInit);
+        } else {
+            beanDefinition.setLazyInit(Boolean.parseBoolean(lazyInit));
+        }
+        return new BeanDefinitionHolder(beanName, beanDefinition);
     }
 
-    private void scanPackage(String scanPath) {
+    /**
+     * 读取 pooled 作用域的对象池配置，时间单位为毫秒；都未配置时不创建 PoolConfig，使用默认配置
+     */
+    private void applyPoolConfig(BeanDefinitionHolder holder, String maxSize, String minIdle, String maxIdleTime, String maxWait) {
+        if (StrUtil.isAllEmpty(maxSize, minIdle, maxIdleTime, maxWait)) return;
+        if (!holder.beanDefinition.isPooled()) {
+            throw new BeansException("Pool attributes of bean '" + holder.beanName + "' require scope \"" + ConfigurableBeanFactory.SCOPE_POOLED + "\"");
+        }
+        PoolConfig poolConfig = new PoolConfig();
+        try {
+            if (StrUtil.isNotEmpty(maxSize)) poolConfig.setMaxSize(Integer.parseInt(maxSize.trim()));
+            if (StrUtil.isNotEmpty(minIdle)) poolConfig.setMinIdle(Integer.parseInt(minIdle.trim()));
+            if (StrUtil.isNotEmpty(maxIdleTime)) poolConfig.setMaxIdleMillis(Long.parseLong(maxIdleTime.trim()));
+            if (StrUtil.isNotEmpty(maxWait)) poolConfig.setMaxWaitMillis(Long.parseLong(maxWait.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new BeansException("Invalid pool attributes of bean '" + holder.beanName + "'", e);
+        }
+        holder.beanDefinition.setPoolConfig(poolConfig);
+    }
+
+    private void addPropertyValue(BeanDefinition beanDefinition, String attrName, String attrValue, String attrRef) {
+        // 获取属性值：引入对象、值对象
+        Object value = StrUtil.isNotEmpty(attrRef) ? new BeanReference(attrRef) : attrValue;
+        // 创建属性信息
+        beanDefinition.getPropertyValues().addPropertyValue(new PropertyValue(attrName, value));
+    }
+
+    private static void registerBeanDefinition(BeanDefinitionRegistry registry, BeanDefinitionHolder holder) {
+        if (registry.containsBeanDefinition(holder.beanName)) {
+            throw new BeansException("Duplicate beanName[" + holder.beanName + "] is not allowed");
+        }
+        // 注册 BeanDefinition
+        registry.registerBeanDefinition(holder.beanName, holder.beanDefinition);
+    }
+
+    private void scanPackage(BeanDefinitionRegistry registry, String scanPath, boolean defaultLazyInit) {
         String[] basePackages = StrUtil.splitToArray(scanPath, ',');
-        ClassPathBeanDefinitionScanner scanner = new ClassPathBeanDefinitionScanner(getRegistry());
+        for (String basePackage : basePackages) {
+            scannedPackages.add(basePackage.trim());
+        }
+        ClassPathBeanDefinitionScanner scanner = new ClassPathBeanDefinitionScanner(registry);
+        scanner.setDefaultLazyInit(defaultLazyInit);
         scanner.doScan(basePackages);
     }
 
+    private static class BeanDefinitionHolder {
+
+        private final String beanName;
+
+        private final BeanDefinition beanDefinition;
+
+        BeanDefinitionHolder(String beanName, BeanDefinition beanDefinition) {
+            this.beanName = beanName;
+            this.beanDefinition = beanDefinition;
+        }
+
+    }
+
+    /**
+     * 解析结果的去向。流式解析时 component-scan 可能出现在 bean 之后，记录已注册的 XML Bean，
+     * 扫描到重名组件时报错，与先扫描再注册 XML Bean 时的重名检查保持一致
+     */
+    private abstract static class BeanDefinitionSink implements BeanDefinitionRegistry {
+
+        private final Set<String> xmlBeanNames = new HashSet<>();
+
+        void registerXmlBeanDefinition(BeanDefinitionHolder holder) {
+            addXmlBeanDefinition(holder);
+            xmlBeanNames.add(holder.beanName);
+        }
+
+        @Override
+        public void registerBeanDefinition(String beanName, BeanDefinition beanDefinition) {
+            if (xmlBeanNames.contains(beanName)) {
+                throw new BeansException("Duplicate beanName[" + beanName + "] is not allowed");
+            }
+            addScannedBeanDefinition(beanName, beanDefinition);
+        }
+
+        protected abstract void addXmlBeanDefinition(BeanDefinitionHolder holder);
+
+        protected abstract void addScannedBeanDefinition(String beanName, BeanDefinition beanDefinition);
+
+    }
+
+    /**
+     * 直接注册到注册表
+     */
+    private static class RegistryBeanDefinitionSink extends BeanDefinitionSink {
+
+        private final BeanDefinitionRegistry registry;
+
+        RegistryBeanDefinitionSink(BeanDefinitionRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        protected void addXmlBeanDefinition(BeanDefinitionHolder holder) {
+            XmlBeanDefinitionReader.registerBeanDefinition(registry, holder);
+        }
+
+        @Override
+        protected void addScannedBeanDefinition(String beanName, BeanDefinition beanDefinition) {
+            registry.registerBeanDefinition(beanName, beanDefinition);
+        }
+
+        @Override
+        public BeanDefinition getBeanDefinition(String beanName) throws BeansException {
+            return registry.getBeanDefinition(beanName);
+        }
+
+        @Override
+        public boolean containsBeanDefinition(String beanName) {
+            return registry.containsBeanDefinition(beanName);
+        }
+
+        @Override
+        public String[] getBeanDefinitionNames() {
+            return registry.getBeanDefinitionNames();
+        }
+
+    }
+
+    /**
+     * 并行解析时记录注册操作，之后在调用线程中按顺序回放；XML Bean 的重名检查推迟到回放时进行
+     */
+    private static class RecordingBeanDefinitionSink extends BeanDefinitionSink {
+
+        private final List<BeanDefinitionHolder> registrations = new ArrayList<>();
+
+        /**
+         * 与 registrations 一一对应，是否是 XML 中定义的 Bean
+         */
+        private final List<Boolean> xmlRegistrations = new ArrayList<>();
+
+        private final Map<String, BeanDefinition> beanDefinitions = new LinkedHashMap<>();
+
+        private RuntimeException failure;
+
+        @Override
+        protected void addXmlBeanDefinition(BeanDefinitionHolder holder) {
+            record(holder, true);
+        }
+
+        @Override
+        protected void addScannedBeanDefinition(String beanName, BeanDefinition beanDefinition) {
+            record(new BeanDefinitionHolder(beanName, beanDefinition), false);
+        }
+
+        private void record(BeanDefinitionHolder holder, boolean xml) {
+            registrations.add(holder);
+            xmlRegistrations.add(xml);
+            beanDefinitions.put(holder.beanName, holder.beanDefinition);
+        }
+
+        void replay(BeanDefinitionRegistry registry) {
+            for (int i = 0; i < registrations.size(); i++) {
+                BeanDefinitionHolder holder = registrations.get(i);
+                if (xmlRegistrations.get(i)) {
+                    XmlBeanDefinitionReader.registerBeanDefinition(registry, holder);
+                } else {
+                    registry.registerBeanDefinition(holder.beanName, holder.beanDefinition);
+                }
+            }
+        }
+
+        @Override
+        public BeanDefinition getBeanDefinition(String beanName) throws BeansException {
+            BeanDefinition beanDefinition = beanDefinitions.get(beanName);
+            if (null == beanDefinition) {
+                throw new BeansException("No bean named '" + beanName + "' is defined");
+            }
+            return beanDefinition;
+        }
+
+        @Override
+        public boolean containsBeanDefinition(String beanName) {
+            return beanDefinitions.containsKey(beanName);
+        }
+
+        @Override
+        public String[] getBeanDefinitionNames() {
+            return beanDefinitions.keySet().toArray(new String[0]);
+        }
+
+    }
+
 }
@@ -2,7 +2,7 @@ package cn.bugstack.springframework.context;
 
 import cn.bugstack.springframework.beans.factory.HierarchicalBeanFactory;
 import cn.bugstack.springframework.beans.factory.ListableBeanFactory;
-import cn.bugstack.springframework.core.io.ResourceLoader;
+import cn.bugstack.springframework.core.io.support.ResourcePatternResolver;
 
 /**
  * Central interface to provide configuration for an application.
@@ -15,5 +15,5 @@ import cn.bugstack.springframework.core.io.ResourceLoader;
  * 公众号：bugstack虫洞栈
  * Create by 小傅哥(fustack)
  */
-public interface ApplicationContext extends ListableBeanFactory, HierarchicalBeanFactory, ResourceLoader, ApplicationEventPublisher {
+public interface ApplicationContext extends ListableBeanFactory, HierarchicalBeanFactory, ResourcePatternResolver, ApplicationEventPublisher {
 }
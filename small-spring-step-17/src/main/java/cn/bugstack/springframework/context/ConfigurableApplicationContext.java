@@ -1,6 +1,7 @@
 package cn.bugstack.springframework.context;
 
 import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
 
 /**
  * SPI interface to be implemented by most if not all application contexts.
@@ -23,6 +24,16 @@ public interface ConfigurableApplicationContext extends ApplicationContext {
 
     void registerShutdownHook();
 
+    /**
+     * Set the {@link StartupRecorder} for this application context.
+     * <p>This allows the application context to record metrics during startup.
+     * <p>
+     * 设置启动过程埋点，需要在 refresh 之前设置；实现了 ApplicationListener 的 StartupRecorder 会收到容器事件
+     */
+    void setStartupRecorder(StartupRecorder startupRecorder);
+
+    StartupRecorder getStartupRecorder();
+
     void close();
 
 }
@@ -0,0 +1,171 @@
+package cn.bugstack.springframework.context.annotation;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Finds component candidates by reading class files from directories and jars
+ * through NIO {@link FileSystem}s, without loading any class.
+ * <p>
+ * 字节码级别的组件扫描：并行读取包下的 class 文件，通过 {@link ClassFileMetadata} 判断类上是否有
+ * {@link Component} 注解（包括被 @Component 标注的自定义注解），确认是组件后才由调用方加载类
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class ClassFileComponentScanner {
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private static final String COMPONENT_ANNOTATION = Component.class.getName();
+
+    private final ClassLoader classLoader;
+
+    /**
+     * 注解类名 --> 是否被 @Component 直接或间接标注
+     */
+    private final Map<String, Boolean> stereotypeCache = new ConcurrentHashMap<>();
+
+    public ClassFileComponentScanner(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 扫描包及子包下的组件，按类名排序返回
+     */
+    public List<ClassFileMetadata> findCandidateComponents(String basePackage) {
+        String packagePath = basePackage.replace('.', '/');
+        List<FileSystem> openedFileSystems = new ArrayList<>();
+        try {
+            // 1. 收集所有 class 文件路径，目录直接遍历，jar 包通过 zip FileSystem 遍历
+            List<Path> classFiles = new ArrayList<>();
+            Enumeration<URL> urls = classLoader.getResources(packagePath);
+            while (urls.hasMoreElements()) {
+                Path root = resolveRoot(urls.nextElement(), packagePath, openedFileSystems);
+                if (null == root) continue;
+                try (Stream<Path> paths = Files.walk(root)) {
+                    paths.filter(path -> path.toString().endsWith(CLASS_FILE_SUFFIX) && Files.isRegularFile(path))
+                            .forEach(classFiles::add);
+                }
+            }
+
+            // 2. 并行解析 class 文件，只保留组件
+            List<ClassFileMetadata> components = classFiles.parallelStream()
+                    .map(this::readMetadata)
+                    .filter(metadata -> metadata.isConcrete() && isComponent(metadata))
+                    .collect(Collectors.toList());
+
+            // 同一个类出现在多个位置时以第一个为准
+            Map<String, ClassFileMetadata> candidates = new TreeMap<>();
+            for (ClassFileMetadata metadata : components) {
+                candidates.putIfAbsent(metadata.getClassName(), metadata);
+            }
+            return new ArrayList<>(candidates.values());
+        } catch (IOException | UncheckedIOException e) {
+            throw new BeansException("Failed to scan classpath for package [" + basePackage + "]", e);
+        } finally {
+            for (FileSystem fileSystem : openedFileSystems) {
+                try {
+                    fileSystem.close();
+                } catch (IOException ignored) {
+                    // 关闭失败不影响扫描结果
+                }
+            }
+        }
+    }
+
+    private Path resolveRoot(URL url, String packagePath, List<FileSystem> openedFileSystems) throws IOException {
+        try {
+            if ("file".equals(url.getProtocol())) {
+                return Paths.get(url.toURI());
+            }
+            URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection) {
+                Path jarFile = Paths.get(((JarURLConnection) connection).getJarFileURL().toURI());
+                FileSystem fileSystem = FileSystems.newFileSystem(jarFile, (ClassLoader) null);
+                openedFileSystems.add(fileSystem);
+                return fileSystem.getPath("/" + packagePath);
+            }
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid classpath location [" + url + "]", e);
+        }
+        return null;
+    }
+
+    private ClassFileMetadata readMetadata(Path classFile) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(classFile))) {
+            return ClassFileMetadata.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read class file [" + classFile + "]", e);
+        }
+    }
+
+    /**
+     * 类上直接标注了 @Component，或者标注的注解本身（递归）被 @Component 标注
+     */
+    public boolean isComponent(ClassFileMetadata metadata) {
+        if (metadata.hasAnnotation(COMPONENT_ANNOTATION)) return true;
+        for (String annotationType : metadata.getAnnotationTypes()) {
+            if (isStereotype(annotationType, new HashSet<>())) return true;
+        }
+        return false;
+    }
+
+    private boolean isStereotype(String annotationType, Set<String> visited) {
+        if (COMPONENT_ANNOTATION.equals(annotationType)) return true;
+        // JDK 的元注解不会被 @Component 标注，也避免 @Documented 这类自引用注解的循环
+        if (annotationType.startsWith("java.") || !visited.add(annotationType)) return false;
+
+        Boolean cached = stereotypeCache.get(annotationType);
+        if (null != cached) return cached;
+
+        boolean stereotype = false;
+        ClassFileMetadata annotationMetadata = readAnnotationMetadata(annotationType);
+        if (null != annotationMetadata) {
+            for (String metaAnnotationType : annotationMetadata.getAnnotationTypes()) {
+                if (isStereotype(metaAnnotationType, visited)) {
+                    stereotype = true;
+                    break;
+                }
+            }
+        }
+        stereotypeCache.put(annotationType, stereotype);
+        return stereotype;
+    }
+
+    private ClassFileMetadata readAnnotationMetadata(String annotationType) {
+        String resourceName = annotationType.replace('.', '/') + CLASS_FILE_SUFFIX;
+        try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+            if (null == in) return null;
+            return ClassFileMetadata.read(new BufferedInputStream(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read annotation class file [" + resourceName + "]", e);
+        }
+    }
+
+}
@@ -0,0 +1,250 @@
+package cn.bugstack.springframework.context.annotation;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class name, access flags and runtime visible class-level annotations read
+ * directly from a class file, without loading the class.
+ * <p>
+ * 直接解析 class 文件的常量池和 RuntimeVisibleAnnotations 属性，得到类上的注解，
+ * 判断是否是组件时不需要加载类，也就不会执行静态初始化
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public final class ClassFileMetadata {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int ACC_ANNOTATION = 0x2000;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private static final String VALUE_ELEMENT = "value";
+
+    private final String className;
+
+    private final int accessFlags;
+
+    /**
+     * 注解类名 --> 注解 value 属性的字符串值，没有 value 或者 value 不是字符串时为 null
+     */
+    private final Map<String, String> annotations;
+
+    private ClassFileMetadata(String className, int accessFlags, Map<String, String> annotations) {
+        this.className = className;
+        this.accessFlags = accessFlags;
+        this.annotations = annotations;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public boolean isInterface() {
+        return (accessFlags & ACC_INTERFACE) != 0;
+    }
+
+    public boolean isAnnotation() {
+        return (accessFlags & ACC_ANNOTATION) != 0;
+    }
+
+    /**
+     * 非接口、非抽象类才能作为组件实例化
+     */
+    public boolean isConcrete() {
+        return !isInterface() && !Modifier.isAbstract(accessFlags);
+    }
+
+    public Set<String> getAnnotationTypes() {
+        return annotations.keySet();
+    }
+
+    public boolean hasAnnotation(String annotationType) {
+        return annotations.containsKey(annotationType);
+    }
+
+    public String getAnnotationValue(String annotationType) {
+        return annotations.get(annotationType);
+    }
+
+    /**
+     * 读取 class 文件，只解析常量池、访问标志、类名和类上的注解，字段和方法直接跳过
+     */
+    public static ClassFileMetadata read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        // minor_version, major_version
+        skipFully(in, 4);
+
+        // 1. 常量池：只保留 UTF8 字符串和 Class 条目指向的名称索引
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        int[] classNameIndexes = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                    classNameIndexes[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skipFully(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skipFully(in, 3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skipFully(in, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skipFully(in, 8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+
+        // 2. 访问标志、类名，跳过父类和接口
+        int accessFlags = in.readUnsignedShort();
+        String className = utf8[classNameIndexes[in.readUnsignedShort()]].replace('/', '.');
+        skipFully(in, 2);
+        skipFully(in, 2 * in.readUnsignedShort());
+
+        // 3. 跳过字段和方法
+        skipMembers(in);
+        skipMembers(in);
+
+        // 4. 类属性中的 RuntimeVisibleAnnotations
+        Map<String, String> annotations = Collections.emptyMap();
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            String attributeName = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+                annotations = readAnnotations(in, utf8);
+            } else {
+                skipFully(in, length);
+            }
+        }
+        return new ClassFileMetadata(className, accessFlags, annotations);
+    }
+
+    private static Map<String, String> readAnnotations(DataInputStream in, String[] utf8) throws IOException {
+        int count = in.readUnsignedShort();
+        Map<String, String> annotations = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String typeName = toClassName(utf8[in.readUnsignedShort()]);
+            String value = null;
+            int pairs = in.readUnsignedShort();
+            for (int j = 0; j < pairs; j++) {
+                String elementName = utf8[in.readUnsignedShort()];
+                String elementValue = readElementValue(in, utf8);
+                if (VALUE_ELEMENT.equals(elementName)) {
+                    value = elementValue;
+                }
+            }
+            annotations.put(typeName, value);
+        }
+        return annotations;
+    }
+
+    /**
+     * 读取一个注解属性值，只有字符串常量返回值，其他类型跳过
+     */
+    private static String readElementValue(DataInputStream in, String[] utf8) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 's':
+                return utf8[in.readUnsignedShort()];
+            case 'B':
+            case 'C':
+            case 'D':
+            case 'F':
+            case 'I':
+            case 'J':
+            case 'S':
+            case 'Z':
+            case 'c':
+                skipFully(in, 2);
+                return null;
+            case 'e':
+                skipFully(in, 4);
+                return null;
+            case '@':
+                skipFully(in, 2);
+                int pairs = in.readUnsignedShort();
+                for (int i = 0; i < pairs; i++) {
+                    skipFully(in, 2);
+                    readElementValue(in, utf8);
+                }
+                return null;
+            case '[':
+                int length = in.readUnsignedShort();
+                for (int i = 0; i < length; i++) {
+                    readElementValue(in, utf8);
+                }
+                return null;
+            default:
+                throw new IOException("Unknown annotation element value tag " + (char) tag);
+        }
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            // access_flags, name_index, descriptor_index
+            skipFully(in, 6);
+            int attributesCount = in.readUnsignedShort();
+            for (int j = 0; j < attributesCount; j++) {
+                skipFully(in, 2);
+                skipFully(in, in.readInt());
+            }
+        }
+    }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * 字段描述符 Lcn/bugstack/Component; 转换为类名 cn.bugstack.Component
+     */
+    private static String toClassName(String descriptor) {
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+}
@@ -21,19 +21,32 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
 
     private BeanDefinitionRegistry registry;
 
+    private boolean defaultLazyInit = false;
+
     public ClassPathBeanDefinitionScanner(BeanDefinitionRegistry registry) {
         this.registry = registry;
     }
 
+    /**
+     * 没有 @Lazy 注解的组件使用的懒加载默认值
+     */
+    public void setDefaultLazyInit(boolean defaultLazyInit) {
+        this.defaultLazyInit = defaultLazyInit;
+    }
+
     public void doScan(String... basePackages) {
         for (String basePackage : basePackages) {
             Set<BeanDefinition> candidates = findCandidateComponents(basePackage);
             for (BeanDefinition beanDefinition : candidates) {
-                // 解析 Bean 的作用域 singleton、prototype
-                String beanScope = resolveBeanScope(beanDefinition);
-                if (StrUtil.isNotEmpty(beanScope)) {
-                    beanDefinition.setScope(beanScope);
+                // 解析 Bean 的作用域 singleton、prototype，索引中的组件已经带有作用域
+                if (!(beanDefinition instanceof ScannedBeanDefinition)) {
+                    String beanScope = resolveBeanScope(beanDefinition);
+                    if (StrUtil.isNotEmpty(beanScope)) {
+                        beanDefinition.setScope(beanScope);
+                    }
                 }
+                // 解析 @Lazy 懒加载
+                beanDefinition.setLazyInit(resolveLazyInit(beanDefinition));
                 registry.registerBeanDefinition(determineBeanName(beanDefinition), beanDefinition);
             }
         }
@@ -49,10 +62,20 @@ public class ClassPathBeanDefinitionScanner extends ClassPathScanningCandidateCo
         return StrUtil.EMPTY;
     }
 
+    private boolean resolveLazyInit(BeanDefinition beanDefinition) {
+        Lazy lazy = ((Class<?>) beanDefinition.getBeanClass()).getAnnotation(Lazy.class);
+        return null != lazy ? lazy.value() : defaultLazyInit;
+    }
+
     private String determineBeanName(BeanDefinition beanDefinition) {
+        if (beanDefinition instanceof ScannedBeanDefinition) {
+            String beanName = ((ScannedBeanDefinition) beanDefinition).getBeanName();
+            if (StrUtil.isNotEmpty(beanName)) return beanName;
+        }
         Class<?> beanClass = beanDefinition.getBeanClass();
+        // 通过 @Service 这类元注解标注的组件没有 @Component，使用类名
         Component component = beanClass.getAnnotation(Component.class);
-        String value = component.value();
+        String value = null != component ? component.value() : null;
         if (StrUtil.isEmpty(value)) {
             value = StrUtil.lowerFirst(beanClass.getSimpleName());
         }
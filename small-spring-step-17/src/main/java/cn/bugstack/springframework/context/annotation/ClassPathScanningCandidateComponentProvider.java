@@ -1,29 +1,87 @@
 package cn.bugstack.springframework.context.annotation;
 
+import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+import cn.bugstack.springframework.beans.factory.config.ConfigurableBeanFactory;
+import cn.bugstack.springframework.context.index.CandidateComponentsIndex;
 import cn.bugstack.springframework.stereotype.Component;
-import cn.hutool.core.util.ClassUtil;
+import cn.bugstack.springframework.util.ClassUtils;
+import cn.hutool.core.util.StrUtil;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
  * A component provider that scans the classpath from a base package. It then
  * applies exclude and include filters to the resulting classes to find candidates.
  * <p>
+ * 优先从编译期生成的组件索引 {@link CandidateComponentsIndex} 中读取组件，只加载索引中的类；
+ * 没有索引或索引中没有该包的组件时，回退到字节码扫描 {@link ClassFileComponentScanner}，同样只加载确认是组件的类
+ * <p>
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
  * 公众号：bugstack虫洞栈
  * Create by 小傅哥(fustack)
  */
 public class ClassPathScanningCandidateComponentProvider {
 
+    private static final String COMPONENT_ANNOTATION = Component.class.getName();
+
+    private static final String SCOPE_ANNOTATION = Scope.class.getName();
+
     public Set<BeanDefinition> findCandidateComponents(String basePackage) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        CandidateComponentsIndex componentsIndex = CandidateComponentsIndex.loadIndex(classLoader);
+        if (null != componentsIndex) {
+            List<CandidateComponentsIndex.Entry> entries = componentsIndex.getCandidateEntries(basePackage);
+            if (!entries.isEmpty()) {
+                return addCandidateComponentsFromIndex(entries, classLoader);
+            }
+        }
+        return scanCandidateComponents(basePackage, classLoader);
+    }
+
+    private Set<BeanDefinition> addCandidateComponentsFromIndex(List<CandidateComponentsIndex.Entry> entries, ClassLoader classLoader) {
+        Set<BeanDefinition> candidates = new LinkedHashSet<>();
+        for (CandidateComponentsIndex.Entry entry : entries) {
+            Class<?> clazz = loadCandidateClass(entry.getClassName(), classLoader);
+            ScannedBeanDefinition beanDefinition = new ScannedBeanDefinition(clazz, entry.getBeanName());
+            if (StrUtil.isNotEmpty(entry.getScope())) {
+                beanDefinition.setScope(entry.getScope());
+            }
+            candidates.add(beanDefinition);
+        }
+        return candidates;
+    }
+
+    /**
+     * 读取 class 文件判断是否是组件，只加载确认是组件的类
+     */
+    private Set<BeanDefinition> scanCandidateComponents(String basePackage, ClassLoader classLoader) {
         Set<BeanDefinition> candidates = new LinkedHashSet<>();
-        Set<Class<?>> classes = ClassUtil.scanPackageByAnnotation(basePackage, Component.class);
-        for (Class<?> clazz : classes) {
-            candidates.add(new BeanDefinition(clazz));
+        List<ClassFileMetadata> components = new ClassFileComponentScanner(classLoader).findCandidateComponents(basePackage);
+        for (ClassFileMetadata metadata : components) {
+            Class<?> clazz = loadCandidateClass(metadata.getClassName(), classLoader);
+            String beanName = metadata.getAnnotationValue(COMPONENT_ANNOTATION);
+            if (StrUtil.isEmpty(beanName)) {
+                beanName = StrUtil.lowerFirst(clazz.getSimpleName());
+            }
+            ScannedBeanDefinition beanDefinition = new ScannedBeanDefinition(clazz, beanName);
+            if (metadata.hasAnnotation(SCOPE_ANNOTATION)) {
+                String scope = metadata.getAnnotationValue(SCOPE_ANNOTATION);
+                beanDefinition.setScope(StrUtil.isNotEmpty(scope) ? scope : ConfigurableBeanFactory.SCOPE_SINGLETON);
+            }
+            candidates.add(beanDefinition);
         }
         return candidates;
     }
 
+    private Class<?> loadCandidateClass(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new BeansException("Component class [" + className + "] not found", e);
+        }
+    }
+
 }
@@ -0,0 +1,22 @@
+package cn.bugstack.springframework.context.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Indicates whether a bean is to be lazily initialized.
+ * <p>
+ * 标注在类上时，该单例 Bean 不在容器启动时创建，第一次 getBean 或被注入时才创建；
+ * 标注在 @Autowired 字段上时，注入一个代理对象，第一次调用方法时才获取目标 Bean
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Lazy {
+
+    boolean value() default true;
+
+}
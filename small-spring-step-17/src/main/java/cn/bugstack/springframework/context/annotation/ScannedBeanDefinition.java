@@ -0,0 +1,28 @@
+package cn.bugstack.springframework.context.annotation;
+
+import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * Extension of the {@link BeanDefinition} class, for component classes that
+ * were found through the candidate components index or by reading class files.
+ * <p>
+ * 扫描得到的 BeanDefinition，携带从组件索引或 class 文件中解析出的 Bean 名称，作用域已经设置好
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class ScannedBeanDefinition extends BeanDefinition {
+
+    private final String beanName;
+
+    public ScannedBeanDefinition(Class beanClass, String beanName) {
+        super(beanClass);
+        this.beanName = beanName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+}
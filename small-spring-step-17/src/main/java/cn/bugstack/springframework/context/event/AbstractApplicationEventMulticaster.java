@@ -9,10 +9,13 @@ import cn.bugstack.springframework.util.ClassUtils;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract implementation of the {@link ApplicationEventMulticaster} interface,
@@ -26,16 +29,27 @@ public abstract class AbstractApplicationEventMulticaster implements Application
 
     public final Set<ApplicationListener<ApplicationEvent>> applicationListeners = new LinkedHashSet<>();
 
+    /**
+     * 按事件类型缓存匹配到的监听器：event class --> listeners，监听器变化时清空
+     */
+    private final Map<Class<?>, ApplicationListener[]> retrieverCache = new ConcurrentHashMap<>(64);
+
     private BeanFactory beanFactory;
 
     @Override
     public void addApplicationListener(ApplicationListener<?> listener) {
-        applicationListeners.add((ApplicationListener<ApplicationEvent>) listener);
+        synchronized (this.applicationListeners) {
+            applicationListeners.add((ApplicationListener<ApplicationEvent>) listener);
+            this.retrieverCache.clear();
+        }
     }
 
     @Override
     public void removeApplicationListener(ApplicationListener<?> listener) {
-        applicationListeners.remove(listener);
+        synchronized (this.applicationListeners) {
+            applicationListeners.remove(listener);
+            this.retrieverCache.clear();
+        }
     }
 
     @Override
@@ -52,11 +66,18 @@ public abstract class AbstractApplicationEventMulticaster implements Application
      * @see cn.bugstack.springframework.context.ApplicationListener
      */
     protected Collection<ApplicationListener> getApplicationListeners(ApplicationEvent event) {
-        LinkedList<ApplicationListener> allListeners = new LinkedList<ApplicationListener>();
-        for (ApplicationListener<ApplicationEvent> listener : applicationListeners) {
-            if (supportsEvent(listener, event)) allListeners.add(listener);
+        ApplicationListener[] listeners = this.retrieverCache.get(event.getClass());
+        if (null == listeners) {
+            synchronized (this.applicationListeners) {
+                LinkedList<ApplicationListener> allListeners = new LinkedList<ApplicationListener>();
+                for (ApplicationListener<ApplicationEvent> listener : applicationListeners) {
+                    if (supportsEvent(listener, event)) allListeners.add(listener);
+                }
+                listeners = allListeners.toArray(new ApplicationListener[0]);
+                this.retrieverCache.put(event.getClass(), listeners);
+            }
         }
-        return allListeners;
+        return Arrays.asList(listeners);
     }
 
     /**
@@ -0,0 +1,135 @@
+package cn.bugstack.springframework.context.index;
+
+import cn.bugstack.springframework.beans.BeansException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provide access to the candidates that are defined in {@code META-INF/small-spring.components}.
+ * <p>
+ * 编译期生成的组件索引，由 {@link CandidateComponentsIndexer} 写入。扫描时按包名前缀直接取出组件，
+ * 不需要遍历并加载包下的每一个 Class。设置系统属性 small-spring.index.ignore=true 可以忽略索引
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class CandidateComponentsIndex {
+
+    public static final String COMPONENTS_RESOURCE_LOCATION = "META-INF/small-spring.components";
+
+    public static final String IGNORE_INDEX_PROPERTY = "small-spring.index.ignore";
+
+    public static final String VALUE_SEPARATOR = ",";
+
+    private static final CandidateComponentsIndex EMPTY = new CandidateComponentsIndex(Collections.emptyMap());
+
+    /**
+     * ClassLoader --> 组件索引，同一个 ClassLoader 只读取一次
+     */
+    private static final Map<ClassLoader, CandidateComponentsIndex> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 类名 --> 组件条目，按类名排序便于按包名前缀截取
+     */
+    private final TreeMap<String, Entry> entries;
+
+    private CandidateComponentsIndex(Map<String, Entry> entries) {
+        this.entries = new TreeMap<>(entries);
+    }
+
+    /**
+     * 加载 ClassLoader 下所有 jar 和目录中的组件索引，没有索引时返回 null
+     */
+    public static CandidateComponentsIndex loadIndex(ClassLoader classLoader) {
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        ClassLoader classLoaderToUse = null != classLoader ? classLoader : CandidateComponentsIndex.class.getClassLoader();
+        CandidateComponentsIndex index = cache.computeIfAbsent(classLoaderToUse, CandidateComponentsIndex::doLoadIndex);
+        return index != EMPTY ? index : null;
+    }
+
+    public static void clearCache() {
+        cache.clear();
+    }
+
+    private static CandidateComponentsIndex doLoadIndex(ClassLoader classLoader) {
+        Map<String, Entry> entries = new TreeMap<>();
+        try {
+            Enumeration<URL> urls = classLoader.getResources(COMPONENTS_RESOURCE_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                Properties properties = new Properties();
+                try (InputStream in = url.openStream()) {
+                    properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                }
+                for (String className : properties.stringPropertyNames()) {
+                    entries.put(className, parseEntry(className, properties.getProperty(className)));
+                }
+            }
+        } catch (IOException e) {
+            throw new BeansException("Unable to load indexes from location [" + COMPONENTS_RESOURCE_LOCATION + "]", e);
+        }
+        return entries.isEmpty() ? EMPTY : new CandidateComponentsIndex(entries);
+    }
+
+    private static Entry parseEntry(String className, String value) {
+        String[] parts = value.split(VALUE_SEPARATOR, -1);
+        String beanName = parts[0].trim();
+        String scope = parts.length > 1 ? parts[1].trim() : "";
+        return new Entry(className, beanName, scope);
+    }
+
+    /**
+     * 返回包及子包下的所有组件
+     */
+    public List<Entry> getCandidateEntries(String basePackage) {
+        String prefix = basePackage + ".";
+        return new ArrayList<>(entries.subMap(prefix, prefix + Character.MAX_VALUE).values());
+    }
+
+    /**
+     * 索引中的一个组件：类名、Bean 名称和 @Scope 作用域，名称和作用域为空时按注解解析
+     */
+    public static class Entry {
+
+        private final String className;
+
+        private final String beanName;
+
+        private final String scope;
+
+        public Entry(String className, String beanName, String scope) {
+            this.className = className;
+            this.beanName = beanName;
+            this.scope = scope;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getScope() {
+            return scope;
+        }
+
+    }
+
+}
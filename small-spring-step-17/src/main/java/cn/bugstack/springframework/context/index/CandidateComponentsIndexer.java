@@ -0,0 +1,170 @@
+package cn.bugstack.springframework.context.index;
+
+import cn.bugstack.springframework.context.annotation.Scope;
+import cn.bugstack.springframework.stereotype.Component;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Annotation {@link javax.annotation.processing.Processor} that writes a
+ * {@link CandidateComponentsIndex} file for all {@link Component @Component}
+ * classes of the compiled sources.
+ * <p>
+ * 编译期生成组件索引 META-INF/small-spring.components，每行记录 类名=Bean名称,作用域。
+ * 与运行时扫描一致，被 @Component 间接标注的自定义注解（如 @Service）同样识别为组件。
+ * 使用时在编译参数中指定处理器，例如 maven-compiler-plugin 的 annotationProcessors 配置
+ * {@code cn.bugstack.springframework.context.index.CandidateComponentsIndexer}
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@SupportedAnnotationTypes("*")
+public class CandidateComponentsIndexer extends AbstractProcessor {
+
+    /**
+     * 类名 --> Bean名称,作用域，按类名排序保证输出稳定
+     */
+    private static final String COMPONENT_ANNOTATION = Component.class.getName();
+
+    private final TreeMap<String, String> components = new TreeMap<>();
+
+    /**
+     * 本次编译的所有类，增量编译时用来识别去掉了 @Component 的类
+     */
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            processElement(element);
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndexFile();
+        }
+        return false;
+    }
+
+    private void processElement(Element element) {
+        if (!(element instanceof TypeElement)) return;
+        TypeElement typeElement = (TypeElement) element;
+        String className = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+        compiledTypes.add(className);
+        if (element.getKind() == ElementKind.CLASS && !element.getModifiers().contains(Modifier.ABSTRACT) && isComponent(typeElement)) {
+            components.put(className, determineBeanName(typeElement) + CandidateComponentsIndex.VALUE_SEPARATOR + determineScope(typeElement));
+        }
+        // 嵌套类
+        for (Element enclosed : element.getEnclosedElements()) {
+            processElement(enclosed);
+        }
+    }
+
+    /**
+     * 类上直接标注了 @Component，或者标注的注解本身（递归）被 @Component 标注
+     */
+    private boolean isComponent(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            if (isStereotype((TypeElement) annotation.getAnnotationType().asElement(), new HashSet<>())) return true;
+        }
+        return false;
+    }
+
+    private boolean isStereotype(TypeElement annotationType, Set<String> visited) {
+        String name = annotationType.getQualifiedName().toString();
+        if (COMPONENT_ANNOTATION.equals(name)) return true;
+        // JDK 的元注解不会被 @Component 标注，也避免 @Documented 这类自引用注解的循环
+        if (name.startsWith("java.") || !visited.add(name)) return false;
+        for (AnnotationMirror metaAnnotation : annotationType.getAnnotationMirrors()) {
+            if (isStereotype((TypeElement) metaAnnotation.getAnnotationType().asElement(), visited)) return true;
+        }
+        return false;
+    }
+
+    private String determineBeanName(TypeElement typeElement) {
+        // 只有直接标注的 @Component 指定 Bean 名称，与运行时扫描一致
+        Component component = typeElement.getAnnotation(Component.class);
+        if (null != component && !component.value().isEmpty()) {
+            return component.value();
+        }
+        String simpleName = typeElement.getSimpleName().toString();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+    private String determineScope(TypeElement typeElement) {
+        Scope scope = typeElement.getAnnotation(Scope.class);
+        return null != scope ? scope.value() : "";
+    }
+
+    private void writeIndexFile() {
+        try {
+            // 增量编译时合并已有的索引，只覆盖本次编译的类；已删除或本次编译后不再是组件的类从索引中去掉
+            Map<String, String> index = readExistingIndex();
+            if (index.isEmpty() && components.isEmpty()) {
+                return;
+            }
+            index.keySet().removeIf(className -> compiledTypes.contains(className) || null == resolveType(className));
+            index.putAll(components);
+
+            StringBuilder content = new StringBuilder();
+            for (Map.Entry<String, String> entry : index.entrySet()) {
+                content.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+            }
+            FileObject fileObject = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION);
+            try (OutputStream out = fileObject.openOutputStream()) {
+                out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write component index: " + e);
+        }
+    }
+
+    private TypeElement resolveType(String className) {
+        // 索引中记录的是二进制名称，嵌套类需要换成规范名称查找
+        return processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+    }
+
+    private Map<String, String> readExistingIndex() {
+        Map<String, String> index = new TreeMap<>();
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION);
+            try (InputStream in = existing.openInputStream()) {
+                Properties properties = new Properties();
+                properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                for (String className : properties.stringPropertyNames()) {
+                    index.put(className, properties.getProperty(className));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // 没有已存在的索引
+        }
+        return index;
+    }
+
+}
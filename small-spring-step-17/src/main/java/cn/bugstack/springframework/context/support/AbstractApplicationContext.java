@@ -1,6 +1,8 @@
 package cn.bugstack.springframework.context.support;
 
 import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.BeanHandle;
+import cn.bugstack.springframework.beans.factory.BeanLease;
 import cn.bugstack.springframework.beans.factory.ConfigurableListableBeanFactory;
 import cn.bugstack.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import cn.bugstack.springframework.beans.factory.config.BeanPostProcessor;
@@ -13,7 +15,12 @@ import cn.bugstack.springframework.context.event.ContextRefreshedEvent;
 import cn.bugstack.springframework.context.event.SimpleApplicationEventMulticaster;
 import cn.bugstack.springframework.core.convert.ConversionService;
 import cn.bugstack.springframework.core.io.DefaultResourceLoader;
+import cn.bugstack.springframework.core.io.Resource;
+import cn.bugstack.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
+import cn.bugstack.springframework.core.metrics.StartupStep;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 
@@ -35,34 +42,112 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
 
     private ApplicationEventMulticaster applicationEventMulticaster;
 
+    private StartupRecorder startupRecorder = StartupRecorder.DEFAULT;
+
+    private final PathMatchingResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver(this);
+
+    /**
+     * 内置的作用域，重新刷新创建新的 BeanFactory 时注册同一个实例，调用方持有的引用一直有效；
+     * 刷新和关闭时清理其中由旧 BeanFactory 创建的对象
+     */
+    private final ThreadScope threadScope = new ThreadScope();
+
+    private final RequestScope requestScope = new RequestScope();
+
     @Override
     public void refresh() throws BeansException {
-        // 1. 创建 BeanFactory，并加载 BeanDefinition
-        refreshBeanFactory();
+        // 每个步骤都在 finally 中结束，刷新失败时不会在当前线程留下未结束的步骤，下一次刷新不会嵌套在旧步骤下
+        StartupStep contextRefresh = this.startupRecorder.start("spring.context.refresh");
+        // 上一次刷新之后资源可能有增减，不能沿用之前的路径树
+        clearResourceCache();
+        try {
+            // 1. 创建 BeanFactory，并加载 BeanDefinition；作用域中旧 BeanFactory 创建的对象先清理掉
+            StartupStep step = this.startupRecorder.start("spring.context.beans.load");
+            try {
+                evictScopedObjects(null);
+                refreshBeanFactory();
+            } finally {
+                step.end();
+            }
 
-        // 2. 获取 BeanFactory
-        ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+            // 2. 获取 BeanFactory
+            ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+            beanFactory.setStartupRecorder(this.startupRecorder);
+
+            // 3. 添加 ApplicationContextAwareProcessor，让继承自 ApplicationContextAware 的 Bean 对象都能感知所属的 ApplicationContext
+            beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
+            // 注册 thread、request 作用域，BeanFactoryPostProcessor 可以替换为自己的实现
+            beanFactory.registerScope(ThreadScope.SCOPE_NAME, this.threadScope);
+            beanFactory.registerScope(RequestScope.SCOPE_NAME, this.requestScope);
+
+            // 4. 在 Bean 实例化之前，执行 BeanFactoryPostProcessor (Invoke factory processors registered as beans in the context.)
+            step = this.startupRecorder.start("spring.context.beanfactory.post-process");
+            try {
+                invokeBeanFactoryPostProcessors(beanFactory);
+            } finally {
+                step.end();
+            }
 
-        // 3. 添加 ApplicationContextAwareProcessor，让继承自 ApplicationContextAware 的 Bean 对象都能感知所属的 ApplicationContext
-        beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
+            // 5. BeanPostProcessor 需要提前于其他 Bean 对象实例化之前执行注册操作
+            step = this.startupRecorder.start("spring.context.beans.post-process");
+            try {
+                registerBeanPostProcessors(beanFactory);
+            } finally {
+                step.end();
+            }
+
+            // 6. 初始化事件发布者
+            initApplicationEventMulticaster();
 
-        // 4. 在 Bean 实例化之前，执行 BeanFactoryPostProcessor (Invoke factory processors registered as beans in the context.)
-        invokeBeanFactoryPostProcessors(beanFactory);
+            // 7. 注册事件监听器
+            step = this.startupRecorder.start("spring.context.listeners.register");
+            try {
+                registerListeners();
+            } finally {
+                step.end();
+            }
 
-        // 5. BeanPostProcessor 需要提前于其他 Bean 对象实例化之前执行注册操作
-        registerBeanPostProcessors(beanFactory);
+            // 8. 设置类型转换器、提前实例化单例Bean对象
+            step = this.startupRecorder.start("spring.context.beans.pre-instantiate");
+            try {
+                finishBeanFactoryInitialization(beanFactory);
+            } finally {
+                step.end();
+            }
+        } catch (RuntimeException e) {
+            resetBeanFactoryStartupRecorder();
+            throw e;
+        } finally {
+            contextRefresh.end();
+        }
 
-        // 6. 初始化事件发布者
-        initApplicationEventMulticaster();
+        // 9. 发布容器刷新完成事件，之后 BeanFactory 不再记录步骤
+        try {
+            finishRefresh();
+        } finally {
+            resetBeanFactoryStartupRecorder();
+        }
 
-        // 7. 注册事件监听器
-        registerListeners();
+        // 10. 配置已经加载完成，释放资源路径树缓存
+        clearResourceCache();
+    }
 
-        // 8. 设置类型转换器、提前实例化单例Bean对象
-        finishBeanFactoryInitialization(beanFactory);
+    /**
+     * 启动完成后 BeanFactory 恢复为不记录：之后按需创建的 prototype、thread、request、pooled Bean
+     * 会一直持续到应用退出，记录下来只会让时间线无限增长
+     */
+    protected void resetBeanFactoryStartupRecorder() {
+        ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+        if (null != beanFactory) {
+            beanFactory.setStartupRecorder(StartupRecorder.DEFAULT);
+        }
+    }
 
-        // 9. 发布容器刷新完成事件
-        finishRefresh();
+    /**
+     * 清空通配符匹配使用的资源路径树缓存，每次加载配置前后调用
+     */
+    protected void clearResourceCache() {
+        resourcePatternResolver.clearCache();
     }
 
     // 设置类型转换器、提前实例化单例Bean对象
@@ -75,6 +160,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
             }
         }
 
+        // 冻结配置，BeanDefinition 和 BeanPostProcessor 不再变化
+        beanFactory.freezeConfiguration();
+
         // 提前实例化单例Bean对象
         beanFactory.preInstantiateSingletons();
     }
@@ -84,6 +172,44 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
 
     protected abstract ConfigurableListableBeanFactory getBeanFactory();
 
+    /**
+     * thread 作用域，线程池中的任务结束时调用 {@link ThreadScope#end()}
+     */
+    public ThreadScope getThreadScope() {
+        return threadScope;
+    }
+
+    /**
+     * request 作用域，通过 {@link RequestScope#begin()} 开始一次请求
+     */
+    public RequestScope getRequestScope() {
+        return requestScope;
+    }
+
+    /**
+     * 清理 thread、request 作用域中指定名称的对象并执行销毁回调，beanNames 为 null 时清理全部
+     */
+    protected void evictScopedObjects(Collection<String> beanNames) throws BeansException {
+        BeansException failure = null;
+        try {
+            threadScope.evict(beanNames);
+        } catch (BeansException e) {
+            failure = e;
+        }
+        try {
+            requestScope.evict(beanNames);
+        } catch (BeansException e) {
+            if (null == failure) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
     private void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory) {
         Map<String, BeanFactoryPostProcessor> beanFactoryPostProcessorMap = beanFactory.getBeansOfType(BeanFactoryPostProcessor.class);
         for (BeanFactoryPostProcessor beanFactoryPostProcessor : beanFactoryPostProcessorMap.values()) {
@@ -109,12 +235,25 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         for (ApplicationListener listener : applicationListeners) {
             applicationEventMulticaster.addApplicationListener(listener);
         }
+        // StartupRecorder 不是容器中的 Bean，需要单独注册
+        if (this.startupRecorder instanceof ApplicationListener) {
+            applicationEventMulticaster.addApplicationListener((ApplicationListener<?>) this.startupRecorder);
+        }
+    }
+
+    protected ApplicationEventMulticaster getApplicationEventMulticaster() {
+        return applicationEventMulticaster;
     }
 
     private void finishRefresh() {
         publishEvent(new ContextRefreshedEvent(this));
     }
 
+    @Override
+    public Resource[] getResources(String locationPattern) throws IOException {
+        return resourcePatternResolver.getResources(locationPattern);
+    }
+
     @Override
     public void publishEvent(ApplicationEvent event) {
         applicationEventMulticaster.multicastEvent(event);
@@ -125,6 +264,11 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         return getBeanFactory().getBeansOfType(type);
     }
 
+    @Override
+    public String[] getBeanNamesForType(Class<?> type) {
+        return getBeanFactory().getBeanNamesForType(type);
+    }
+
     @Override
     public String[] getBeanDefinitionNames() {
         return getBeanFactory().getBeanDefinitionNames();
@@ -150,11 +294,34 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         return getBeanFactory().getBean(requiredType);
     }
 
+    @Override
+    public <T> BeanHandle<T> getBeanHandle(String name, Class<T> requiredType) throws BeansException {
+        return getBeanFactory().getBeanHandle(name, requiredType);
+    }
+
+    @Override
+    public <T> BeanLease<T> borrowBean(String name, Class<T> requiredType) throws BeansException {
+        return getBeanFactory().borrowBean(name, requiredType);
+    }
+
     @Override
     public boolean containsBean(String name) {
         return getBeanFactory().containsBean(name);
     }
 
+    @Override
+    public void setStartupRecorder(StartupRecorder startupRecorder) {
+        if (null == startupRecorder) {
+            throw new IllegalArgumentException("StartupRecorder must not be null");
+        }
+        this.startupRecorder = startupRecorder;
+    }
+
+    @Override
+    public StartupRecorder getStartupRecorder() {
+        return startupRecorder;
+    }
+
     @Override
     public void registerShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(this::close));
@@ -165,8 +332,12 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader i
         // 发布容器关闭事件
         publishEvent(new ContextClosedEvent(this));
 
-        // 执行销毁单例bean的销毁方法
-        getBeanFactory().destroySingletons();
+        // 先销毁作用域中的对象，它们可能依赖单例 Bean；再执行销毁单例bean的销毁方法
+        try {
+            evictScopedObjects(null);
+        } finally {
+            getBeanFactory().destroySingletons();
+        }
     }
 
 }
@@ -2,7 +2,19 @@ package cn.bugstack.springframework.context.support;
 
 import cn.bugstack.springframework.beans.BeansException;
 import cn.bugstack.springframework.beans.factory.ConfigurableListableBeanFactory;
+import cn.bugstack.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import cn.bugstack.springframework.beans.factory.annotation.Value;
+import cn.bugstack.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import cn.bugstack.springframework.beans.factory.config.BeanPostProcessor;
 import cn.bugstack.springframework.beans.factory.support.DefaultListableBeanFactory;
+import cn.bugstack.springframework.context.ApplicationListener;
+import cn.bugstack.springframework.context.event.ApplicationEventMulticaster;
+import cn.bugstack.springframework.context.event.ContextRefreshedEvent;
+import cn.bugstack.springframework.core.metrics.StartupStep;
+import cn.bugstack.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.util.*;
 
 /**
  * Base class for {@link cn.bugstack.springframework.context.ApplicationContext}
@@ -19,13 +31,203 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 
     private DefaultListableBeanFactory beanFactory;
 
+    private boolean parallelPreInstantiation = false;
+
+    private boolean incrementalRefresh = false;
+
+    private boolean trimBeanDefinitions = false;
+
+    private int destructionParallelism = Runtime.getRuntime().availableProcessors();
+
+    private long destructionTimeoutMillis = 0;
+
+    /**
+     * 开启增量刷新后，再次 refresh 时只重建发生变化的 Bean
+     */
+    @Override
+    public void refresh() throws BeansException {
+        if (incrementalRefresh && null != this.beanFactory) {
+            refreshIncrementally();
+            return;
+        }
+        super.refresh();
+    }
+
     @Override
     protected void refreshBeanFactory() throws BeansException {
         DefaultListableBeanFactory beanFactory = createBeanFactory();
+        customizeBeanFactory(beanFactory);
         loadBeanDefinitions(beanFactory);
         this.beanFactory = beanFactory;
     }
 
+    /**
+     * 增量刷新：重新加载配置并与当前的 BeanDefinition 对比，只销毁、重建发生变化的 Bean 以及依赖它们的 Bean，
+     * 其余单例对象（例如持有连接的 Bean）原样保留。BeanFactoryPostProcessor、BeanPostProcessor 变化时回退到完整刷新。
+     */
+    protected void refreshIncrementally() throws BeansException {
+        StartupStep step = getStartupRecorder().start("spring.context.refresh.incremental");
+        DefaultListableBeanFactory beanFactory = this.beanFactory;
+        DefaultListableBeanFactory candidateFactory = createBeanFactory();
+        // 通配符配置位置可能匹配到新增的文件，重新遍历目录
+        clearResourceCache();
+        // 增量刷新期间重建的 Bean 同样记录到时间线中，结束后恢复
+        beanFactory.setStartupRecorder(getStartupRecorder());
+        try {
+            // 1. 在临时的 BeanFactory 中加载配置，执行 BeanFactoryPostProcessor 得到最终的 BeanDefinition
+            customizeBeanFactory(candidateFactory);
+            loadBeanDefinitions(candidateFactory);
+            candidateFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
+            for (BeanFactoryPostProcessor beanFactoryPostProcessor : candidateFactory.getBeansOfType(BeanFactoryPostProcessor.class).values()) {
+                beanFactoryPostProcessor.postProcessBeanFactory(candidateFactory);
+            }
+
+            // 2. 对比 BeanDefinition，以及 @Value 在新属性下的解析结果
+            Set<String> changedBeanNames = beanFactory.getChangedBeanNames(candidateFactory);
+            changedBeanNames.addAll(findBeansWithChangedValues(beanFactory, candidateFactory));
+            step.tag("changedBeans", String.valueOf(changedBeanNames.size()));
+            if (changedBeanNames.isEmpty()) {
+                return;
+            }
+
+            // 3. 容器扩展点变化时已创建的 Bean 都可能受影响，BeanDefinition 被裁剪后无法重建单个 Bean，都回退到完整刷新
+            if (beanFactory.isTrimCreatedSingletonDefinitions()
+                    || containsPostProcessor(beanFactory, changedBeanNames) || containsPostProcessor(candidateFactory, changedBeanNames)) {
+                step.tag("fallback", "true");
+                beanFactory.destroySingletons();
+                super.refresh();
+                return;
+            }
+
+            // 4. 替换字符串解析器，缓存的 @Value 解析结果随之失效
+            beanFactory.copyEmbeddedValueResolversFrom(candidateFactory);
+            for (BeanPostProcessor beanPostProcessor : beanFactory.getBeanPostProcessors()) {
+                if (beanPostProcessor instanceof AutowiredAnnotationBeanPostProcessor) {
+                    ((AutowiredAnnotationBeanPostProcessor) beanPostProcessor).clearInjectionMetadataCache();
+                }
+            }
+
+            // 5. 销毁受影响的 Bean 并替换 BeanDefinition，旧的监听器实例同时从事件广播器中移除
+            Map<String, Object> existingListeners = new HashMap<>();
+            for (String beanName : beanFactory.getBeanNamesForType(ApplicationListener.class)) {
+                Object listener = beanFactory.getSingleton(beanName);
+                if (null != listener) existingListeners.put(beanName, listener);
+            }
+            Set<String> affectedBeanNames = beanFactory.refreshBeanDefinitions(candidateFactory, changedBeanNames);
+            step.tag("affectedBeans", String.valueOf(affectedBeanNames.size()));
+            evictScopedObjects(affectedBeanNames);
+
+            ApplicationEventMulticaster applicationEventMulticaster = getApplicationEventMulticaster();
+            for (String beanName : affectedBeanNames) {
+                Object listener = existingListeners.get(beanName);
+                if (null != listener) applicationEventMulticaster.removeApplicationListener((ApplicationListener<?>) listener);
+            }
+            for (String beanName : beanFactory.getBeanNamesForType(ApplicationListener.class)) {
+                if (affectedBeanNames.contains(beanName)) {
+                    applicationEventMulticaster.addApplicationListener((ApplicationListener<?>) beanFactory.getBean(beanName));
+                }
+            }
+
+            // 6. 重新创建非懒加载的单例 Bean，未受影响的单例已经存在，不会重复创建
+            finishBeanFactoryInitialization(beanFactory);
+            publishEvent(new ContextRefreshedEvent(this));
+        } finally {
+            clearResourceCache();
+            resetBeanFactoryStartupRecorder();
+            candidateFactory.destroySingletons();
+            step.end();
+        }
+    }
+
+    /**
+     * 属性文件变化不会体现在 BeanDefinition 上，逐个比较 @Value 占位符在新旧属性下的解析结果
+     */
+    private Set<String> findBeansWithChangedValues(DefaultListableBeanFactory beanFactory, DefaultListableBeanFactory candidateFactory) {
+        Set<String> beanNames = new LinkedHashSet<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            if (!candidateFactory.containsBeanDefinition(beanName)) continue;
+            Class<?> beanClass = beanFactory.getBeanDefinition(beanName).getBeanClass();
+            beanClass = ClassUtils.isCglibProxyClass(beanClass) ? beanClass.getSuperclass() : beanClass;
+            for (Field field : beanClass.getDeclaredFields()) {
+                Value valueAnnotation = field.getAnnotation(Value.class);
+                if (null == valueAnnotation) continue;
+                String value = valueAnnotation.value();
+                if (!Objects.equals(beanFactory.resolveEmbeddedValue(value), candidateFactory.resolveEmbeddedValue(value))) {
+                    beanNames.add(beanName);
+                    break;
+                }
+            }
+        }
+        return beanNames;
+    }
+
+    private boolean containsPostProcessor(DefaultListableBeanFactory beanFactory, Set<String> beanNames) {
+        for (String beanName : beanNames) {
+            if (!beanFactory.containsBeanDefinition(beanName)) continue;
+            Class<?> beanClass = beanFactory.getBeanDefinition(beanName).getBeanClass();
+            if (BeanFactoryPostProcessor.class.isAssignableFrom(beanClass) || BeanPostProcessor.class.isAssignableFrom(beanClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在加载 BeanDefinition 之前，把上下文的配置同步到内部的 BeanFactory
+     */
+    protected void customizeBeanFactory(DefaultListableBeanFactory beanFactory) {
+        beanFactory.setParallelPreInstantiation(this.parallelPreInstantiation);
+        beanFactory.setDestructionParallelism(this.destructionParallelism);
+        beanFactory.setDestructionTimeoutMillis(this.destructionTimeoutMillis);
+        // 增量刷新需要保留完整的 BeanDefinition 用于对比和重建
+        beanFactory.setTrimCreatedSingletonDefinitions(this.trimBeanDefinitions && !this.incrementalRefresh);
+    }
+
+    /**
+     * 是否按依赖关系图并行提前实例化单例 Bean，需在 refresh 之前设置
+     */
+    public void setParallelPreInstantiation(boolean parallelPreInstantiation) {
+        this.parallelPreInstantiation = parallelPreInstantiation;
+    }
+
+    /**
+     * 关闭上下文时并行销毁单例 Bean 的线程数，为 1 时在当前线程中串行销毁
+     */
+    public void setDestructionParallelism(int destructionParallelism) {
+        if (destructionParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.destructionParallelism = destructionParallelism;
+    }
+
+    /**
+     * 关闭上下文时销毁全部单例 Bean 的总时限（毫秒），0 表示不限制
+     */
+    public void setDestructionTimeoutMillis(long destructionTimeoutMillis) {
+        if (destructionTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative");
+        }
+        this.destructionTimeoutMillis = destructionTimeoutMillis;
+    }
+
+    /**
+     * 刷新完成后裁剪已创建单例的 BeanDefinition，减少超大注册表的内存占用；开启增量刷新时不生效
+     */
+    public void setTrimBeanDefinitions(boolean trimBeanDefinitions) {
+        this.trimBeanDefinitions = trimBeanDefinitions;
+    }
+
+    /**
+     * 是否开启增量刷新，开启后对已刷新过的上下文再次调用 refresh 只会重建配置发生变化的 Bean
+     */
+    public void setIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+
+    public boolean isIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+
     private DefaultListableBeanFactory createBeanFactory() {
         return new DefaultListableBeanFactory();
     }
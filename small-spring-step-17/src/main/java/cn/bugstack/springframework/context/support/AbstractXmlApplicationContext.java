@@ -1,7 +1,28 @@
 package cn.bugstack.springframework.context.support;
 
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.PropertyPlaceholderConfigurer;
+import cn.bugstack.springframework.beans.factory.support.BeanDefinitionSnapshot;
 import cn.bugstack.springframework.beans.factory.support.DefaultListableBeanFactory;
 import cn.bugstack.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import cn.bugstack.springframework.context.index.CandidateComponentsIndex;
+import cn.bugstack.springframework.core.io.Resource;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * Convenient base class for {@link cn.bugstack.springframework.context.ApplicationContext}
@@ -14,15 +35,199 @@ import cn.bugstack.springframework.beans.factory.xml.XmlBeanDefinitionReader;
  */
 public abstract class AbstractXmlApplicationContext extends AbstractRefreshableApplicationContext {
 
+    private String snapshotFile;
+
+    private boolean xmlStreaming = false;
+
+    private static final String COMPONENTS_INDEX_LOCATION = CLASSPATH_ALL_URL_PREFIX + CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION;
+
     @Override
     protected void loadBeanDefinitions(DefaultListableBeanFactory beanFactory) {
-        XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(beanFactory, this);
         String[] configLocations = getConfigLocations();
+
+        // 快照有效时直接恢复注册表，跳过 XML 解析和包扫描
+        Map<String, Long> resourceChecksums = null;
+        if (null != snapshotFile && null != configLocations) {
+            resourceChecksums = computeResourceChecksums(configLocations);
+            if (loadBeanDefinitionsFromSnapshot(beanFactory, resourceChecksums)) {
+                return;
+            }
+        }
+
+        XmlBeanDefinitionReader beanDefinitionReader = new XmlBeanDefinitionReader(beanFactory, this);
+        beanDefinitionReader.setStreaming(xmlStreaming);
+        beanDefinitionReader.setStartupRecorder(getStartupRecorder());
         if (null != configLocations){
             beanDefinitionReader.loadBeanDefinitions(configLocations);
         }
+
+        if (null != resourceChecksums) {
+            // 扫描到的组件同样写入快照，包下的 Class 文件和组件索引也要参与校验
+            for (String basePackage : beanDefinitionReader.getScannedPackages()) {
+                putResourceChecksums(resourceChecksums, getScanLocation(basePackage), true);
+            }
+            if (!beanDefinitionReader.getScannedPackages().isEmpty()) {
+                putResourceChecksums(resourceChecksums, COMPONENTS_INDEX_LOCATION, true);
+            }
+            writeSnapshot(beanFactory, resourceChecksums);
+        }
     }
 
     protected abstract String[] getConfigLocations();
 
+    /**
+     * 设置 BeanDefinition 快照文件：文件不存在或已失效时正常加载并写入快照，之后的启动直接从快照恢复
+     */
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    /**
+     * 使用 StAX 流式解析 XML 配置，适合体积很大的配置文件
+     */
+    public void setXmlStreaming(boolean xmlStreaming) {
+        this.xmlStreaming = xmlStreaming;
+    }
+
+    public boolean isXmlStreaming() {
+        return xmlStreaming;
+    }
+
+    /**
+     * 当前配置依赖的资源：配置位置匹配到的 XML 文件，以及 PropertyPlaceholderConfigurer 加载的属性文件。
+     * 每次调用都按磁盘上的最新状态匹配通配符
+     */
+    public List<Resource> getConfigurationResources() {
+        List<Resource> resources = new ArrayList<>();
+        String[] configLocations = getConfigLocations();
+        if (null != configLocations) {
+            clearResourceCache();
+            try {
+                for (String location : configLocations) {
+                    try {
+                        Collections.addAll(resources, getResources(location));
+                    } catch (IOException e) {
+                        throw new BeansException("Could not resolve config location " + location, e);
+                    }
+                }
+            } finally {
+                clearResourceCache();
+            }
+        }
+        for (PropertyPlaceholderConfigurer configurer : getBeansOfType(PropertyPlaceholderConfigurer.class).values()) {
+            if (null != configurer.getLocation()) {
+                resources.add(getResource(configurer.getLocation()));
+            }
+        }
+        return resources;
+    }
+
+    private boolean loadBeanDefinitionsFromSnapshot(DefaultListableBeanFactory beanFactory, Map<String, Long> resourceChecksums) {
+        Path path = Paths.get(snapshotFile);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        BeanDefinitionSnapshot snapshot;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            snapshot = BeanDefinitionSnapshot.read(in, beanFactory.getBeanClassLoader());
+        } catch (IOException | ClassNotFoundException | LinkageError e) {
+            // 快照损坏或 Class 已变化，回退到正常加载
+            return false;
+        }
+        // 配置位置之外的记录来自 component-scan，按快照中的位置重新计算
+        Map<String, Long> currentChecksums = new LinkedHashMap<>(resourceChecksums);
+        Set<String> configLocations = new HashSet<>(Arrays.asList(getConfigLocations()));
+        for (String location : snapshot.getResourceLocations()) {
+            if (!configLocations.contains(location)) {
+                putResourceChecksums(currentChecksums, location, true);
+            }
+        }
+        if (!snapshot.matches(currentChecksums)) {
+            return false;
+        }
+        snapshot.registerBeanDefinitions(beanFactory);
+        return true;
+    }
+
+    private void writeSnapshot(DefaultListableBeanFactory beanFactory, Map<String, Long> resourceChecksums) {
+        Path path = Paths.get(snapshotFile);
+        try {
+            // 含有快照无法表示的属性值时不写入，同时删除旧的快照
+            if (!BeanDefinitionSnapshot.isSupported(beanFactory)) {
+                Files.deleteIfExists(path);
+                return;
+            }
+            Path parent = path.toAbsolutePath().getParent();
+            if (null != parent) Files.createDirectories(parent);
+            // 先写临时文件再替换，避免并发启动读到写了一半的快照
+            Path tempFile = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    BeanDefinitionSnapshot.write(beanFactory, resourceChecksums, out);
+                }
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new BeansException("Could not write bean definition snapshot to " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * 计算配置资源的 CRC32 校验和
+     */
+    private Map<String, Long> computeResourceChecksums(String[] configLocations) {
+        Map<String, Long> checksums = new LinkedHashMap<>();
+        for (String location : configLocations) {
+            putResourceChecksums(checksums, location, false);
+        }
+        return checksums;
+    }
+
+    private static String getScanLocation(String basePackage) {
+        return CLASSPATH_ALL_URL_PREFIX + basePackage.replace('.', '/') + "/**/*.class";
+    }
+
+    /**
+     * 记录位置匹配到的每个资源的校验和；recordLocation 时额外记录匹配数量，
+     * 位置原本没有匹配到资源、之后出现了新资源时快照同样失效
+     */
+    private void putResourceChecksums(Map<String, Long> checksums, String location, boolean recordLocation) {
+        byte[] buffer = new byte[8192];
+        Resource[] resources;
+        try {
+            resources = getResources(location);
+        } catch (IOException e) {
+            throw new BeansException("Could not resolve config location " + location, e);
+        }
+        if (recordLocation) {
+            checksums.put(location, (long) resources.length);
+        }
+        for (Resource resource : resources) {
+            CRC32 crc32 = new CRC32();
+            try {
+                ByteBuffer content = resource.asByteBuffer();
+                if (null != content) {
+                    crc32.update(content);
+                } else {
+                    try (InputStream inputStream = resource.getInputStream()) {
+                        int n;
+                        while ((n = inputStream.read(buffer)) != -1) {
+                            crc32.update(buffer, 0, n);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new BeansException("Could not read config location " + location, e);
+            }
+            // 通配符位置可能匹配多个文件，按匹配到的文件记录校验和，文件增减都会使快照失效
+            checksums.put(location + "|" + resource, crc32.getValue());
+        }
+    }
+
 }
@@ -31,4 +31,9 @@ public class ApplicationContextAwareProcessor implements BeanPostProcessor {
         return bean;
     }
 
+    @Override
+    public boolean supports(Class<?> beanClass) {
+        return ApplicationContextAware.class.isAssignableFrom(beanClass);
+    }
+
 }
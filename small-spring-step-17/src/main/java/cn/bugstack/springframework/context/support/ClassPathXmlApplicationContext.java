@@ -37,8 +37,24 @@ public class ClassPathXmlApplicationContext extends AbstractXmlApplicationContex
      * @throws BeansException
      */
     public ClassPathXmlApplicationContext(String[] configLocations) throws BeansException {
+        this(configLocations, true);
+    }
+
+    /**
+     * 从 XML 中加载 BeanDefinition，refresh 为 false 时可以先调整上下文配置，再手动调用 refresh
+     * @param configLocations
+     * @param refresh
+     * @throws BeansException
+     */
+    public ClassPathXmlApplicationContext(String[] configLocations, boolean refresh) throws BeansException {
+        this.configLocations = configLocations;
+        if (refresh) {
+            refresh();
+        }
+    }
+
+    public void setConfigLocations(String... configLocations) {
         this.configLocations = configLocations;
-        refresh();
     }
 
     @Override
@@ -0,0 +1,181 @@
+package cn.bugstack.springframework.context.support;
+
+import cn.bugstack.springframework.core.io.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 监听上下文加载的 XML 配置文件和属性文件，文件变化后刷新上下文。
+ * 上下文开启了增量刷新时，只会重建配置发生变化的 Bean。
+ * <p>
+ * 只有位于文件系统上的资源才能被监听，jar 包中的配置会被忽略。
+ * 已监听目录中新建的文件匹配通配符配置位置时同样触发刷新。
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class ConfigurationFileWatcher implements Closeable {
+
+    /**
+     * 编辑器保存文件时通常会连续触发多个事件，等待这段时间内没有新事件后再刷新
+     */
+    private static final long DEFAULT_QUIET_PERIOD_MILLIS = 200;
+
+    private final AbstractXmlApplicationContext applicationContext;
+
+    private long quietPeriodMillis = DEFAULT_QUIET_PERIOD_MILLIS;
+
+    private final Set<Path> watchedDirectories = new HashSet<>();
+
+    private volatile Set<Path> watchedFiles = new HashSet<>();
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private volatile RuntimeException lastRefreshFailure;
+
+    private WatchService watchService;
+
+    private Thread watcherThread;
+
+    public ConfigurationFileWatcher(AbstractXmlApplicationContext applicationContext) {
+        this.applicationContext = applicationContext;
+    }
+
+    public void setQuietPeriodMillis(long quietPeriodMillis) {
+        if (quietPeriodMillis < 0) {
+            throw new IllegalArgumentException("Quiet period must not be negative");
+        }
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    public synchronized void start() throws IOException {
+        if (null != watchService) {
+            throw new IllegalStateException("ConfigurationFileWatcher already started");
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        registerConfigurationFiles();
+        watcherThread = new Thread(this::watch, "small-spring-config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * 已完成的刷新次数
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * 最近一次刷新失败的异常，刷新成功后清空；失败后等待下一次文件变化再重试
+     */
+    public RuntimeException getLastRefreshFailure() {
+        return lastRefreshFailure;
+    }
+
+    public Set<Path> getWatchedFiles() {
+        return watchedFiles;
+    }
+
+    /**
+     * 注册配置文件所在目录，WatchService 只能监听目录
+     */
+    private void registerConfigurationFiles() throws IOException {
+        Set<Path> files = new HashSet<>();
+        for (Resource resource : applicationContext.getConfigurationResources()) {
+            if (!resource.isFile()) continue;
+            Path file = resource.getFile().toPath().toAbsolutePath().normalize();
+            files.add(file);
+            Path directory = file.getParent();
+            if (null != directory && watchedDirectories.add(directory)) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+        this.watchedFiles = files;
+    }
+
+    private void watch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean changed = collectChanges(watchService.take());
+                // 合并一段时间内的连续修改
+                WatchKey watchKey;
+                while (null != (watchKey = watchService.poll(quietPeriodMillis, TimeUnit.MILLISECONDS))) {
+                    changed |= collectChanges(watchKey);
+                }
+                if (changed) {
+                    refresh();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 监听器已关闭
+        }
+    }
+
+    private boolean collectChanges(WatchKey watchKey) {
+        boolean changed = false;
+        Path directory = (Path) watchKey.watchable();
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else {
+                Path file = directory.resolve((Path) event.context()).toAbsolutePath().normalize();
+                if (watchedFiles.contains(file)) {
+                    changed = true;
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && isConfigurationFile(file)) {
+                    // 监听目录中新建的文件匹配了通配符配置位置
+                    changed = true;
+                }
+            }
+        }
+        watchKey.reset();
+        return changed;
+    }
+
+    private boolean isConfigurationFile(Path file) {
+        try {
+            for (Resource resource : applicationContext.getConfigurationResources()) {
+                if (resource.isFile() && file.equals(resource.getFile().toPath().toAbsolutePath().normalize())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            // 无法解析配置位置时交给刷新报告失败
+            return true;
+        }
+    }
+
+    private void refresh() {
+        try {
+            synchronized (applicationContext) {
+                applicationContext.refresh();
+            }
+            lastRefreshFailure = null;
+            // 通配符可能匹配到新文件，属性文件位置也可能变化
+            registerConfigurationFiles();
+        } catch (RuntimeException e) {
+            lastRefreshFailure = e;
+        } catch (IOException e) {
+            lastRefreshFailure = new IllegalStateException("Could not watch configuration files", e);
+        } finally {
+            refreshCount.incrementAndGet();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (null == watchService) return;
+        watcherThread.interrupt();
+        watchService.close();
+        watchService = null;
+    }
+
+}
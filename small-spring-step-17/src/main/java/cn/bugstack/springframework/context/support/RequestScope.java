@@ -0,0 +1,186 @@
+package cn.bugstack.springframework.context.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.ObjectFactory;
+import cn.bugstack.springframework.beans.factory.config.Scope;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求作用域：一次请求（一个工作单元）内获取到的是同一个对象，请求结束时执行销毁回调
+ * <p>
+ * 没有 Web 容器，请求的开始和结束由调用方显式控制：{@link #begin()} 在当前线程上开始一个请求，
+ * 返回的 {@link RequestContext} 关闭时结束请求。请求需要在其他线程上继续处理时，用 {@link #attach(RequestContext)} 绑定到该线程。
+ * 上下文刷新和关闭时通过 {@link #evict(Collection)} 清理进行中的请求里由旧配置创建的对象
+ * <pre>
+ * try (RequestScope.RequestContext request = requestScope.begin()) {
+ *     handler.handle();
+ * }
+ * </pre>
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class RequestScope implements Scope {
+
+    public static final String SCOPE_NAME = "request";
+
+    private final ThreadLocal<RequestContext> currentRequest = new ThreadLocal<>();
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /**
+     * 进行中的请求，弱引用，没有关闭就被丢弃的请求同样可以回收
+     */
+    private final Set<RequestContext> activeRequests = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * 在当前线程上开始一个新的请求
+     */
+    public RequestContext begin() {
+        if (null != currentRequestContext()) {
+            throw new IllegalStateException("A request is already active on thread [" + Thread.currentThread().getName() + "]");
+        }
+        RequestContext requestContext = new RequestContext(String.valueOf(requestIds.incrementAndGet()));
+        currentRequest.set(requestContext);
+        activeRequests.add(requestContext);
+        return requestContext;
+    }
+
+    /**
+     * 把已经开始的请求绑定到当前线程，返回的 Binding 关闭时解除绑定，不会结束请求
+     */
+    public Binding attach(RequestContext requestContext) {
+        if (requestContext.isEnded()) {
+            throw new IllegalStateException("Request " + requestContext.getId() + " has already ended");
+        }
+        RequestContext previous = currentRequestContext();
+        currentRequest.set(requestContext);
+        return () -> {
+            if (null != previous && !previous.isEnded()) {
+                currentRequest.set(previous);
+            } else {
+                currentRequest.remove();
+            }
+        };
+    }
+
+    /**
+     * 当前线程上的请求，没有时返回 null
+     */
+    public RequestContext getCurrentRequest() {
+        return currentRequestContext();
+    }
+
+    /**
+     * 请求可能在其他线程上关闭，关闭时只能清理那个线程的绑定；这里把已结束的请求当作不存在并清理当前线程的绑定
+     */
+    private RequestContext currentRequestContext() {
+        RequestContext requestContext = currentRequest.get();
+        if (null != requestContext && requestContext.isEnded()) {
+            currentRequest.remove();
+            return null;
+        }
+        return requestContext;
+    }
+
+    private RequestContext requireCurrentRequest(String name) {
+        RequestContext requestContext = currentRequestContext();
+        if (null == requestContext) {
+            throw new BeansException("Scope '" + SCOPE_NAME + "' is not active for the current thread, cannot get bean '" + name + "'; call RequestScope#begin() first");
+        }
+        return requestContext;
+    }
+
+    /**
+     * 清理所有进行中的请求里指定名称的对象并执行销毁回调，beanNames 为 null 时清理全部；请求本身继续有效
+     */
+    public void evict(Collection<String> beanNames) throws BeansException {
+        List<ScopedObjects> snapshot = new ArrayList<>();
+        synchronized (activeRequests) {
+            for (RequestContext requestContext : activeRequests) {
+                snapshot.add(requestContext.scopedObjects);
+            }
+        }
+        ScopedObjects.evict(snapshot, null == beanNames ? name -> true : beanNames::contains);
+    }
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) throws BeansException {
+        return requireCurrentRequest(name).scopedObjects.get(name, objectFactory);
+    }
+
+    @Override
+    public Object remove(String name) {
+        RequestContext requestContext = currentRequestContext();
+        return null != requestContext ? requestContext.scopedObjects.remove(name) : null;
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        requireCurrentRequest(name).scopedObjects.registerDestructionCallback(name, callback);
+    }
+
+    @Override
+    public String getConversationId() {
+        RequestContext requestContext = currentRequestContext();
+        return null != requestContext ? requestContext.getId() : null;
+    }
+
+    /**
+     * 请求到其他线程的绑定
+     */
+    public interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+    /**
+     * 一次请求，close 时结束请求并执行销毁回调
+     */
+    public final class RequestContext implements AutoCloseable {
+
+        private final String id;
+
+        private final ScopedObjects scopedObjects = new ScopedObjects();
+
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private RequestContext(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isEnded() {
+            return ended.get();
+        }
+
+        /**
+         * 结束请求，重复调用不会重复执行销毁回调
+         */
+        @Override
+        public void close() {
+            if (!ended.compareAndSet(false, true)) return;
+            if (this == currentRequest.get()) {
+                currentRequest.remove();
+            }
+            activeRequests.remove(this);
+            scopedObjects.destroy();
+        }
+
+    }
+
+}
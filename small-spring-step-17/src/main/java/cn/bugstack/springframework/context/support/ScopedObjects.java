@@ -0,0 +1,195 @@
+package cn.bugstack.springframework.context.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.ObjectFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Predicate;
+
+/**
+ * 一个作用域实例（一个线程、一次请求）中缓存的对象和销毁回调
+ * <p>
+ * 创建对象时不持有监视器：创建过程中会获取单例锁和同一作用域中的其他 Bean，持有监视器会串行化所有创建，
+ * 还可能与单例锁形成死锁。同名对象只创建一次，其他线程等待创建结果
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+final class ScopedObjects {
+
+    private final Map<String, Object> objects = new LinkedHashMap<>();
+
+    private final Map<String, Runnable> destructionCallbacks = new LinkedHashMap<>();
+
+    /**
+     * 正在创建的对象：name --> 创建任务
+     */
+    private final Map<String, Creation> objectsInCreation = new HashMap<>();
+
+    private boolean destroyed;
+
+    Object get(String name, ObjectFactory<?> objectFactory) {
+        Creation creation;
+        boolean creator = false;
+        synchronized (this) {
+            if (destroyed) {
+                throw new BeansException("Cannot create scoped bean '" + name + "', the scope has already ended");
+            }
+            Object object = objects.get(name);
+            if (null != object) return object;
+            creation = objectsInCreation.get(name);
+            if (null == creation) {
+                creation = new Creation(objectFactory);
+                objectsInCreation.put(name, creation);
+                creator = true;
+            } else if (creation.thread == Thread.currentThread()) {
+                throw new BeansException("Scoped bean '" + name + "' is currently in creation: circular reference");
+            }
+        }
+
+        if (!creator) {
+            return getCreatedObject(name, creation);
+        }
+        creation.task.run();
+        Object object = null;
+        Runnable staleCallback = null;
+        try {
+            object = getCreatedObject(name, creation);
+            return object;
+        } finally {
+            synchronized (this) {
+                objectsInCreation.remove(name);
+                if (null != object && !destroyed && !creation.evicted) {
+                    objects.put(name, object);
+                } else if (null != object) {
+                    // 创建期间作用域已结束或对象已被清理，不再缓存，创建时注册的销毁回调立即执行
+                    staleCallback = destructionCallbacks.remove(name);
+                }
+            }
+            if (null != staleCallback) {
+                staleCallback.run();
+            }
+        }
+    }
+
+    private static Object getCreatedObject(String name, Creation creation) {
+        try {
+            return creation.task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BeansException) throw (BeansException) e.getCause();
+            throw new BeansException("Creation of scoped bean '" + name + "' failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BeansException("Interrupted while waiting for scoped bean '" + name + "'", e);
+        }
+    }
+
+    synchronized Object remove(String name) {
+        destructionCallbacks.remove(name);
+        return objects.remove(name);
+    }
+
+    synchronized void registerDestructionCallback(String name, Runnable callback) {
+        destructionCallbacks.put(name, callback);
+    }
+
+    /**
+     * 移除名称匹配的对象并执行它们的销毁回调，作用域本身继续有效，之后再获取会创建新的对象
+     */
+    void evict(Predicate<String> beanNames) {
+        List<Runnable> callbacks = new ArrayList<>();
+        synchronized (this) {
+            objects.keySet().removeIf(beanNames);
+            for (Iterator<Map.Entry<String, Runnable>> it = destructionCallbacks.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Runnable> entry = it.next();
+                if (beanNames.test(entry.getKey())) {
+                    callbacks.add(entry.getValue());
+                    it.remove();
+                }
+            }
+            // 正在创建的对象来自旧的配置，创建完成后不缓存
+            objectsInCreation.forEach((name, creation) -> {
+                if (beanNames.test(name)) creation.evicted = true;
+            });
+        }
+        runCallbacks(callbacks);
+    }
+
+    /**
+     * 按创建的相反顺序执行销毁回调，后创建的对象可能依赖先创建的对象
+     */
+    void destroy() {
+        List<Runnable> callbacks;
+        synchronized (this) {
+            if (destroyed) return;
+            destroyed = true;
+            callbacks = new ArrayList<>(destructionCallbacks.values());
+            destructionCallbacks.clear();
+            objects.clear();
+        }
+        runCallbacks(callbacks);
+    }
+
+    private static void runCallbacks(List<Runnable> callbacks) {
+        BeansException failure = null;
+        for (int i = callbacks.size() - 1; i >= 0; i--) {
+            try {
+                callbacks.get(i).run();
+            } catch (RuntimeException e) {
+                if (null == failure) {
+                    failure = new BeansException("Destruction of scoped beans failed", e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 对一组作用域实例执行 {@link #evict(Predicate)}，单个失败不影响其他实例，全部执行后汇总抛出
+     */
+    static void evict(Collection<ScopedObjects> scopedObjects, Predicate<String> beanNames) {
+        BeansException failure = null;
+        for (ScopedObjects objects : scopedObjects) {
+            try {
+                objects.evict(beanNames);
+            } catch (BeansException e) {
+                if (null == failure) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (null != failure) {
+            throw failure;
+        }
+    }
+
+    private static final class Creation {
+
+        final FutureTask<Object> task;
+
+        final Thread thread = Thread.currentThread();
+
+        boolean evicted;
+
+        Creation(ObjectFactory<?> objectFactory) {
+            this.task = new FutureTask<>(objectFactory::getObject);
+        }
+
+    }
+
+}
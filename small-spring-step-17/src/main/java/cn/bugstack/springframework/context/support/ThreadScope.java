@@ -0,0 +1,89 @@
+package cn.bugstack.springframework.context.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.factory.ObjectFactory;
+import cn.bugstack.springframework.beans.factory.config.Scope;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 线程作用域：同一个线程内获取到的是同一个对象
+ * <p>
+ * 对象缓存在 ThreadLocal 中，线程结束不会自动销毁。线程池中的线程在任务结束时需要调用 {@link #end()}，
+ * 执行销毁回调并清空当前线程的对象，否则下一个任务会拿到上一个任务留下的对象。
+ * 上下文刷新和关闭时通过 {@link #evict(Collection)} 清理所有线程中由旧配置创建的对象
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class ThreadScope implements Scope {
+
+    public static final String SCOPE_NAME = "thread";
+
+    private final ThreadLocal<ScopedObjects> threadObjects = new ThreadLocal<>();
+
+    /**
+     * 所有线程的作用域实例，弱引用，线程结束后随 ThreadLocal 一起回收
+     */
+    private final Set<ScopedObjects> allThreadObjects = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    @Override
+    public Object get(String name, ObjectFactory<?> objectFactory) throws BeansException {
+        ScopedObjects scopedObjects = threadObjects.get();
+        if (null == scopedObjects) {
+            scopedObjects = new ScopedObjects();
+            threadObjects.set(scopedObjects);
+            allThreadObjects.add(scopedObjects);
+        }
+        return scopedObjects.get(name, objectFactory);
+    }
+
+    @Override
+    public Object remove(String name) {
+        ScopedObjects scopedObjects = threadObjects.get();
+        return null != scopedObjects ? scopedObjects.remove(name) : null;
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback) {
+        ScopedObjects scopedObjects = threadObjects.get();
+        if (null == scopedObjects) {
+            throw new BeansException("No thread scoped object named '" + name + "' on thread [" + Thread.currentThread().getName() + "]");
+        }
+        scopedObjects.registerDestructionCallback(name, callback);
+    }
+
+    @Override
+    public String getConversationId() {
+        return Thread.currentThread().getName();
+    }
+
+    /**
+     * 结束当前线程的作用域：执行销毁回调，之后再获取会创建新的对象
+     */
+    public void end() {
+        ScopedObjects scopedObjects = threadObjects.get();
+        if (null == scopedObjects) return;
+        threadObjects.remove();
+        allThreadObjects.remove(scopedObjects);
+        scopedObjects.destroy();
+    }
+
+    /**
+     * 清理所有线程中指定名称的对象并执行销毁回调，beanNames 为 null 时清理全部；各线程的作用域继续有效
+     */
+    public void evict(Collection<String> beanNames) throws BeansException {
+        List<ScopedObjects> snapshot;
+        synchronized (allThreadObjects) {
+            snapshot = new ArrayList<>(allThreadObjects);
+        }
+        ScopedObjects.evict(snapshot, null == beanNames ? name -> true : beanNames::contains);
+    }
+
+}
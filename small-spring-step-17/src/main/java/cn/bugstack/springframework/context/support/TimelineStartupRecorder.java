@@ -0,0 +1,245 @@
+package cn.bugstack.springframework.context.support;
+
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.context.ApplicationListener;
+import cn.bugstack.springframework.context.event.ContextRefreshedEvent;
+import cn.bugstack.springframework.core.metrics.StartupRecorder;
+import cn.bugstack.springframework.core.metrics.StartupStep;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link StartupRecorder} implementation that keeps every ended step in memory.
+ * On {@link ContextRefreshedEvent} it hands a report of the slowest steps to the
+ * configured report sink and, if a trace file is configured, writes the whole
+ * timeline in the Chrome trace event format (open it with chrome://tracing or Perfetto).
+ * <p>
+ * 记录启动时间线的 StartupRecorder，容器刷新完成时把耗时排序报告交给调用方设置的 reportSink，并写出 Chrome Trace 文件；
+ * 框架本身不向控制台输出
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class TimelineStartupRecorder implements ApplicationListener<ContextRefreshedEvent>, StartupRecorder {
+
+    public static final String TAG_BEAN_NAME = "beanName";
+
+    public static final String TAG_PARENT_BEAN = "parentBean";
+
+    private final long originNanos = System.nanoTime();
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    private final Queue<TimelineStep> recordedSteps = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 当前线程中正在执行的步骤
+     */
+    private final ThreadLocal<Deque<TimelineStep>> currentSteps = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private int reportLimit = 20;
+
+    private String traceFile;
+
+    private Consumer<String> reportSink;
+
+    @Override
+    public StartupStep start(String name) {
+        Deque<TimelineStep> stack = currentSteps.get();
+        TimelineStep parent = stack.peek();
+        TimelineStep step = new TimelineStep(idGenerator.incrementAndGet(), null != parent ? parent.id : null, name);
+        stack.push(step);
+        return step;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (null != reportSink) {
+            reportSink.accept(getReport());
+        }
+        if (null != traceFile) {
+            writeChromeTrace(traceFile);
+        }
+    }
+
+    /**
+     * 已结束的步骤，按开始时间排序
+     */
+    public List<TimelineStep> getRecordedSteps() {
+        List<TimelineStep> steps = new ArrayList<>(recordedSteps);
+        steps.sort(Comparator.comparingLong(TimelineStep::getStartNanos));
+        return steps;
+    }
+
+    /**
+     * 按耗时倒序输出最慢的 reportLimit 个步骤
+     */
+    public String getReport() {
+        List<TimelineStep> steps = new ArrayList<>(recordedSteps);
+        steps.sort(Comparator.comparingLong(TimelineStep::getDurationNanos).reversed());
+
+        StringBuilder report = new StringBuilder("Startup timeline (").append(steps.size()).append(" steps, slowest first)\n");
+        for (TimelineStep step : steps.subList(0, Math.min(reportLimit, steps.size()))) {
+            report.append(String.format("%10.3f ms  %-40s %s [%s]%n", step.getDurationNanos() / 1_000_000.0, step.name, step.tags, step.threadName));
+        }
+        return report.toString();
+    }
+
+    public void writeChromeTrace(String file) throws BeansException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            writer.write("{\"traceEvents\":[");
+            boolean first = true;
+            for (TimelineStep step : getRecordedSteps()) {
+                if (!first) writer.write(',');
+                first = false;
+                writer.write("\n{\"name\":\"" + escape(step.name) + "\",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":1");
+                writer.write(",\"tid\":" + step.threadId);
+                writer.write(",\"ts\":" + (step.startNanos - originNanos) / 1000);
+                writer.write(",\"dur\":" + step.getDurationNanos() / 1000);
+                writer.write(",\"args\":{");
+                boolean firstTag = true;
+                for (Map.Entry<String, String> tag : step.tags.entrySet()) {
+                    if (!firstTag) writer.write(',');
+                    firstTag = false;
+                    writer.write("\"" + escape(tag.getKey()) + "\":\"" + escape(tag.getValue()) + "\"");
+                }
+                writer.write("}}");
+            }
+            writer.write("\n]}");
+        } catch (IOException e) {
+            throw new BeansException("Could not write startup trace to " + file, e);
+        }
+    }
+
+    private static String escape(String value) {
+        if (null == value) return "";
+        StringBuilder sb = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    public void setReportLimit(int reportLimit) {
+        this.reportLimit = reportLimit;
+    }
+
+    /**
+     * 设置后在容器刷新完成时接收耗时报告，例如写入日志；未设置时只能通过 {@link #getReport()} 主动获取
+     */
+    public void setReportSink(Consumer<String> reportSink) {
+        this.reportSink = reportSink;
+    }
+
+    /**
+     * 设置后在容器刷新完成时写出 Chrome Trace 格式的 JSON 文件
+     */
+    public void setTraceFile(String traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    /**
+     * 一个步骤的记录：开始结束时间、线程、标签
+     */
+    public class TimelineStep implements StartupStep {
+
+        private final long id;
+
+        private final Long parentId;
+
+        private final String name;
+
+        private final Map<String, String> tags = new LinkedHashMap<>();
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final long startNanos;
+
+        private long endNanos;
+
+        TimelineStep(long id, Long parentId, String name) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            Thread thread = Thread.currentThread();
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return parentId;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            tags.put(key, value);
+            return this;
+        }
+
+        @Override
+        public void end() {
+            this.endNanos = System.nanoTime();
+            Deque<TimelineStep> stack = currentSteps.get();
+            stack.remove(this);
+            // 记录创建当前 Bean 的外层 Bean
+            if (tags.containsKey(TAG_BEAN_NAME)) {
+                for (TimelineStep ancestor : stack) {
+                    String parentBean = ancestor.tags.get(TAG_BEAN_NAME);
+                    if (null != parentBean) {
+                        tags.put(TAG_PARENT_BEAN, parentBean);
+                        break;
+                    }
+                }
+            }
+            if (stack.isEmpty()) currentSteps.remove();
+            recordedSteps.add(this);
+        }
+
+        public Map<String, String> getTags() {
+            return Collections.unmodifiableMap(tags);
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getEndNanos() {
+            return endNanos;
+        }
+
+        public long getDurationNanos() {
+            return endNanos - startNanos;
+        }
+
+    }
+
+}
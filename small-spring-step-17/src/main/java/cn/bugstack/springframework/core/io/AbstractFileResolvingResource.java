@@ -0,0 +1,95 @@
+package cn.bugstack.springframework.core.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * Abstract base class for resources which resolve URLs into File references.
+ * <p>
+ * 基于 URL 的资源，file: 协议的 URL 解析为文件，其他协议通过 URLConnection 获取长度和修改时间
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public abstract class AbstractFileResolvingResource extends AbstractResource {
+
+    private static final String URL_PROTOCOL_FILE = "file";
+
+    public abstract URL getURL() throws IOException;
+
+    @Override
+    public boolean exists() {
+        try {
+            URL url = getURL();
+            if (URL_PROTOCOL_FILE.equals(url.getProtocol())) {
+                return getFile().exists();
+            }
+            URLConnection con = url.openConnection();
+            if (con instanceof HttpURLConnection) {
+                HttpURLConnection httpCon = (HttpURLConnection) con;
+                httpCon.setRequestMethod("HEAD");
+                int code = httpCon.getResponseCode();
+                httpCon.disconnect();
+                return code == HttpURLConnection.HTTP_OK;
+            }
+            return con.getContentLengthLong() >= 0 || super.exists();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isFile() {
+        try {
+            return URL_PROTOCOL_FILE.equals(getURL().getProtocol());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public File getFile() throws IOException {
+        URL url = getURL();
+        if (!URL_PROTOCOL_FILE.equals(url.getProtocol())) {
+            throw new FileNotFoundException(this + " cannot be resolved to absolute file path because it does not reside in the file system: " + url);
+        }
+        try {
+            return new File(url.toURI().getSchemeSpecificPart());
+        } catch (URISyntaxException e) {
+            return new File(url.getFile());
+        }
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (isFile()) {
+            return super.contentLength();
+        }
+        URLConnection con = getURL().openConnection();
+        long length = con.getContentLengthLong();
+        if (con instanceof HttpURLConnection) {
+            ((HttpURLConnection) con).disconnect();
+        }
+        return length >= 0 ? length : super.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        if (isFile()) {
+            return super.lastModified();
+        }
+        URLConnection con = getURL().openConnection();
+        long lastModified = con.getLastModified();
+        if (con instanceof HttpURLConnection) {
+            ((HttpURLConnection) con).disconnect();
+        }
+        return lastModified;
+    }
+
+}
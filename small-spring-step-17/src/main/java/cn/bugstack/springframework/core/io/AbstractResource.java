@@ -0,0 +1,93 @@
+package cn.bugstack.springframework.core.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Convenience base class for {@link Resource} implementations,
+ * pre-implementing typical behavior.
+ * <p>
+ * 资源的默认实现：能解析为文件的资源走 NIO 文件通道，较大的文件使用内存映射，其他资源回退到输入流
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public abstract class AbstractResource implements Resource {
+
+    /**
+     * 达到该大小的文件才使用内存映射。小文件建立映射的开销比直接读取更大；映射期间文件被截断时读取会触发 SIGBUS，
+     * 在 Windows 上映射还会阻止文件被替换，配置文件被编辑器改写时都可能遇到
+     */
+    protected static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    @Override
+    public boolean exists() {
+        if (isFile()) {
+            try {
+                return getFile().exists();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return Resource.super.exists();
+    }
+
+    @Override
+    public ReadableByteChannel readableChannel() throws IOException {
+        if (isFile()) {
+            return FileChannel.open(getFile().toPath(), StandardOpenOption.READ);
+        }
+        return Resource.super.readableChannel();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (isFile()) {
+            return existingFile().length();
+        }
+        return Resource.super.contentLength();
+    }
+
+    @Override
+    public long lastModified() throws IOException {
+        return existingFile().lastModified();
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (!isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(existingFile().toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (size >= MAPPING_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            // 读取期间文件可能被改写，以实际读到的内容为准
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // 继续读取剩余内容
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        }
+    }
+
+    private File existingFile() throws IOException {
+        File file = getFile();
+        if (!file.exists()) {
+            throw new FileNotFoundException(this + " cannot be resolved in the file system for checking its content");
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,65 @@
+package cn.bugstack.springframework.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Resource} implementation for a given byte array.
+ * <p>
+ * 内存中的资源，适合加载程序生成的配置
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class ByteArrayResource extends AbstractResource {
+
+    private final byte[] byteArray;
+
+    private final String description;
+
+    public ByteArrayResource(byte[] byteArray) {
+        this(byteArray, "resource loaded from byte array");
+    }
+
+    public ByteArrayResource(byte[] byteArray, String description) {
+        this.byteArray = null != byteArray ? byteArray : new byte[0];
+        this.description = null != description ? description : "";
+    }
+
+    public final byte[] getByteArray() {
+        return this.byteArray;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(this.byteArray);
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return this.byteArray.length;
+    }
+
+    @Override
+    public long lastModified() {
+        return 0;
+    }
+
+    @Override
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(this.byteArray).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return "Byte array resource [" + this.description + "]";
+    }
+
+}
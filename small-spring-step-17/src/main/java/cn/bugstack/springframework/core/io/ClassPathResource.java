@@ -6,8 +6,9 @@ import cn.hutool.core.lang.Assert;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URL;
 
-public class ClassPathResource implements Resource {
+public class ClassPathResource extends AbstractFileResolvingResource {
 
     private final String path;
 
@@ -32,4 +33,28 @@ public class ClassPathResource implements Resource {
         }
         return is;
     }
+
+    @Override
+    public URL getURL() throws IOException {
+        URL url = classLoader.getResource(path);
+        if (url == null) {
+            throw new FileNotFoundException(this + " cannot be resolved to URL because it does not exist");
+        }
+        return url;
+    }
+
+    @Override
+    public boolean exists() {
+        return classLoader.getResource(path) != null;
+    }
+
+    public final String getPath() {
+        return this.path;
+    }
+
+    @Override
+    public String toString() {
+        return "class path resource [" + path + "]";
+    }
+
 }
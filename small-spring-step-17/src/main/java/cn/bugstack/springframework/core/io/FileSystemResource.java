@@ -1,11 +1,13 @@
 package cn.bugstack.springframework.core.io;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 
-public class FileSystemResource implements Resource {
+public class FileSystemResource extends AbstractResource {
 
     private final File file;
 
@@ -23,11 +25,35 @@ public class FileSystemResource implements Resource {
 
     @Override
     public InputStream getInputStream() throws IOException {
-        return new FileInputStream(this.file);
+        try {
+            return Files.newInputStream(this.file.toPath());
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    @Override
+    public boolean isFile() {
+        return true;
+    }
+
+    @Override
+    public File getFile() {
+        return this.file;
     }
 
     public final String getPath() {
         return this.path;
     }
 
+    @Override
+    public String toString() {
+        return "file [" + this.file.getAbsolutePath() + "]";
+    }
+
 }
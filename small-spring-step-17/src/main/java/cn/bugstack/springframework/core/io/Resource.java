@@ -1,10 +1,77 @@
 package cn.bugstack.springframework.core.io;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
+/**
+ * 除 {@link #getInputStream()} 外都有默认实现，已有的 Resource 实现和 lambda 不需要修改
+ */
 public interface Resource {
 
     InputStream getInputStream() throws IOException;
 
+    /**
+     * 资源是否实际存在，默认尝试打开输入流
+     */
+    default boolean exists() {
+        try (InputStream ignored = getInputStream()) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 资源是否对应文件系统中的文件，是的话可以通过 {@link #getFile()} 获取
+     */
+    default boolean isFile() {
+        return false;
+    }
+
+    default File getFile() throws IOException {
+        throw new FileNotFoundException(this + " cannot be resolved to absolute file path");
+    }
+
+    /**
+     * 以 NIO 通道读取资源，文件资源直接返回 FileChannel
+     */
+    default ReadableByteChannel readableChannel() throws IOException {
+        return Channels.newChannel(getInputStream());
+    }
+
+    /**
+     * 资源内容的长度，默认完整读取一遍输入流来计算
+     */
+    default long contentLength() throws IOException {
+        long size = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 最后修改时间，未知时返回 0
+     */
+    default long lastModified() throws IOException {
+        return 0;
+    }
+
+    /**
+     * 资源内容的只读 ByteBuffer：较大的文件使用内存映射，不经过流缓冲区复制，较小的文件一次读入；
+     * 无法低成本提供时返回 null，调用方改用 {@link #getInputStream()}
+     */
+    default ByteBuffer asByteBuffer() throws IOException {
+        return null;
+    }
+
 }
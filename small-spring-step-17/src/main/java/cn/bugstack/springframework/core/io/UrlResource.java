@@ -8,7 +8,7 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 
-public class UrlResource implements Resource{
+public class UrlResource extends AbstractFileResolvingResource {
 
     private final URL url;
 
@@ -31,4 +31,14 @@ public class UrlResource implements Resource{
         }
     }
 
+    @Override
+    public URL getURL() {
+        return this.url;
+    }
+
+    @Override
+    public String toString() {
+        return "URL [" + url + "]";
+    }
+
 }
@@ -0,0 +1,369 @@
+package cn.bugstack.springframework.core.io.support;
+
+import cn.bugstack.springframework.core.io.AbstractFileResolvingResource;
+import cn.bugstack.springframework.core.io.DefaultResourceLoader;
+import cn.bugstack.springframework.core.io.FileSystemResource;
+import cn.bugstack.springframework.core.io.Resource;
+import cn.bugstack.springframework.core.io.ResourceLoader;
+import cn.bugstack.springframework.core.io.UrlResource;
+import cn.bugstack.springframework.util.AntPathMatcher;
+import cn.bugstack.springframework.util.ClassUtils;
+import cn.hutool.core.lang.Assert;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * A {@link ResourcePatternResolver} implementation that is able to resolve a
+ * specified resource location path into one or more matching Resources.
+ * <p>
+ * 每个 classpath 根目录和 jar 包只遍历一次，所有文件路径建成一棵路径树缓存起来，之后的通配符匹配都在内存中完成。
+ * 刷新容器时会解析多个配置位置，缓存在刷新结束后由上下文清理
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class PathMatchingResourcePatternResolver implements ResourcePatternResolver {
+
+    private static final String URL_PROTOCOL_FILE = "file";
+
+    private static final String JAR_FILE_EXTENSION = ".jar";
+
+    private final ResourceLoader resourceLoader;
+
+    private final ClassLoader classLoader;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 根目录或 jar 包 --> 路径树
+     */
+    private final Map<String, PathIndex> rootIndexCache = new ConcurrentHashMap<>();
+
+    public PathMatchingResourcePatternResolver() {
+        this(new DefaultResourceLoader());
+    }
+
+    public PathMatchingResourcePatternResolver(ResourceLoader resourceLoader) {
+        this(resourceLoader, null);
+    }
+
+    public PathMatchingResourcePatternResolver(ResourceLoader resourceLoader, ClassLoader classLoader) {
+        Assert.notNull(resourceLoader, "ResourceLoader must not be null");
+        this.resourceLoader = resourceLoader;
+        this.classLoader = classLoader;
+    }
+
+    public ResourceLoader getResourceLoader() {
+        return resourceLoader;
+    }
+
+    public ClassLoader getClassLoader() {
+        return null != classLoader ? classLoader : ClassUtils.getDefaultClassLoader();
+    }
+
+    @Override
+    public Resource getResource(String location) {
+        return resourceLoader.getResource(location);
+    }
+
+    @Override
+    public Resource[] getResources(String locationPattern) throws IOException {
+        Assert.notNull(locationPattern, "Location pattern must not be null");
+        if (locationPattern.startsWith(CLASSPATH_ALL_URL_PREFIX)) {
+            String path = locationPattern.substring(CLASSPATH_ALL_URL_PREFIX.length());
+            if (pathMatcher.isPattern(path)) {
+                return findPathMatchingClassPathResources(path);
+            }
+            return findAllClassPathResources(path);
+        }
+
+        // 去掉 classpath: 之类的前缀后再判断是否包含通配符
+        int prefixEnd = locationPattern.startsWith(CLASSPATH_URL_PREFIX) ? CLASSPATH_URL_PREFIX.length() : 0;
+        if (pathMatcher.isPattern(locationPattern.substring(prefixEnd))) {
+            return findPathMatchingResources(locationPattern);
+        }
+        return new Resource[]{getResource(locationPattern)};
+    }
+
+    /**
+     * 清空路径树缓存，下次匹配时重新遍历
+     */
+    public void clearCache() {
+        rootIndexCache.clear();
+    }
+
+    private Resource[] findAllClassPathResources(String path) throws IOException {
+        if (path.startsWith("/")) path = path.substring(1);
+        Set<Resource> result = new LinkedHashSet<>();
+        Enumeration<URL> urls = getClassLoader().getResources(path);
+        while (urls.hasMoreElements()) {
+            result.add(new UrlResource(urls.nextElement()));
+        }
+        return result.toArray(new Resource[0]);
+    }
+
+    /**
+     * classpath*: 通配符：找出包含根目录的所有 classpath 位置，分别在对应的路径树中匹配。
+     * 只有根目录为空或者一个位置都没找到时，才遍历类加载器中的全部 jar 包
+     */
+    private Resource[] findPathMatchingClassPathResources(String pattern) throws IOException {
+        if (pattern.startsWith("/")) pattern = pattern.substring(1);
+        String rootDir = determineRootDir(pattern);
+        Set<Resource> result = new LinkedHashSet<>();
+        Set<PathIndex> searched = new HashSet<>();
+        Enumeration<URL> rootUrls = getClassLoader().getResources(rootDir);
+        while (rootUrls.hasMoreElements()) {
+            URL rootUrl = rootUrls.nextElement();
+            PathIndex index = getClassPathRootIndex(rootUrl, rootDir);
+            if (null != index && searched.add(index)) {
+                index.findMatchingResources(rootDir, pattern, result);
+            }
+        }
+        // 没有目录条目的 jar 包不会出现在 getResources 的结果中；为了它们遍历每个依赖 jar 包代价太高，
+        // 只在根目录为空（getResources("") 不返回 jar 包）或者没有找到任何位置时，才在类加载器的 jar 包路径树中查找
+        if (!rootDir.isEmpty() && !searched.isEmpty()) {
+            return result.toArray(new Resource[0]);
+        }
+        for (URL jarFileUrl : getClassPathJarFiles()) {
+            PathIndex index = rootIndexCache.computeIfAbsent(jarFileUrl.toExternalForm(), key -> PathIndex.forJar(jarFileUrl));
+            if (searched.add(index)) {
+                index.findMatchingResources(rootDir, pattern, result);
+            }
+        }
+        return result.toArray(new Resource[0]);
+    }
+
+    /**
+     * 类加载器层级中 URLClassLoader 的 jar 包，系统类加载器额外包含 java.class.path 中的 jar 包
+     */
+    private Set<URL> getClassPathJarFiles() throws MalformedURLException {
+        Set<URL> jarFiles = new LinkedHashSet<>();
+        ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        for (ClassLoader cl = getClassLoader(); null != cl; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    if (URL_PROTOCOL_FILE.equals(url.getProtocol()) && url.getPath().endsWith(JAR_FILE_EXTENSION)) {
+                        jarFiles.add(normalizeJarFileUrl(url));
+                    }
+                }
+            }
+            if (cl == systemClassLoader) {
+                for (String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (path.endsWith(JAR_FILE_EXTENSION) && new File(path).isFile()) {
+                        jarFiles.add(new File(path).toURI().toURL());
+                    }
+                }
+            }
+        }
+        return jarFiles;
+    }
+
+    /**
+     * classpath: 或文件系统路径中的通配符，只在根目录对应的一个位置中匹配
+     */
+    private Resource[] findPathMatchingResources(String locationPattern) throws IOException {
+        String rootDirLocation = determineRootDir(locationPattern);
+        String subPattern = locationPattern.substring(rootDirLocation.length());
+        Resource rootDirResource = getResource(rootDirLocation);
+        Set<Resource> result = new LinkedHashSet<>();
+        if (rootDirResource.isFile()) {
+            File rootDir = rootDirResource.getFile();
+            PathIndex index = rootIndexCache.computeIfAbsent(URL_PROTOCOL_FILE + ":" + rootDir.getAbsolutePath(), key -> PathIndex.forDirectory(rootDir));
+            index.findMatchingResources("", subPattern, result);
+        } else if (rootDirResource instanceof AbstractFileResolvingResource) {
+            // 根目录位于 jar 包中，在整个 jar 的路径树中从根目录对应的条目开始匹配；jar 包中不一定有目录条目，不检查是否存在
+            URL rootUrl;
+            try {
+                rootUrl = ((AbstractFileResolvingResource) rootDirResource).getURL();
+            } catch (FileNotFoundException e) {
+                return new Resource[0];
+            }
+            URLConnection connection = rootUrl.openConnection();
+            if (connection instanceof JarURLConnection) {
+                String entryRoot = ((JarURLConnection) connection).getEntryName();
+                if (null == entryRoot) entryRoot = "";
+                PathIndex index = getClassPathRootIndex(rootUrl, entryRoot);
+                if (null != index) {
+                    index.findMatchingResources(entryRoot, entryRoot + subPattern, result);
+                }
+            }
+        }
+        return result.toArray(new Resource[0]);
+    }
+
+    /**
+     * 获取 classpath 位置的路径树：目录按 classpath 根目录索引，jar 包按整个 jar 索引，同一个根只遍历一次
+     */
+    private PathIndex getClassPathRootIndex(URL rootUrl, String rootDir) throws IOException {
+        if (URL_PROTOCOL_FILE.equals(rootUrl.getProtocol())) {
+            File dir;
+            try {
+                dir = new File(rootUrl.toURI().getSchemeSpecificPart());
+            } catch (URISyntaxException e) {
+                dir = new File(rootUrl.getFile());
+            }
+            // 从根目录向上退回到 classpath 根目录
+            File classPathRoot = dir;
+            for (String segment : rootDir.split("/")) {
+                if (!segment.isEmpty() && null != classPathRoot) classPathRoot = classPathRoot.getParentFile();
+            }
+            if (null == classPathRoot) return null;
+            File root = classPathRoot;
+            return rootIndexCache.computeIfAbsent(URL_PROTOCOL_FILE + ":" + root.getAbsolutePath(), key -> PathIndex.forDirectory(root));
+        }
+
+        URLConnection connection = rootUrl.openConnection();
+        if (connection instanceof JarURLConnection) {
+            URL jarFileUrl = normalizeJarFileUrl(((JarURLConnection) connection).getJarFileURL());
+            return rootIndexCache.computeIfAbsent(jarFileUrl.toExternalForm(), key -> PathIndex.forJar(jarFileUrl));
+        }
+        return null;
+    }
+
+    /**
+     * 统一 jar 包 URL 的写法，保证同一个 jar 包只建一次路径树
+     */
+    private static URL normalizeJarFileUrl(URL jarFileUrl) throws MalformedURLException {
+        try {
+            return new File(jarFileUrl.toURI()).toURI().toURL();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return jarFileUrl;
+        }
+    }
+
+    /**
+     * 截取模式中不含通配符的根目录，例如 META-INF/beans/**&#47;*.xml 的根目录是 META-INF/beans/
+     */
+    protected String determineRootDir(String location) {
+        int prefixEnd = location.indexOf(':') + 1;
+        int rootDirEnd = location.length();
+        while (rootDirEnd > prefixEnd && pathMatcher.isPattern(location.substring(prefixEnd, rootDirEnd))) {
+            rootDirEnd = location.lastIndexOf('/', rootDirEnd - 2) + 1;
+        }
+        if (rootDirEnd == 0) {
+            rootDirEnd = prefixEnd;
+        }
+        return location.substring(0, rootDirEnd);
+    }
+
+    /**
+     * 一个目录或 jar 包中所有文件路径组成的路径树
+     */
+    private static final class PathIndex {
+
+        private final Node root = new Node();
+
+        private final File baseDir;
+
+        private final URL jarFileUrl;
+
+        private PathIndex(File baseDir, URL jarFileUrl) {
+            this.baseDir = baseDir;
+            this.jarFileUrl = jarFileUrl;
+        }
+
+        static PathIndex forDirectory(File dir) {
+            PathIndex index = new PathIndex(dir, null);
+            Path basePath = dir.toPath();
+            if (!dir.isDirectory()) return index;
+            try (Stream<Path> paths = Files.walk(basePath)) {
+                paths.filter(Files::isRegularFile).forEach(path -> index.add(basePath.relativize(path).toString().replace(File.separatorChar, '/')));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not index directory " + dir, e);
+            }
+            return index;
+        }
+
+        static PathIndex forJar(URL jarFileUrl) {
+            PathIndex index = new PathIndex(null, jarFileUrl);
+            try (JarFile jarFile = new JarFile(new File(jarFileUrl.toURI()))) {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    if (!entry.isDirectory()) index.add(entry.getName());
+                }
+            } catch (IOException | URISyntaxException e) {
+                throw new IllegalStateException("Could not index jar file " + jarFileUrl, e);
+            }
+            return index;
+        }
+
+        private void add(String path) {
+            Node node = root;
+            for (String segment : path.split("/")) {
+                if (segment.isEmpty()) continue;
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+            node.file = true;
+        }
+
+        /**
+         * 先定位到根目录对应的节点，再按模式向下遍历，前缀不可能匹配的子树直接跳过
+         */
+        void findMatchingResources(String rootDir, String pattern, Set<Resource> result) throws MalformedURLException {
+            AntPathMatcher pathMatcher = new AntPathMatcher();
+            Node node = root;
+            for (String segment : rootDir.split("/")) {
+                if (segment.isEmpty()) continue;
+                node = node.children.get(segment);
+                if (null == node) return;
+            }
+            String prefix = rootDir.isEmpty() || rootDir.endsWith("/") ? rootDir : rootDir + "/";
+            collect(node, prefix, pattern, pathMatcher, result);
+        }
+
+        private void collect(Node node, String currentPath, String pattern, AntPathMatcher pathMatcher, Set<Resource> result) throws MalformedURLException {
+            for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+                String path = currentPath + entry.getKey();
+                Node child = entry.getValue();
+                if (child.file && pathMatcher.match(pattern, path)) {
+                    result.add(createResource(path));
+                }
+                if (!child.children.isEmpty() && pathMatcher.matchStart(pattern, path)) {
+                    collect(child, path + "/", pattern, pathMatcher, result);
+                }
+            }
+        }
+
+        private Resource createResource(String path) throws MalformedURLException {
+            if (null != baseDir) {
+                return new FileSystemResource(new File(baseDir, path));
+            }
+            return new UrlResource(new URL("jar:" + jarFileUrl.toExternalForm() + "!/" + path));
+        }
+
+    }
+
+    private static final class Node {
+
+        /**
+         * 按名称排序，保证匹配结果的顺序稳定
+         */
+        private final Map<String, Node> children = new TreeMap<>();
+
+        private boolean file;
+
+    }
+
+}
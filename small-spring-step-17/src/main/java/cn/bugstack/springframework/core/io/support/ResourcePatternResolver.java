@@ -0,0 +1,27 @@
+package cn.bugstack.springframework.core.io.support;
+
+import cn.bugstack.springframework.core.io.Resource;
+import cn.bugstack.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+
+/**
+ * Strategy interface for resolving a location pattern (for example,
+ * an Ant-style path pattern) into {@link Resource} objects.
+ * <p>
+ * 支持 classpath*: 前缀和 Ant 风格通配符的资源解析，例如 classpath*:META-INF/beans/**&#47;*.xml
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface ResourcePatternResolver extends ResourceLoader {
+
+    /**
+     * Pseudo URL prefix for all matching resources from the class path: "classpath*:"
+     */
+    String CLASSPATH_ALL_URL_PREFIX = "classpath*:";
+
+    Resource[] getResources(String locationPattern) throws IOException;
+
+}
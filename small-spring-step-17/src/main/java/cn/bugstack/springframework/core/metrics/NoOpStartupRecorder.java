@@ -0,0 +1,48 @@
+package cn.bugstack.springframework.core.metrics;
+
+/**
+ * Default "no op" {@link StartupRecorder} implementation. Every call returns the
+ * same shared step instance, so instrumentation costs nothing when not enabled.
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public final class NoOpStartupRecorder implements StartupRecorder {
+
+    private static final StartupStep NO_OP_STEP = new NoOpStartupStep();
+
+    @Override
+    public StartupStep start(String name) {
+        return NO_OP_STEP;
+    }
+
+    private static final class NoOpStartupStep implements StartupStep {
+
+        @Override
+        public String getName() {
+            return "no-op";
+        }
+
+        @Override
+        public long getId() {
+            return 0L;
+        }
+
+        @Override
+        public Long getParentId() {
+            return null;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            return this;
+        }
+
+        @Override
+        public void end() {
+        }
+
+    }
+
+}
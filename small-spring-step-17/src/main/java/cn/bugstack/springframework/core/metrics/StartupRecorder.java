@@ -0,0 +1,33 @@
+package cn.bugstack.springframework.core.metrics;
+
+/**
+ * Instruments the application startup phase using {@link StartupStep steps}.
+ * <p>The core container and its infrastructure components can use the
+ * {@code StartupRecorder} to mark steps during the application startup and
+ * collect data about the execution context or their processing time.
+ * <p>
+ * 启动过程埋点 SPI，默认实现不做任何记录
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface StartupRecorder {
+
+    /**
+     * Default "no op" {@code StartupRecorder} implementation.
+     */
+    StartupRecorder DEFAULT = new NoOpStartupRecorder();
+
+    /**
+     * Create a new step and mark its beginning. Steps started on the same thread
+     * while this one is running become its children.
+     * <p>
+     * 开始一个步骤，同一线程中在它结束之前开始的步骤都是它的子步骤
+     *
+     * @param name the step name
+     * @return
+     */
+    StartupStep start(String name);
+
+}
@@ -0,0 +1,29 @@
+package cn.bugstack.springframework.core.metrics;
+
+/**
+ * Step recording metrics about a particular phase or action happening during the {@link StartupRecorder}.
+ * <p>A {@code StartupStep} is created with {@link StartupRecorder#start(String)}, can be
+ * tagged with key/value information and must be marked as ended with {@link #end()}.
+ * <p>
+ * 启动过程中的一个步骤
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public interface StartupStep {
+
+    String getName();
+
+    long getId();
+
+    /**
+     * 父步骤 id，顶层步骤返回 null
+     */
+    Long getParentId();
+
+    StartupStep tag(String key, String value);
+
+    void end();
+
+}
@@ -0,0 +1,113 @@
+package cn.bugstack.springframework.util;
+
+/**
+ * Ant-style path pattern matcher.
+ * <p>
+ * The mapping matches paths using the following rules:
+ * <ul>
+ * <li>{@code ?} matches one character</li>
+ * <li>{@code *} matches zero or more characters within a path segment</li>
+ * <li>{@code **} matches zero or more directories in a path</li>
+ * </ul>
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class AntPathMatcher {
+
+    public static final String DEFAULT_PATH_SEPARATOR = "/";
+
+    private static final String MATCH_ALL_DIRECTORIES = "**";
+
+    public boolean isPattern(String path) {
+        return null != path && (path.indexOf('*') != -1 || path.indexOf('?') != -1);
+    }
+
+    /**
+     * 路径与模式完全匹配
+     */
+    public boolean match(String pattern, String path) {
+        return doMatch(pattern, path, true);
+    }
+
+    /**
+     * 路径是否可能是某个匹配路径的前缀，用于遍历目录时提前剪枝
+     */
+    public boolean matchStart(String pattern, String path) {
+        return doMatch(pattern, path, false);
+    }
+
+    protected boolean doMatch(String pattern, String path, boolean fullMatch) {
+        if (path.startsWith(DEFAULT_PATH_SEPARATOR) != pattern.startsWith(DEFAULT_PATH_SEPARATOR)) {
+            return false;
+        }
+        return matchSegments(tokenize(pattern), 0, tokenize(path), 0, fullMatch);
+    }
+
+    private boolean matchSegments(String[] patternSegments, int patternIndex, String[] pathSegments, int pathIndex, boolean fullMatch) {
+        while (patternIndex < patternSegments.length && pathIndex < pathSegments.length) {
+            String patternSegment = patternSegments[patternIndex];
+            if (MATCH_ALL_DIRECTORIES.equals(patternSegment)) {
+                if (patternIndex == patternSegments.length - 1) return true;
+                // ** 匹配任意层目录，依次尝试剩余路径的每个位置
+                for (int i = pathIndex; i <= pathSegments.length; i++) {
+                    if (matchSegments(patternSegments, patternIndex + 1, pathSegments, i, fullMatch)) return true;
+                }
+                return false;
+            }
+            if (!matchSegment(patternSegment, pathSegments[pathIndex])) return false;
+            patternIndex++;
+            pathIndex++;
+        }
+
+        if (pathIndex < pathSegments.length) {
+            return false;
+        }
+        if (!fullMatch) {
+            return true;
+        }
+        // 路径已经匹配完，剩余的模式只能是 **
+        for (int i = patternIndex; i < patternSegments.length; i++) {
+            if (!MATCH_ALL_DIRECTORIES.equals(patternSegments[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 单个路径段的匹配，* 匹配任意个字符，? 匹配一个字符
+     */
+    private boolean matchSegment(String pattern, String str) {
+        int p = 0, s = 0, starIndex = -1, starMatch = 0;
+        while (s < str.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == str.charAt(s))) {
+                p++;
+                s++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                starIndex = p++;
+                starMatch = s;
+            } else if (starIndex != -1) {
+                p = starIndex + 1;
+                s = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    private String[] tokenize(String path) {
+        String[] tokens = path.split(DEFAULT_PATH_SEPARATOR);
+        int count = 0;
+        for (String token : tokens) {
+            if (!token.isEmpty()) tokens[count++] = token;
+        }
+        String[] result = new String[count];
+        System.arraycopy(tokens, 0, result, 0, count);
+        return result;
+    }
+
+}
@@ -1,12 +1,90 @@
 package cn.bugstack.springframework.test;
 
+import cn.bugstack.springframework.beans.BeanWrapper;
+import cn.bugstack.springframework.beans.BeanWrapperImpl;
+import cn.bugstack.springframework.beans.BeansException;
+import cn.bugstack.springframework.beans.PropertyValue;
+import cn.bugstack.springframework.beans.PropertyValues;
+import cn.bugstack.springframework.beans.factory.BeanHandle;
+import cn.bugstack.springframework.beans.factory.BeanLease;
+import cn.bugstack.springframework.beans.factory.DisposableBean;
+import cn.bugstack.springframework.beans.factory.FactoryBean;
+import cn.bugstack.springframework.beans.factory.PooledBean;
+import cn.bugstack.springframework.beans.factory.RefreshableFactoryBean;
+import cn.bugstack.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import cn.bugstack.springframework.beans.factory.config.BeanDefinition;
+import cn.bugstack.springframework.beans.factory.config.BeanPostProcessor;
+import cn.bugstack.springframework.beans.factory.config.BeanReference;
+import cn.bugstack.springframework.beans.factory.config.ConfigurableBeanFactory;
+import cn.bugstack.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import cn.bugstack.springframework.beans.factory.config.PoolConfig;
+import cn.bugstack.springframework.beans.factory.config.PoolMetrics;
+import cn.bugstack.springframework.beans.factory.support.BeanPool;
+import cn.bugstack.springframework.beans.factory.support.DefaultListableBeanFactory;
+import cn.bugstack.springframework.beans.factory.xml.XmlBeanDefinitionReader;
+import cn.bugstack.springframework.context.annotation.ClassPathBeanDefinitionScanner;
+import cn.bugstack.springframework.context.index.CandidateComponentsIndex;
+import cn.bugstack.springframework.context.index.CandidateComponentsIndexer;
 import cn.bugstack.springframework.context.support.ClassPathXmlApplicationContext;
+import cn.bugstack.springframework.context.support.ConfigurationFileWatcher;
+import cn.bugstack.springframework.context.support.RequestScope;
+import cn.bugstack.springframework.context.support.ThreadScope;
+import cn.bugstack.springframework.context.support.TimelineStartupRecorder;
 import cn.bugstack.springframework.core.convert.converter.Converter;
 import cn.bugstack.springframework.core.convert.support.StringToNumberConverterFactory;
+import cn.bugstack.springframework.core.io.ByteArrayResource;
+import cn.bugstack.springframework.core.io.ClassPathResource;
+import cn.bugstack.springframework.core.io.DefaultResourceLoader;
+import cn.bugstack.springframework.core.io.FileSystemResource;
+import cn.bugstack.springframework.core.io.Resource;
+import cn.bugstack.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import cn.bugstack.springframework.core.metrics.StartupStep;
+import cn.bugstack.springframework.util.AntPathMatcher;
+import cn.bugstack.springframework.test.bean.CycleNode;
 import cn.bugstack.springframework.test.bean.Husband;
+import cn.bugstack.springframework.test.bean.HusbandHolder;
+import cn.bugstack.springframework.test.bean.PooledFormatter;
+import cn.bugstack.springframework.test.bean.RequestCache;
+import cn.bugstack.springframework.test.bean.ServerConfig;
+import cn.bugstack.springframework.test.bean.ReportService;
+import cn.bugstack.springframework.test.bean.SlowBean;
+import cn.bugstack.springframework.test.bean.SlowBeanHolder;
+import cn.bugstack.springframework.test.bean.StaticInitBean;
+import cn.bugstack.springframework.test.bean.UserDao;
+import cn.bugstack.springframework.test.bean.UserService;
+import cn.bugstack.springframework.test.bean.Wife;
 import cn.bugstack.springframework.test.converter.StringToIntegerConverter;
+import org.junit.Assert;
 import org.junit.Test;
 
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
  * 公众号：bugstack虫洞栈
@@ -39,5 +117,1490 @@ public class ApiTest {
         System.out.println("测试结果：" + stringToLongConverter.convert("1234"));
     }
 
+    @Test
+    public void test_getBeanNamesForType() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class));
+        beanFactory.registerBeanDefinition("stringToIntegerConverter", new BeanDefinition(StringToIntegerConverter.class));
+
+        String[] converterNames = beanFactory.getBeanNamesForType(Converter.class);
+        System.out.println("测试结果：" + Arrays.toString(converterNames));
+        Assert.assertArrayEquals(new String[]{"stringToIntegerConverter"}, converterNames);
+        Assert.assertEquals(2, beanFactory.getBeanNamesForType(Object.class).length);
+
+        // 重复注册后，类型索引同步更新
+        beanFactory.registerBeanDefinition("stringToIntegerConverter", new BeanDefinition(Husband.class));
+        Assert.assertEquals(0, beanFactory.getBeanNamesForType(Converter.class).length);
+    }
+
+    @Test
+    public void test_parallelPreInstantiation() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.setParallelPreInstantiation(true);
+        for (int i = 0; i < 16; i++) {
+            PropertyValues husbandValues = new PropertyValues();
+            husbandValues.addPropertyValue(new PropertyValue("wifiName", "wife" + i));
+            beanFactory.registerBeanDefinition("husband" + i, new BeanDefinition(Husband.class, husbandValues));
+
+            PropertyValues wifeValues = new PropertyValues();
+            wifeValues.addPropertyValue(new PropertyValue("wifeName", "wife" + i));
+            wifeValues.addPropertyValue(new PropertyValue("husband", new BeanReference("husband" + i)));
+            beanFactory.registerBeanDefinition("wife" + i, new BeanDefinition(Wife.class, wifeValues));
+        }
+
+        beanFactory.preInstantiateSingletons();
+
+        for (int i = 0; i < 16; i++) {
+            Wife wife = beanFactory.getBean("wife" + i, Wife.class);
+            Assert.assertSame(beanFactory.getBean("husband" + i), wife.getHusband());
+        }
+        System.out.println("测试结果：" + beanFactory.getBean("wife0"));
+    }
+
+    @Test
+    public void test_singleFlightSingleton() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("slowBean", new BeanDefinition(SlowBean.class));
+        SlowBean.INSTANCES.set(0);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch latch = new CountDownLatch(1);
+        Set<Future<Object>> futures = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> {
+                latch.await();
+                return beanFactory.getBean("slowBean");
+            }));
+        }
+        latch.countDown();
+
+        Set<Object> beans = new HashSet<>();
+        for (Future<Object> future : futures) {
+            beans.add(future.get());
+        }
+        executorService.shutdown();
+
+        System.out.println("测试结果：" + SlowBean.INSTANCES.get());
+        Assert.assertEquals(1, SlowBean.INSTANCES.get());
+        Assert.assertEquals(1, beans.size());
+    }
+
+    @Test
+    public void test_injectionMetadata() {
+        ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext("classpath:spring-scan.xml");
+        UserService userService01 = applicationContext.getBean("userService", UserService.class);
+        UserService userService02 = applicationContext.getBean("userService", UserService.class);
+
+        System.out.println("测试结果：" + userService01.queryUserInfo());
+        Assert.assertNotSame(userService01, userService02);
+        Assert.assertEquals("RejDlI78hu223Opo983Ds", userService02.getToken());
+        Assert.assertSame(userService01.getUserDao(), userService02.getUserDao());
+    }
+
+    @Test
+    public void test_beanCreationPlan() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        BeanDefinition beanDefinition = new BeanDefinition(StringBuilder.class);
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("stringBuilder", beanDefinition);
+
+        StringBuilder builder01 = (StringBuilder) beanFactory.getBean("stringBuilder", "bugstack");
+        StringBuilder builder02 = (StringBuilder) beanFactory.getBean("stringBuilder", 64);
+        StringBuilder builder03 = (StringBuilder) beanFactory.getBean("stringBuilder");
+
+        System.out.println("测试结果：" + builder01 + " " + builder02.capacity() + " " + builder03.capacity());
+        Assert.assertEquals("bugstack", builder01.toString());
+        Assert.assertEquals(64, builder02.capacity());
+        Assert.assertEquals(16, builder03.capacity());
+    }
+
+    @Test
+    public void test_beanWrapper() {
+        Wife wife = new Wife();
+        wife.setHusband(new Husband());
+
+        BeanWrapper beanWrapper = new BeanWrapperImpl(wife);
+        beanWrapper.setPropertyValue("wifeName", "小红");
+        beanWrapper.setPropertyValue("husband.wifiName", "小明");
+
+        System.out.println("测试结果：" + wife);
+        Assert.assertEquals("小明", wife.getHusband().getWifiName());
+        Assert.assertEquals("小红", beanWrapper.getPropertyValue("wifeName"));
+        Assert.assertEquals(LocalDate.class, beanWrapper.getPropertyType("husband.marriageDate"));
+        Assert.assertFalse(beanWrapper.isWritableProperty("husband.age"));
+    }
+
+    @Test
+    public void test_freezeConfiguration() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class));
+        beanFactory.freezeConfiguration();
+
+        // 冻结后注册的 BeanDefinition 生成新的快照
+        beanFactory.registerBeanDefinition("wife", new BeanDefinition(Wife.class));
+
+        System.out.println("测试结果：" + Arrays.toString(beanFactory.getBeanDefinitionNames()));
+        Assert.assertTrue(beanFactory.isConfigurationFrozen());
+        Assert.assertTrue(beanFactory.containsBeanDefinition("wife"));
+        Assert.assertEquals(Husband.class, beanFactory.getBeanDefinition("husband").getBeanClass());
+        Assert.assertFalse(beanFactory.containsBeanDefinition("userService"));
+    }
+
+    @Test
+    public void test_beanPostProcessorSupports() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class));
+        beanFactory.registerBeanDefinition("wife", new BeanDefinition(Wife.class));
+
+        Set<String> processedBeanNames = new HashSet<>();
+        beanFactory.addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                processedBeanNames.add(beanName);
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean;
+            }
+
+            @Override
+            public boolean supports(Class<?> beanClass) {
+                return Husband.class.isAssignableFrom(beanClass);
+            }
+        });
+        beanFactory.preInstantiateSingletons();
+
+        System.out.println("测试结果：" + processedBeanNames);
+        Assert.assertEquals(Collections.singleton("husband"), processedBeanNames);
+    }
+
+    @Test
+    public void test_lazyInit() {
+        ReportService.INSTANCES.set(0);
+        ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext("classpath:spring-scan.xml");
+        Assert.assertEquals(0, ReportService.INSTANCES.get());
+
+        // @Lazy 注入点拿到的是代理对象，第一次调用时才创建目标 Bean
+        UserService userService = applicationContext.getBean("userService", UserService.class);
+        Assert.assertEquals(0, ReportService.INSTANCES.get());
+
+        System.out.println("测试结果：" + userService.getReportService().report());
+        Assert.assertEquals(1, ReportService.INSTANCES.get());
+        Assert.assertSame(applicationContext.getBean("reportService"), applicationContext.getBean(ReportService.class));
+        Assert.assertEquals(1, ReportService.INSTANCES.get());
+    }
+
+    @Test
+    public void test_startupRecorder() throws Exception {
+        File traceFile = File.createTempFile("startup-trace", ".json");
+        traceFile.deleteOnExit();
+
+        TimelineStartupRecorder startupRecorder = new TimelineStartupRecorder();
+        startupRecorder.setReportLimit(5);
+        startupRecorder.setTraceFile(traceFile.getAbsolutePath());
+        List<String> reports = new ArrayList<>();
+        startupRecorder.setReportSink(reports::add);
+
+        ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+        applicationContext.setStartupRecorder(startupRecorder);
+        applicationContext.refresh();
+
+        Set<String> stepNames = new HashSet<>();
+        Set<String> createdBeanNames = new HashSet<>();
+        for (TimelineStartupRecorder.TimelineStep step : startupRecorder.getRecordedSteps()) {
+            stepNames.add(step.getName());
+            if ("spring.beans.instantiate".equals(step.getName())) {
+                createdBeanNames.add(step.getTags().get(TimelineStartupRecorder.TAG_BEAN_NAME));
+            }
+        }
+
+        String trace = new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8);
+        System.out.println("测试结果：" + stepNames);
+        Assert.assertTrue(stepNames.containsAll(Arrays.asList("spring.context.refresh", "spring.context.beans.load", "spring.beans.init")));
+        Assert.assertTrue(createdBeanNames.contains("userDao"));
+        Assert.assertTrue(trace.startsWith("{\"traceEvents\":["));
+        Assert.assertEquals(1, reports.size());
+        Assert.assertTrue(reports.get(0).startsWith("Startup timeline"));
+
+        // 启动完成后不再记录，按需创建的 prototype Bean 不会让时间线一直增长
+        int recordedSteps = startupRecorder.getRecordedSteps().size();
+        for (int i = 0; i < 10; i++) {
+            applicationContext.getBean("userService");
+        }
+        Assert.assertEquals(recordedSteps, startupRecorder.getRecordedSteps().size());
+        applicationContext.close();
+
+        // 刷新失败时步骤同样结束，之后的步骤不会嵌套在未结束的旧步骤下
+        ClassPathXmlApplicationContext brokenContext = new ClassPathXmlApplicationContext(new String[]{"classpath:missing-config.xml"}, false);
+        brokenContext.setStartupRecorder(startupRecorder);
+        try {
+            brokenContext.refresh();
+            Assert.fail("missing configuration expected");
+        } catch (BeansException expected) {
+        }
+        StartupStep probe = startupRecorder.start("probe");
+        Assert.assertNull(probe.getParentId());
+        probe.end();
+    }
+
+    @Test
+    public void test_beanHandle() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class));
+        BeanDefinition wifeDefinition = new BeanDefinition(Wife.class);
+        wifeDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("wife", wifeDefinition);
+
+        BeanHandle<Husband> husbandHandle = beanFactory.getBeanHandle("husband", Husband.class);
+        BeanHandle<Wife> wifeHandle = beanFactory.getBeanHandle("wife", Wife.class);
+
+        System.out.println("测试结果：" + husbandHandle.get());
+        Assert.assertSame(beanFactory.getBean("husband"), husbandHandle.get());
+        Assert.assertSame(husbandHandle.get(), husbandHandle.get());
+        Assert.assertNotSame(wifeHandle.get(), wifeHandle.get());
+
+        try {
+            beanFactory.getBeanHandle("husband", Wife.class);
+            Assert.fail("expected BeansException");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("expected to be of type"));
+        }
+    }
+
+    @Test
+    public void test_resolvedSingletonNotRepublishedAfterDestroy() throws Exception {
+        AtomicBoolean pause = new AtomicBoolean();
+        CountDownLatch fetched = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory() {
+            @Override
+            public Object getSingleton(String beanName) {
+                Object singletonObject = super.getSingleton(beanName);
+                // 读取到旧对象后暂停，模拟读取与写入已解析的单例表之间发生了销毁
+                if ("husband".equals(beanName) && pause.compareAndSet(true, false)) {
+                    fetched.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return singletonObject;
+            }
+        };
+        beanFactory.registerBeanDefinition("husband", new BeanDefinition(Husband.class));
+        Husband oldHusband = new Husband();
+        beanFactory.registerSingleton("husband", oldHusband);
+
+        pause.set(true);
+        AtomicReference<Object> readerResult = new AtomicReference<>();
+        Thread reader = new Thread(() -> readerResult.set(beanFactory.getBean("husband")));
+        reader.start();
+        Assert.assertTrue(fetched.await(5, TimeUnit.SECONDS));
+
+        beanFactory.destroySingleton("husband");
+        Object newHusband = beanFactory.getBean("husband");
+        Assert.assertNotSame(oldHusband, newHusband);
+
+        resume.countDown();
+        reader.join();
+        Assert.assertSame(oldHusband, readerResult.get());
+        // 读取方不能把旧对象写回已解析的单例表
+        Assert.assertSame(newHusband, beanFactory.getBean("husband"));
+        Assert.assertSame(newHusband, beanFactory.getBeanHandle("husband", Husband.class).get());
+    }
+
+    @Test
+    public void test_beanDefinitionSnapshot() throws Exception {
+        File snapshotFile = File.createTempFile("bean-definitions", ".snapshot");
+        snapshotFile.deleteOnExit();
+        Assert.assertTrue(snapshotFile.delete());
+
+        // 1. 第一次启动正常加载，并写入快照
+        ClassPathXmlApplicationContext applicationContext01 = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+        applicationContext01.setSnapshotFile(snapshotFile.getAbsolutePath());
+        applicationContext01.refresh();
+        Assert.assertTrue(snapshotFile.exists());
+        byte[] snapshot = Files.readAllBytes(snapshotFile.toPath());
+
+        // 2. 第二次启动从快照恢复，快照文件不会被重写
+        Assert.assertTrue(snapshotFile.setLastModified(0L));
+        ClassPathXmlApplicationContext applicationContext02 = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+        applicationContext02.setSnapshotFile(snapshotFile.getAbsolutePath());
+        applicationContext02.refresh();
+        Assert.assertEquals(0L, snapshotFile.lastModified());
+
+        UserService userService = applicationContext02.getBean("userService", UserService.class);
+        System.out.println("测试结果：" + userService.queryUserInfo());
+        Assert.assertEquals("RejDlI78hu223Opo983Ds", userService.getToken());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(applicationContext01.getBeanDefinitionNames())), new HashSet<>(Arrays.asList(applicationContext02.getBeanDefinitionNames())));
+
+        // 3. 快照损坏时回退到正常加载，并重新写入快照
+        Files.write(snapshotFile.toPath(), new byte[]{1, 2, 3});
+        ClassPathXmlApplicationContext applicationContext03 = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+        applicationContext03.setSnapshotFile(snapshotFile.getAbsolutePath());
+        applicationContext03.refresh();
+        Assert.assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile.toPath()));
+
+        // 4. 扫描的包下新增了 Class 文件时快照失效，重新扫描并写入快照
+        File root = Files.createTempDirectory("small-spring-snapshot").toFile();
+        File classFile = new File(root, "cn/bugstack/springframework/test/bean/SnapshotProbe.class");
+        Assert.assertTrue(classFile.getParentFile().mkdirs());
+        try (InputStream in = StaticInitBean.class.getResourceAsStream("StaticInitBean.class")) {
+            Files.copy(in, classFile.toPath());
+        }
+        Assert.assertTrue(snapshotFile.setLastModified(0L));
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{root.toURI().toURL()}, original)) {
+            thread.setContextClassLoader(classLoader);
+            ClassPathXmlApplicationContext applicationContext04 = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+            applicationContext04.setSnapshotFile(snapshotFile.getAbsolutePath());
+            applicationContext04.refresh();
+            Assert.assertTrue(0L != snapshotFile.lastModified());
+            Assert.assertNotNull(applicationContext04.getBean("userService", UserService.class));
+        } finally {
+            thread.setContextClassLoader(original);
+            Files.delete(classFile.toPath());
+        }
+
+        // 5. Class 文件删除后快照同样失效
+        Assert.assertTrue(snapshotFile.setLastModified(0L));
+        ClassPathXmlApplicationContext applicationContext05 = new ClassPathXmlApplicationContext(new String[]{"classpath:spring-scan.xml"}, false);
+        applicationContext05.setSnapshotFile(snapshotFile.getAbsolutePath());
+        applicationContext05.refresh();
+        Assert.assertTrue(0L != snapshotFile.lastModified());
+    }
+
+    @Test
+    public void test_componentIndex() throws Exception {
+        File root = Files.createTempDirectory("small-spring-index").toFile();
+        File indexFile = new File(root, CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION);
+        Assert.assertTrue(indexFile.getParentFile().mkdirs());
+        Files.write(indexFile.toPath(), ("cn.bugstack.springframework.test.bean.UserDao=customUserDao,\n"
+                + "cn.bugstack.springframework.test.bean.OrderService=,\n").getBytes(StandardCharsets.UTF_8));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{root.toURI().toURL()}, original)) {
+            thread.setContextClassLoader(classLoader);
+            DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+            new ClassPathBeanDefinitionScanner(beanFactory).doScan("cn.bugstack.springframework.test.bean");
+
+            // 只注册了索引中的组件，没有扫描包下的其他 Class
+            Assert.assertTrue(beanFactory.containsBeanDefinition("customUserDao"));
+            Assert.assertFalse(beanFactory.containsBeanDefinition("userService"));
+            Assert.assertEquals("singleton", beanFactory.getBeanDefinition("customUserDao").getScope());
+            // 索引中没有名称、通过 @Service 元注解标注的组件使用类名
+            Assert.assertTrue(beanFactory.containsBeanDefinition("orderService"));
+        } finally {
+            thread.setContextClassLoader(original);
+            CandidateComponentsIndex.clearCache();
+        }
+    }
+
+    @Test
+    public void test_componentIndexer() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertNotNull("Tests must run on a JDK", compiler);
+        File root = Files.createTempDirectory("small-spring-indexer").toFile();
+        File sourceDir = new File(root, "src/demo");
+        File outputDir = new File(root, "classes");
+        Assert.assertTrue(sourceDir.mkdirs() && outputDir.mkdirs());
+        try {
+            File alpha = writeSource(sourceDir, "Alpha", "@cn.bugstack.springframework.stereotype.Component public class Alpha {}");
+            File beta = writeSource(sourceDir, "Beta", "@cn.bugstack.springframework.stereotype.Component(\"b\") @cn.bugstack.springframework.context.annotation.Scope(\"prototype\") public class Beta {}");
+            File gamma = writeSource(sourceDir, "Gamma", "@cn.bugstack.springframework.stereotype.Component public class Gamma {}");
+            File stereotype = writeSource(sourceDir, "Repository", "@java.lang.annotation.Documented @cn.bugstack.springframework.stereotype.Component public @interface Repository {}");
+            File dao = writeSource(sourceDir, "Dao", "@java.lang.annotation.Documented @Repository public @interface Dao {}");
+            File epsilon = writeSource(sourceDir, "Epsilon", "@Dao public class Epsilon { @Repository public static class Inner {} }");
+
+            // 1. 全量编译生成索引，通过多层元注解标注的类和嵌套类也被记录
+            Assert.assertTrue(compileWithIndexer(compiler, outputDir, alpha, beta, gamma, stereotype, dao, epsilon));
+            File indexFile = new File(outputDir, CandidateComponentsIndex.COMPONENTS_RESOURCE_LOCATION);
+            Assert.assertEquals(Arrays.asList("demo.Alpha=alpha,", "demo.Beta=b,prototype", "demo.Epsilon=epsilon,", "demo.Epsilon$Inner=inner,", "demo.Gamma=gamma,"),
+                    Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8));
+
+            // 2. 增量编译：Gamma 被删除、Alpha 去掉了 @Component，未参与编译的 Beta 保留
+            Files.delete(gamma.toPath());
+            Files.delete(new File(outputDir, "demo/Gamma.class").toPath());
+            writeSource(sourceDir, "Alpha", "public class Alpha {}");
+            File delta = writeSource(sourceDir, "Delta", "@cn.bugstack.springframework.stereotype.Component public class Delta {}");
+            Assert.assertTrue(compileWithIndexer(compiler, outputDir, alpha, delta));
+            Assert.assertEquals(Arrays.asList("demo.Beta=b,prototype", "demo.Delta=delta,", "demo.Epsilon=epsilon,", "demo.Epsilon$Inner=inner,"),
+                    Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8));
+        } finally {
+            deleteRecursively(root);
+        }
+    }
+
+    private static File writeSource(File dir, String className, String body) throws Exception {
+        File file = new File(dir, className + ".java");
+        Files.write(file.toPath(), ("package demo;\n" + body + "\n").getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static boolean compileWithIndexer(JavaCompiler compiler, File outputDir, File... sources) throws Exception {
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-d", outputDir.getAbsolutePath(),
+                    "-classpath", outputDir.getAbsolutePath() + File.pathSeparator + System.getProperty("java.class.path"),
+                    "-processor", CandidateComponentsIndexer.class.getName());
+            return compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjects(sources)).call();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (null != children) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        Assert.assertTrue(!file.exists() || file.delete());
+    }
+
+    @Test
+    public void test_classFileScanning() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        new ClassPathBeanDefinitionScanner(beanFactory).doScan("cn.bugstack.springframework.test.bean");
+
+        // 直接标注和通过 @Service 元注解标注的组件都被扫描到，@Scope 从 class 文件中解析
+        Assert.assertTrue(beanFactory.containsBeanDefinition("userDao"));
+        Assert.assertTrue(beanFactory.containsBeanDefinition("orderService"));
+        Assert.assertEquals("prototype", beanFactory.getBeanDefinition("userService").getScope());
+        Assert.assertFalse(beanFactory.containsBeanDefinition("service"));
+
+        // 非组件类没有被加载，静态初始化没有执行
+        Assert.assertNull(System.getProperty("small-spring.test.StaticInitBean.loaded"));
+    }
+
+    @Test
+    public void test_xmlStreaming() {
+        DefaultListableBeanFactory domFactory = new DefaultListableBeanFactory();
+        new XmlBeanDefinitionReader(domFactory).loadBeanDefinitions("classpath:spring.xml", "classpath:spring-scan.xml");
+        DefaultListableBeanFactory streamingFactory = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader streamingReader = new XmlBeanDefinitionReader(streamingFactory);
+        streamingReader.setStreaming(true);
+        streamingReader.loadBeanDefinitions("classpath:spring.xml", "classpath:spring-scan.xml");
+
+        // 流式解析得到的 BeanDefinition 与 DOM 解析一致
+        Assert.assertEquals(new HashSet<>(Arrays.asList(domFactory.getBeanDefinitionNames())), new HashSet<>(Arrays.asList(streamingFactory.getBeanDefinitionNames())));
+        Assert.assertEquals("prototype", streamingFactory.getBeanDefinition("userService").getScope());
+        Assert.assertEquals("你猜", streamingFactory.getBeanDefinition("husband").getPropertyValues().getPropertyValue("wifiName").getValue());
+        Assert.assertTrue(streamingFactory.getBeanDefinition("conversionService").getPropertyValues().getPropertyValue("converters").getValue() instanceof BeanReference);
+
+        // component-scan 出现在同名 bean 之后，仍然按重名报错
+        String xml = "<beans xmlns:context=\"http://www.springframework.org/schema/context\">" +
+                "<bean id=\"userDao\" class=\"cn.bugstack.springframework.test.bean.UserDao\"/>" +
+                "<context:component-scan base-package=\"cn.bugstack.springframework.test.bean\"/>" +
+                "</beans>";
+        XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(new DefaultListableBeanFactory());
+        reader.setStreaming(true);
+        try {
+            reader.loadBeanDefinitions(new ByteArrayResource(xml.getBytes(StandardCharsets.UTF_8)));
+            Assert.fail("duplicate bean name expected");
+        } catch (BeansException e) {
+            Assert.assertEquals("Duplicate beanName[userDao] is not allowed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_parallelLocations() {
+        String[] locations = {"classpath:spring.xml", "classpath:spring-scan.xml"};
+        DefaultListableBeanFactory serialFactory = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader serialReader = new XmlBeanDefinitionReader(serialFactory);
+        serialReader.setParallelism(1);
+        serialReader.loadBeanDefinitions(locations);
+
+        TimelineStartupRecorder startupRecorder = new TimelineStartupRecorder();
+        DefaultListableBeanFactory parallelFactory = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader parallelReader = new XmlBeanDefinitionReader(parallelFactory);
+        parallelReader.setParallelism(2);
+        parallelReader.setStartupRecorder(startupRecorder);
+        parallelReader.loadBeanDefinitions(locations);
+
+        // 回放后的注册结果与逐个解析一致
+        Assert.assertEquals(new HashSet<>(Arrays.asList(serialFactory.getBeanDefinitionNames())), new HashSet<>(Arrays.asList(parallelFactory.getBeanDefinitionNames())));
+        Assert.assertEquals("prototype", parallelFactory.getBeanDefinition("userService").getScope());
+        int parseSteps = 0;
+        for (TimelineStartupRecorder.TimelineStep step : startupRecorder.getRecordedSteps()) {
+            if ("spring.beans.xml.parse".equals(step.getName())) parseSteps++;
+        }
+        Assert.assertEquals(2, parseSteps);
+
+        // 重复加载同一个文件，第一个文件注册完成后按重名报错
+        DefaultListableBeanFactory duplicateFactory = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader duplicateReader = new XmlBeanDefinitionReader(duplicateFactory);
+        duplicateReader.setParallelism(2);
+        try {
+            duplicateReader.loadBeanDefinitions("classpath:spring.xml", "classpath:spring.xml");
+            Assert.fail("duplicate bean name expected");
+        } catch (BeansException e) {
+            Assert.assertEquals("Duplicate beanName[husband] is not allowed", e.getMessage());
+        }
+        Assert.assertEquals(3, duplicateFactory.getBeanDefinitionNames().length);
+    }
+
+    @Test
+    public void test_resourceChannels() throws Exception {
+        File file = File.createTempFile("small-spring-resource", ".properties");
+        file.deleteOnExit();
+        byte[] content = "token=RejDlI78hu223Opo983Ds\n".getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), content);
+
+        // 文件资源：FileChannel；小文件直接读入，不建立内存映射
+        Resource resource = new FileSystemResource(file);
+        Assert.assertTrue(resource.exists());
+        Assert.assertTrue(resource.isFile());
+        Assert.assertEquals(content.length, resource.contentLength());
+        Assert.assertEquals(file.lastModified(), resource.lastModified());
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            Assert.assertTrue(channel instanceof FileChannel);
+        }
+        ByteBuffer buffer = resource.asByteBuffer();
+        Assert.assertFalse(buffer.isDirect());
+        Assert.assertTrue(buffer.isReadOnly());
+        byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        Assert.assertArrayEquals(content, read);
+
+        // 达到阈值的大文件使用内存映射
+        File largeFile = File.createTempFile("small-spring-resource", ".xml");
+        largeFile.deleteOnExit();
+        byte[] largeContent = new byte[1024 * 1024];
+        Arrays.fill(largeContent, (byte) 'x');
+        Files.write(largeFile.toPath(), largeContent);
+        ByteBuffer mapped = new FileSystemResource(largeFile).asByteBuffer();
+        Assert.assertTrue(mapped.isDirect());
+        Assert.assertEquals(largeContent.length, mapped.remaining());
+
+        // classpath 下的目录资源同样可以解析为文件
+        Resource classPathResource = new ClassPathResource("token.properties");
+        Assert.assertTrue(classPathResource.isFile());
+        Assert.assertEquals(classPathResource.getFile().length(), classPathResource.contentLength());
+        Assert.assertFalse(new ClassPathResource("not-exists.xml").exists());
+
+        // 内存资源没有文件，ByteBuffer 直接包装数组
+        Resource byteArrayResource = new ByteArrayResource(content);
+        Assert.assertFalse(byteArrayResource.isFile());
+        Assert.assertEquals(content.length, byteArrayResource.asByteBuffer().remaining());
+
+        // 只实现 getInputStream 的资源（包括 lambda）使用默认实现
+        Resource streamResource = () -> new ByteArrayInputStream(content);
+        Assert.assertTrue(streamResource.exists());
+        Assert.assertFalse(streamResource.isFile());
+        Assert.assertEquals(content.length, streamResource.contentLength());
+        Assert.assertEquals(0, streamResource.lastModified());
+        Assert.assertNull(streamResource.asByteBuffer());
+    }
+
+    @Test
+    public void test_resourcePattern() throws Exception {
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        Assert.assertTrue(pathMatcher.match("META-INF/beans/**/*.xml", "META-INF/beans/a/b/order.xml"));
+        Assert.assertTrue(pathMatcher.match("META-INF/beans/**/*.xml", "META-INF/beans/order.xml"));
+        Assert.assertFalse(pathMatcher.match("META-INF/beans/*.xml", "META-INF/beans/a/order.xml"));
+        Assert.assertTrue(pathMatcher.match("spring-sc?n.xml", "spring-scan.xml"));
+        Assert.assertTrue(pathMatcher.matchStart("META-INF/beans/**/*.xml", "META-INF/beans/a"));
+        Assert.assertFalse(pathMatcher.matchStart("META-INF/beans/**/*.xml", "META-INF/other"));
+
+        // 一个目录和一个 jar 包中都有 META-INF/beans 下的配置
+        File dir = Files.createTempDirectory("small-spring-pattern").toFile();
+        File moduleDir = new File(dir, "META-INF/beans/order");
+        Assert.assertTrue(moduleDir.mkdirs());
+        Files.write(new File(moduleDir, "order.xml").toPath(), "<beans/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(moduleDir, "order.txt").toPath(), "text".getBytes(StandardCharsets.UTF_8));
+        File jar = new File(dir.getParentFile(), dir.getName() + ".jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (String directory : Arrays.asList("META-INF/", "META-INF/beans/", "META-INF/beans/user/")) {
+                out.putNextEntry(new JarEntry(directory));
+                out.closeEntry();
+            }
+            out.putNextEntry(new JarEntry("META-INF/beans/user/user.xml"));
+            out.write("<beans/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        // 没有目录条目的 jar 包，只有在其他位置都找不到根目录时才会被遍历
+        File flatJar = new File(dir.getParentFile(), dir.getName() + "-flat.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(flatJar.toPath()))) {
+            out.putNextEntry(new JarEntry("META-INF/beans/flat/flat.xml"));
+            out.write("<beans/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("META-INF/modules/flat.xml"));
+            out.write("<beans/>".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL(), jar.toURI().toURL(), flatJar.toURI().toURL()}, null)) {
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(new DefaultResourceLoader(), classLoader);
+            Resource[] resources = resolver.getResources("classpath*:META-INF/beans/**/*.xml");
+            Assert.assertEquals(2, resources.length);
+            Set<String> names = new HashSet<>();
+            for (Resource resource : resources) {
+                Assert.assertTrue(resource.exists());
+                names.add(resource.toString().replaceAll(".*[/\\\\]", ""));
+            }
+            Assert.assertEquals(new HashSet<>(Arrays.asList("order.xml]", "user.xml]")), names);
+            Assert.assertEquals(1, resolver.getResources("classpath*:META-INF/beans/user/*.xml").length);
+            Assert.assertEquals(0, resolver.getResources("classpath*:META-INF/beans/*.xml").length);
+            Assert.assertEquals(1, resolver.getResources("classpath*:META-INF/modules/*.xml").length);
+        } finally {
+            Files.deleteIfExists(jar.toPath());
+            Files.deleteIfExists(flatJar.toPath());
+        }
+
+        // 上下文的配置位置同样支持通配符
+        ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext("classpath*:spring-sc*.xml");
+        UserService userService = applicationContext.getBean("userService", UserService.class);
+        Assert.assertNotNull(userService.queryUserInfo());
+    }
+
+    @Test
+    public void test_incrementalRefresh() throws Exception {
+        File dir = Files.createTempDirectory("small-spring-refresh").toFile();
+        File properties = new File(dir, "refresh.properties");
+        File xml = new File(dir, "spring-refresh.xml");
+        ClassPathXmlApplicationContext applicationContext = null;
+        try {
+            Files.write(properties.toPath(), "wifeName=lily".getBytes(StandardCharsets.UTF_8));
+            writeRefreshXml(xml, properties, "husband-1");
+
+            applicationContext = new ClassPathXmlApplicationContext(new String[]{xml.toURI().toString()}, false);
+            applicationContext.setIncrementalRefresh(true);
+            applicationContext.refresh();
+            Husband husband = applicationContext.getBean("husband", Husband.class);
+            Wife wife = applicationContext.getBean("wife", Wife.class);
+            UserDao userDao = applicationContext.getBean("userDao", UserDao.class);
+
+            // 1. 修改 XML：husband 以及依赖它的 wife 被重建，无关的 userDao 保持原对象
+            writeRefreshXml(xml, properties, "husband-2");
+            applicationContext.refresh();
+            Husband refreshedHusband = applicationContext.getBean("husband", Husband.class);
+            Wife refreshedWife = applicationContext.getBean("wife", Wife.class);
+            Assert.assertNotSame(husband, refreshedHusband);
+            Assert.assertEquals("husband-2", refreshedHusband.getWifiName());
+            Assert.assertNotSame(wife, refreshedWife);
+            Assert.assertSame(refreshedHusband, refreshedWife.getHusband());
+            Assert.assertSame(userDao, applicationContext.getBean("userDao"));
+
+            // 2. 修改属性文件：只有使用占位符的 wife 被重建
+            Files.write(properties.toPath(), "wifeName=lucy".getBytes(StandardCharsets.UTF_8));
+            applicationContext.refresh();
+            Assert.assertEquals("lucy", applicationContext.getBean("wife", Wife.class).getWifeName());
+            Assert.assertSame(refreshedHusband, applicationContext.getBean("husband"));
+            Assert.assertSame(userDao, applicationContext.getBean("userDao"));
+
+            // 3. 监听器同时监听 XML 和属性文件，文件变化后的刷新与直接调用 refresh 相同
+            try (ConfigurationFileWatcher watcher = new ConfigurationFileWatcher(applicationContext)) {
+                watcher.start();
+                Assert.assertTrue(watcher.getWatchedFiles().contains(properties.toPath().toAbsolutePath().normalize()));
+                Assert.assertTrue(watcher.getWatchedFiles().contains(xml.toPath().toAbsolutePath().normalize()));
+            }
+        } finally {
+            if (null != applicationContext) applicationContext.close();
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void test_incrementalRefreshWildcardLocation() throws Exception {
+        File dir = Files.createTempDirectory("small-spring-wildcard").toFile();
+        try {
+            Files.write(new File(dir, "spring-a.xml").toPath(), ("<beans><bean id=\"userDao\" class=\"cn.bugstack.springframework.test.bean.UserDao\"/></beans>")
+                    .getBytes(StandardCharsets.UTF_8));
+            ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext(new String[]{dir.toURI() + "spring-*.xml"}, false);
+            applicationContext.setIncrementalRefresh(true);
+            applicationContext.refresh();
+            // 监听器解析配置资源时建立了路径树
+            Assert.assertEquals(1, applicationContext.getConfigurationResources().size());
+
+            // 新增的文件匹配通配符，增量刷新时能被加载
+            Files.write(new File(dir, "spring-b.xml").toPath(), ("<beans><bean id=\"husband\" class=\"cn.bugstack.springframework.test.bean.Husband\"/></beans>")
+                    .getBytes(StandardCharsets.UTF_8));
+            Object userDao = applicationContext.getBean("userDao");
+            applicationContext.refresh();
+            Assert.assertTrue(applicationContext.containsBean("husband"));
+            Assert.assertSame(userDao, applicationContext.getBean("userDao"));
+            Assert.assertEquals(2, applicationContext.getConfigurationResources().size());
+            applicationContext.close();
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void test_incrementalRefreshLazyDependency() throws Exception {
+        File dir = Files.createTempDirectory("small-spring-lazy-refresh").toFile();
+        File xml = new File(dir, "spring-lazy.xml");
+        try {
+            writeLazyRefreshXml(xml, "husband-1");
+            ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext(new String[]{xml.toURI().toString()}, false);
+            applicationContext.setIncrementalRefresh(true);
+            applicationContext.refresh();
+            HusbandHolder holder = applicationContext.getBean("holder", HusbandHolder.class);
+            // @Lazy 代理解析后缓存了 husband
+            Assert.assertEquals("husband-1", holder.getHusband().getWifiName());
+
+            // husband 变化后，通过 @Lazy 注入它的 holder 也要重建，不能继续使用旧的目标对象
+            writeLazyRefreshXml(xml, "husband-2");
+            applicationContext.refresh();
+            HusbandHolder refreshedHolder = applicationContext.getBean("holder", HusbandHolder.class);
+            Assert.assertNotSame(holder, refreshedHolder);
+            Assert.assertEquals("husband-2", refreshedHolder.getHusband().getWifiName());
+            applicationContext.close();
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void test_scopedObjectsEvictedOnRefresh() throws Exception {
+        File dir = Files.createTempDirectory("small-spring-scope-refresh").toFile();
+        File xml = new File(dir, "spring-scope.xml");
+        try {
+            writeScopeRefreshXml(xml, "husband-1");
+            ClassPathXmlApplicationContext applicationContext = new ClassPathXmlApplicationContext(new String[]{xml.toURI().toString()}, false);
+            applicationContext.setIncrementalRefresh(true);
+            applicationContext.refresh();
+            RequestScope requestScope = applicationContext.getRequestScope();
+
+            try (RequestScope.RequestContext ignored = requestScope.begin()) {
+                RequestCache requestCache = applicationContext.getBean("requestCache", RequestCache.class);
+                RequestCache threadCache = applicationContext.getBean("threadCache", RequestCache.class);
+
+                // 增量刷新只清理受影响的 Bean，requestCache、threadCache 没有变化
+                int destroyed = RequestCache.DESTROYED.get();
+                writeScopeRefreshXml(xml, "husband-2");
+                applicationContext.refresh();
+                Assert.assertEquals(0, RequestCache.DESTROYED.get() - destroyed);
+                Assert.assertSame(requestCache, applicationContext.getBean("requestCache"));
+                Assert.assertSame(threadCache, applicationContext.getBean("threadCache"));
+
+                // 全量刷新后旧工厂创建的对象被清理并执行销毁回调，进行中的请求和线程拿到新工厂创建的对象
+                applicationContext.setIncrementalRefresh(false);
+                applicationContext.refresh();
+                Assert.assertEquals(2, RequestCache.DESTROYED.get() - destroyed);
+                Assert.assertNotSame(requestCache, applicationContext.getBean("requestCache"));
+                Assert.assertNotSame(threadCache, applicationContext.getBean("threadCache"));
+
+                // close 时清理全部 thread、request 作用域的对象
+                destroyed = RequestCache.DESTROYED.get();
+                applicationContext.close();
+                Assert.assertEquals(2, RequestCache.DESTROYED.get() - destroyed);
+            }
+            applicationContext.getThreadScope().end();
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    private void writeScopeRefreshXml(File xml, String husbandName) throws Exception {
+        String content = "<beans>" +
+                "<bean id=\"husband\" class=\"cn.bugstack.springframework.test.bean.Husband\">" +
+                "<property name=\"wifiName\" value=\"" + husbandName + "\"/></bean>" +
+                "<bean id=\"requestCache\" class=\"cn.bugstack.springframework.test.bean.RequestCache\" scope=\"request\"/>" +
+                "<bean id=\"threadCache\" class=\"cn.bugstack.springframework.test.bean.RequestCache\" scope=\"thread\"/>" +
+                "</beans>";
+        Files.write(xml.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeLazyRefreshXml(File xml, String husbandName) throws Exception {
+        String content = "<beans>" +
+                "<bean class=\"cn.bugstack.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor\"/>" +
+                "<bean id=\"husband\" class=\"cn.bugstack.springframework.test.bean.Husband\">" +
+                "<property name=\"wifiName\" value=\"" + husbandName + "\"/></bean>" +
+                "<bean id=\"holder\" class=\"cn.bugstack.springframework.test.bean.HusbandHolder\"/>" +
+                "</beans>";
+        Files.write(xml.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeRefreshXml(File xml, File properties, String husbandName) throws Exception {
+        String content = "<beans>" +
+                "<bean class=\"cn.bugstack.springframework.beans.factory.PropertyPlaceholderConfigurer\">" +
+                "<property name=\"location\" value=\"" + properties.toURI() + "\"/></bean>" +
+                "<bean id=\"husband\" class=\"cn.bugstack.springframework.test.bean.Husband\">" +
+                "<property name=\"wifiName\" value=\"" + husbandName + "\"/></bean>" +
+                "<bean id=\"wife\" class=\"cn.bugstack.springframework.test.bean.Wife\">" +
+                "<property name=\"wifeName\" value=\"${wifeName}\"/>" +
+                "<property name=\"husband\" ref=\"husband\"/></bean>" +
+                "<bean id=\"userDao\" class=\"cn.bugstack.springframework.test.bean.UserDao\"/>" +
+                "</beans>";
+        Files.write(xml.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void test_parallelDestruction() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.setDestructionParallelism(4);
+        Queue<String> destroyed = new ConcurrentLinkedQueue<>();
+        DisposableBean slowPool = () -> {
+            Thread.sleep(300);
+            destroyed.add("pool");
+        };
+        beanFactory.registerDisposableBean("dataSource", () -> destroyed.add("dataSource"));
+        beanFactory.registerDisposableBean("repository", () -> destroyed.add("repository"));
+        beanFactory.registerDisposableBean("service", () -> destroyed.add("service"));
+        beanFactory.registerDisposableBean("poolA", slowPool);
+        beanFactory.registerDisposableBean("poolB", slowPool);
+        beanFactory.registerDisposableBean("brokenA", () -> {
+            throw new IllegalStateException("brokenA");
+        });
+        beanFactory.registerDisposableBean("brokenB", () -> {
+            throw new IllegalStateException("brokenB");
+        });
+        // service -> repository -> (未注册销毁方法的 dao) -> dataSource
+        beanFactory.registerDependentBean("repository", "service");
+        beanFactory.registerDependentBean("dao", "repository");
+        beanFactory.registerDependentBean("dataSource", "dao");
+
+        long start = System.currentTimeMillis();
+        try {
+            beanFactory.destroySingletons();
+            Assert.fail("destroy failures should be reported");
+        } catch (BeansException e) {
+            // 两个失败都会被汇总，其他 Bean 仍然全部销毁
+            Assert.assertEquals(1, e.getSuppressed().length);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue("independent pools should be destroyed in parallel: " + elapsed + "ms", elapsed < 550);
+        List<String> order = new ArrayList<>(destroyed);
+        Assert.assertEquals(5, order.size());
+        Assert.assertTrue(order.indexOf("service") < order.indexOf("repository"));
+        Assert.assertTrue(order.indexOf("repository") < order.indexOf("dataSource"));
+
+        // 超过总时限后不再等待
+        DefaultListableBeanFactory slowFactory = new DefaultListableBeanFactory();
+        slowFactory.setDestructionParallelism(2);
+        slowFactory.setDestructionTimeoutMillis(100);
+        slowFactory.registerDisposableBean("fast", () -> destroyed.add("fast"));
+        slowFactory.registerDisposableBean("hanging", () -> Thread.sleep(5000));
+        start = System.currentTimeMillis();
+        try {
+            slowFactory.destroySingletons();
+            Assert.fail("deadline should be reported");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("hanging"));
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertTrue(destroyed.contains("fast"));
+
+        // 串行销毁同样遵守总时限，被中断的 Bean 不会记为已销毁
+        DefaultListableBeanFactory serialFactory = new DefaultListableBeanFactory();
+        serialFactory.setDestructionParallelism(1);
+        serialFactory.setDestructionTimeoutMillis(100);
+        serialFactory.registerDisposableBean("hanging", () -> Thread.sleep(5000));
+        start = System.currentTimeMillis();
+        try {
+            serialFactory.destroySingletons();
+            Assert.fail("deadline should be reported");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("not destroyed: [hanging]"));
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    public void test_propertyValuesOverlay() throws Exception {
+        // 同名属性覆盖原值并保持位置
+        PropertyValues base = new PropertyValues();
+        base.addPropertyValue(new PropertyValue("a", "1"));
+        base.addPropertyValue(new PropertyValue("b", "2"));
+        base.addPropertyValue(new PropertyValue("a", "3"));
+        Assert.assertEquals(2, base.getPropertyValues().length);
+        Assert.assertEquals("a", base.getPropertyValues()[0].getName());
+        Assert.assertEquals("3", base.getPropertyValue("a").getValue());
+
+        // 覆盖层的写入不影响父集合
+        PropertyValues overlay = new PropertyValues(base);
+        Assert.assertEquals(base.size(), overlay.size());
+        overlay.addPropertyValue(new PropertyValue("b", "4"));
+        overlay.addPropertyValue(new PropertyValue("c", "5"));
+        Assert.assertEquals(3, overlay.getPropertyValues().length);
+        Assert.assertEquals("b", overlay.getPropertyValues()[1].getName());
+        Assert.assertEquals("4", overlay.getPropertyValue("b").getValue());
+        Assert.assertEquals("2", base.getPropertyValue("b").getValue());
+        Assert.assertFalse(base.contains("c"));
+
+        // BeanPostProcessor 返回的属性值只作用于当前实例
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues definitionValues = new PropertyValues();
+        definitionValues.addPropertyValue(new PropertyValue("wifiName", "definition"));
+        BeanDefinition beanDefinition = new BeanDefinition(Husband.class, definitionValues);
+        beanDefinition.setScope("prototype");
+        beanFactory.registerBeanDefinition("husband", beanDefinition);
+        AtomicInteger counter = new AtomicInteger();
+        beanFactory.addBeanPostProcessor(new InstantiationAwareBeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+                return null;
+            }
+
+            @Override
+            public boolean postProcessAfterInstantiation(Object bean, String beanName) {
+                return true;
+            }
+
+            @Override
+            public PropertyValues postProcessPropertyValues(PropertyValues pvs, Object bean, String beanName) {
+                PropertyValues result = new PropertyValues();
+                result.addPropertyValue(new PropertyValue("wifiName", "instance-" + counter.incrementAndGet()));
+                return result;
+            }
+
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean;
+            }
+        });
+
+        Assert.assertEquals("instance-1", beanFactory.getBean("husband", Husband.class).getWifiName());
+        Assert.assertEquals("instance-2", beanFactory.getBean("husband", Husband.class).getWifiName());
+        Assert.assertEquals(1, beanDefinition.getPropertyValues().getPropertyValues().length);
+        Assert.assertEquals("definition", beanDefinition.getPropertyValues().getPropertyValue("wifiName").getValue());
+    }
+
+    @Test
+    public void test_factoryBeanSingleFlight() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AtomicInteger created = new AtomicInteger();
+        beanFactory.registerSingleton("connectionPool", new FactoryBean<Object>() {
+            @Override
+            public Object getObject() throws Exception {
+                Thread.sleep(100);
+                return "pool-" + created.incrementAndGet();
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return String.class;
+            }
+
+            @Override
+            public boolean isSingleton() {
+                return true;
+            }
+        });
+
+        // 并发获取时 getObject 只执行一次
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executorService.submit(() -> beanFactory.getBean("connectionPool")));
+            }
+            for (Future<Object> future : futures) {
+                Assert.assertEquals("pool-1", future.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        Assert.assertEquals(1, created.get());
+
+        // getObject 中获取自己会被识别为循环引用，而不是死锁
+        beanFactory.registerSingleton("selfReferencing", new FactoryBean<Object>() {
+            @Override
+            public Object getObject() {
+                return beanFactory.getBean("selfReferencing");
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return Object.class;
+            }
+
+            @Override
+            public boolean isSingleton() {
+                return true;
+            }
+        });
+        try {
+            beanFactory.getBean("selfReferencing");
+            Assert.fail("circular FactoryBean reference should be detected");
+        } catch (BeansException e) {
+            Throwable cause = e;
+            while (null != cause.getCause() && !cause.getMessage().contains("circular")) cause = cause.getCause();
+            Assert.assertTrue(cause.getMessage().contains("circular"));
+        }
+    }
+
+    @Test
+    public void test_refreshableFactoryBean() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AtomicInteger created = new AtomicInteger();
+        Queue<Object> destroyed = new ConcurrentLinkedQueue<>();
+        AtomicBoolean failing = new AtomicBoolean();
+        beanFactory.registerSingleton("credentials", new RefreshableFactoryBean<Object>() {
+            @Override
+            public long getTimeToLiveMillis() {
+                return 100;
+            }
+
+            @Override
+            public long getDestroyDelayMillis() {
+                return 300;
+            }
+
+            @Override
+            public void destroyObject(Object object) {
+                destroyed.add(object);
+            }
+
+            @Override
+            public Object getObject() {
+                if (failing.get()) throw new IllegalStateException("token service unavailable");
+                return "token-" + created.incrementAndGet();
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return String.class;
+            }
+        });
+
+        Assert.assertEquals("token-1", beanFactory.getBean("credentials"));
+        Thread.sleep(150);
+        // 过期后的访问不阻塞，先返回旧对象，后台完成刷新后替换
+        Object current = beanFactory.getBean("credentials");
+        long deadline = System.currentTimeMillis() + 5000;
+        while ("token-1".equals(current) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            current = beanFactory.getBean("credentials");
+        }
+        Assert.assertEquals("token-2", current);
+        // 旧对象可能仍在被使用，延迟一段时间后才销毁
+        Assert.assertTrue(destroyed.isEmpty());
+        deadline = System.currentTimeMillis() + 5000;
+        while (destroyed.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("token-1", destroyed.peek());
+
+        // 刷新失败时保留旧对象，失败交给刷新线程的 UncaughtExceptionHandler
+        Queue<Throwable> reported = new ConcurrentLinkedQueue<>();
+        Thread.UncaughtExceptionHandler originalHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            failing.set(true);
+            Thread.sleep(150);
+            deadline = System.currentTimeMillis() + 5000;
+            while (reported.isEmpty() && System.currentTimeMillis() < deadline) {
+                Assert.assertEquals("token-2", beanFactory.getBean("credentials"));
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(reported.peek().getCause().getMessage().contains("token service unavailable"));
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(originalHandler);
+        }
+
+        // 恢复后 token-2 被替换，关闭时不再等待延迟，立即销毁
+        failing.set(false);
+        deadline = System.currentTimeMillis() + 5000;
+        while (!"token-3".equals(beanFactory.getBean("credentials")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("token-3", beanFactory.getBean("credentials"));
+        Assert.assertFalse(destroyed.contains("token-2"));
+        beanFactory.destroySingletons();
+        Assert.assertTrue(destroyed.contains("token-2"));
+        // 当前对象同样在关闭时销毁
+        Assert.assertTrue(destroyed.contains("token-3"));
+    }
+
+    @Test
+    public void test_refreshableFactoryBeanDestroyedWhileRefreshing() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AtomicInteger created = new AtomicInteger();
+        Queue<Object> destroyed = new ConcurrentLinkedQueue<>();
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch refreshResume = new CountDownLatch(1);
+        beanFactory.registerSingleton("connection", new RefreshableFactoryBean<Object>() {
+            @Override
+            public long getTimeToLiveMillis() {
+                return 50;
+            }
+
+            @Override
+            public void destroyObject(Object object) {
+                destroyed.add(object);
+            }
+
+            @Override
+            public Object getObject() throws Exception {
+                int number = created.incrementAndGet();
+                if (number > 1) {
+                    refreshStarted.countDown();
+                    refreshResume.await();
+                }
+                return "connection-" + number;
+            }
+
+            @Override
+            public Class<?> getObjectType() {
+                return String.class;
+            }
+        });
+
+        Assert.assertEquals("connection-1", beanFactory.getBean("connection"));
+        Thread.sleep(100);
+        Assert.assertEquals("connection-1", beanFactory.getBean("connection"));
+        Assert.assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+
+        // 增量刷新移除缓存项时销毁当前对象
+        beanFactory.destroySingleton("connection");
+        Assert.assertEquals(Collections.singletonList("connection-1"), new ArrayList<>(destroyed));
+
+        // 仍在执行的后台刷新不再发布结果，而是销毁它
+        refreshResume.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!destroyed.contains("connection-2") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(destroyed.contains("connection-2"));
+        Assert.assertEquals(2, destroyed.size());
+        beanFactory.destroySingletons();
+        Assert.assertEquals(2, destroyed.size());
+    }
+
+    @Test
+    public void test_compactBeanDefinition() throws Exception {
+        // 没有属性时共享空集合，标志位和 scope 字符串按压缩形式保存
+        BeanDefinition beanDefinition = new BeanDefinition(Husband.class);
+        Assert.assertFalse(beanDefinition.hasPropertyValues());
+        beanDefinition.setScope(new String("prototype"));
+        Assert.assertSame("prototype", beanDefinition.getScope());
+        Assert.assertTrue(beanDefinition.isPrototype());
+        Assert.assertFalse(beanDefinition.isSingleton());
+        beanDefinition.setLazyInit(true);
+        Assert.assertTrue(beanDefinition.isLazyInit());
+        Assert.assertTrue(beanDefinition.isPrototype());
+        beanDefinition.getPropertyValues().addPropertyValue(new PropertyValue("wifiName", "x"));
+        Assert.assertTrue(beanDefinition.hasPropertyValues());
+        Assert.assertTrue(PropertyValues.EMPTY.isEmpty());
+
+        // 属性较多时走散列索引，覆盖同名属性保持位置
+        PropertyValues propertyValues = new PropertyValues();
+        for (int i = 0; i < 100; i++) {
+            propertyValues.addPropertyValue("p" + i, i);
+        }
+        propertyValues.addPropertyValue("p50", "override");
+        propertyValues.trimToSize();
+        Assert.assertEquals(100, propertyValues.size());
+        Assert.assertEquals("p50", propertyValues.getName(50));
+        Assert.assertEquals("override", propertyValues.getPropertyValue("p50").getValue());
+        Assert.assertEquals(99, propertyValues.getPropertyValue("p99").getValue());
+        Assert.assertNull(propertyValues.getPropertyValue("p100"));
+
+        // 已创建单例的 BeanDefinition 在提前实例化后被裁剪
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues husbandValues = new PropertyValues();
+        husbandValues.addPropertyValue(new PropertyValue("wifiName", "trimmed"));
+        BeanDefinition husbandDefinition = new BeanDefinition(Husband.class, husbandValues);
+        beanFactory.registerBeanDefinition("husband", husbandDefinition);
+        beanFactory.setTrimCreatedSingletonDefinitions(true);
+        beanFactory.preInstantiateSingletons();
+        Assert.assertTrue(husbandDefinition.isTrimmed());
+        Assert.assertFalse(husbandDefinition.hasPropertyValues());
+        Assert.assertEquals("trimmed", beanFactory.getBean("husband", Husband.class).getWifiName());
+        beanFactory.destroySingleton("husband");
+        try {
+            beanFactory.getBean("husband");
+            Assert.fail("trimmed definition should not create beans");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("trimmed"));
+        }
+    }
+
+    @Test
+    public void test_pooledScope() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        XmlBeanDefinitionReader reader = new XmlBeanDefinitionReader(beanFactory);
+        reader.loadBeanDefinitions(new ByteArrayResource(("<beans><bean id=\"formatter\" class=\"" + PooledFormatter.class.getName() + "\" scope=\"pooled\""
+                + " pool-max-size=\"2\" pool-min-idle=\"1\" pool-max-idle-time=\"50\" pool-max-wait=\"100\"/></beans>").getBytes(StandardCharsets.UTF_8)));
+        PoolConfig poolConfig = beanFactory.getBeanDefinition("formatter").getPoolConfig();
+        Assert.assertEquals(2, poolConfig.getMaxSize());
+        Assert.assertEquals(100, poolConfig.getMaxWaitMillis());
+
+        int instancesBefore = PooledFormatter.INSTANCES.get();
+        beanFactory.preInstantiateSingletons();
+        // 预先填充 minIdle 个空闲对象
+        Assert.assertEquals(1, beanFactory.getPoolMetrics("formatter").getIdle());
+
+        // 代理每次调用借出一个对象，归还时 reset 清空缓冲区
+        PooledFormatter formatter = beanFactory.getBean("formatter", PooledFormatter.class);
+        Assert.assertEquals("a:1", formatter.format("a", 1));
+        Assert.assertEquals("b:2", formatter.format("b", 2));
+        // 返回 this 的方法返回代理本身，池中的对象不会泄露给调用方
+        Assert.assertSame(formatter, formatter.append("z"));
+
+        // 租约期间多次调用使用同一个对象；对象池耗尽时等待超时
+        try (BeanLease<PooledFormatter> first = beanFactory.borrowBean("formatter", PooledFormatter.class);
+             BeanLease<PooledFormatter> second = beanFactory.borrowBean("formatter", PooledFormatter.class)) {
+            first.get().append("x").append("y");
+            Assert.assertEquals("xy", first.get().current());
+            Assert.assertNotSame(first.get(), second.get());
+            try {
+                formatter.current();
+                Assert.fail("pool should be exhausted");
+            } catch (BeansException e) {
+                Assert.assertTrue(e.getMessage().contains("Timeout"));
+            }
+        }
+
+        PoolMetrics metrics = beanFactory.getPoolMetrics("formatter");
+        Assert.assertEquals(2, metrics.getCreated());
+        Assert.assertEquals(2, PooledFormatter.INSTANCES.get() - instancesBefore - 1);
+        Assert.assertEquals(1, metrics.getMisses());
+        Assert.assertEquals(4, metrics.getHits());
+        Assert.assertEquals(1, metrics.getTimeouts());
+        Assert.assertEquals(0, metrics.getActive());
+        Assert.assertEquals(2, metrics.getIdle());
+        Assert.assertTrue(metrics.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        // 空闲超时的对象在下一次借用时回收，保留 minIdle 个
+        int destroyedBefore = PooledFormatter.DESTROYED.get();
+        Thread.sleep(120);
+        Assert.assertEquals("c:3", formatter.format("c", 3));
+        metrics = beanFactory.getPoolMetrics("formatter");
+        Assert.assertEquals(1, metrics.getIdle());
+        Assert.assertEquals(1, PooledFormatter.DESTROYED.get() - destroyedBefore);
+
+        try {
+            beanFactory.borrowBean("formatter", String.class);
+            Assert.fail("type mismatch should be rejected");
+        } catch (BeansException e) {
+            Assert.assertEquals(0, beanFactory.getPoolMetrics("formatter").getActive());
+        }
+
+        // 对象池耗尽时等待的借用方在对象归还后被唤醒
+        BeanLease<PooledFormatter> first = beanFactory.borrowBean("formatter", PooledFormatter.class);
+        try (BeanLease<PooledFormatter> second = beanFactory.borrowBean("formatter", PooledFormatter.class)) {
+            FutureTask<String> waiting = new FutureTask<>(() -> formatter.format("d", 4));
+            new Thread(waiting).start();
+            Thread.sleep(20);
+            first.close();
+            Assert.assertEquals("d:4", waiting.get(5, TimeUnit.SECONDS));
+            Assert.assertNotNull(second.get());
+        }
+        Assert.assertEquals(0, beanFactory.getPoolMetrics("formatter").getActive());
+
+        beanFactory.destroySingletons();
+        Assert.assertEquals(3, PooledFormatter.DESTROYED.get() - destroyedBefore);
+        Assert.assertNull(beanFactory.getPoolMetrics("formatter"));
+    }
+
+    @Test
+    public void test_beanPoolKeepsMinIdle() {
+        AtomicBoolean creationFailing = new AtomicBoolean(true);
+        AtomicBoolean resetFailing = new AtomicBoolean();
+        AtomicInteger destroyed = new AtomicInteger();
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setMaxSize(3);
+        poolConfig.setMinIdle(2);
+        BeanPool beanPool = new BeanPool("formatter", PooledBean.class, poolConfig, () -> {
+            if (creationFailing.get()) throw new BeansException("formatter dependencies are not ready");
+            return (PooledBean) () -> {
+                if (resetFailing.get()) throw new IllegalStateException("buffer corrupted");
+            };
+        }, object -> destroyed.incrementAndGet());
+
+        // 预先填充失败时异常抛给调用方，下一次初始化重试
+        try {
+            beanPool.initialize();
+            Assert.fail("prefill should fail");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("not ready"));
+        }
+        Assert.assertEquals(0, beanPool.getMetrics().getIdle());
+        creationFailing.set(false);
+        beanPool.initialize();
+        Assert.assertEquals(2, beanPool.getMetrics().getIdle());
+
+        // reset 失败的对象被销毁后补充到 minIdle
+        Object borrowed = beanPool.borrow();
+        Assert.assertEquals(1, beanPool.getMetrics().getIdle());
+        resetFailing.set(true);
+        beanPool.release(borrowed);
+        Assert.assertEquals(1, destroyed.get());
+        Assert.assertEquals(2, beanPool.getMetrics().getIdle());
+        Assert.assertEquals(3, beanPool.getMetrics().getCreated());
+
+        resetFailing.set(false);
+        beanPool.close();
+        Assert.assertEquals(3, destroyed.get());
+    }
+
+    @Test
+    public void test_customScopes() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        RequestScope requestScope = new RequestScope();
+        ThreadScope threadScope = new ThreadScope();
+        beanFactory.registerScope(RequestScope.SCOPE_NAME, requestScope);
+        beanFactory.registerScope(ThreadScope.SCOPE_NAME, threadScope);
+        BeanDefinition requestDefinition = new BeanDefinition(RequestCache.class);
+        requestDefinition.setScope(RequestScope.SCOPE_NAME);
+        beanFactory.registerBeanDefinition("requestCache", requestDefinition);
+        BeanDefinition threadDefinition = new BeanDefinition(RequestCache.class);
+        threadDefinition.setScope(ThreadScope.SCOPE_NAME);
+        beanFactory.registerBeanDefinition("threadCache", threadDefinition);
+        BeanDefinition unknownDefinition = new BeanDefinition(RequestCache.class);
+        unknownDefinition.setScope("conversation");
+        beanFactory.registerBeanDefinition("conversationCache", unknownDefinition);
+
+        try {
+            beanFactory.getBean("requestCache");
+            Assert.fail("request scope is not active");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("not active"));
+        }
+
+        // 同一次请求内只创建一次，请求结束时销毁
+        int instances = RequestCache.INSTANCES.get();
+        int destroyed = RequestCache.DESTROYED.get();
+        RequestCache first;
+        try (RequestScope.RequestContext request = requestScope.begin()) {
+            first = beanFactory.getBean("requestCache", RequestCache.class);
+            first.put("user", "fustack");
+            Assert.assertSame(first, beanFactory.getBean("requestCache"));
+            Assert.assertEquals(request.getId(), requestScope.getConversationId());
+
+            // 请求交给其他线程继续处理
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Object fromWorker = executor.submit(() -> {
+                    try (RequestScope.Binding binding = requestScope.attach(request)) {
+                        return beanFactory.getBean("requestCache");
+                    }
+                }).get();
+                Assert.assertSame(first, fromWorker);
+            } finally {
+                executor.shutdown();
+            }
+        }
+        Assert.assertEquals(1, RequestCache.INSTANCES.get() - instances);
+        Assert.assertEquals(1, RequestCache.DESTROYED.get() - destroyed);
+        Assert.assertNull(first.get("user"));
+        Assert.assertNull(requestScope.getCurrentRequest());
+
+        try (RequestScope.RequestContext ignored = requestScope.begin()) {
+            Assert.assertNotSame(first, beanFactory.getBean("requestCache"));
+        }
+
+        // 请求在其他线程上结束后，开始请求的线程仍然可以开始新的请求
+        RequestScope.RequestContext endedElsewhere = requestScope.begin();
+        Thread closer = new Thread(endedElsewhere::close);
+        closer.start();
+        closer.join();
+        Assert.assertTrue(endedElsewhere.isEnded());
+        Assert.assertNull(requestScope.getCurrentRequest());
+        try {
+            beanFactory.getBean("requestCache");
+            Assert.fail("ended request should not be active");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("not active"));
+        }
+        try (RequestScope.RequestContext request = requestScope.begin()) {
+            Assert.assertEquals(request.getId(), requestScope.getConversationId());
+            Assert.assertNotNull(beanFactory.getBean("requestCache"));
+        }
+
+        // 线程作用域：每个线程一个对象，end 时销毁当前线程的对象
+        RequestCache threadCache = beanFactory.getBean("threadCache", RequestCache.class);
+        Assert.assertSame(threadCache, beanFactory.getBean("threadCache"));
+        Thread other = new Thread(() -> {
+            Assert.assertNotSame(threadCache, beanFactory.getBean("threadCache"));
+            threadScope.end();
+        });
+        AtomicInteger failures = new AtomicInteger();
+        other.setUncaughtExceptionHandler((thread, e) -> failures.incrementAndGet());
+        other.start();
+        other.join();
+        Assert.assertEquals(0, failures.get());
+        destroyed = RequestCache.DESTROYED.get();
+        threadScope.end();
+        Assert.assertEquals(1, RequestCache.DESTROYED.get() - destroyed);
+        Assert.assertNotSame(threadCache, beanFactory.getBean("threadCache"));
+        threadScope.end();
+
+        try {
+            beanFactory.getBean("conversationCache");
+            Assert.fail("unknown scope should be rejected");
+        } catch (BeansException e) {
+            Assert.assertTrue(e.getMessage().contains("conversation"));
+        }
+        try {
+            beanFactory.registerScope(ConfigurableBeanFactory.SCOPE_SINGLETON, threadScope);
+            Assert.fail("built-in scope should not be replaced");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void test_valueConversionWithoutConversionService() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AutowiredAnnotationBeanPostProcessor processor = new AutowiredAnnotationBeanPostProcessor();
+        processor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(processor);
+        beanFactory.registerBeanDefinition("serverConfig", new BeanDefinition(ServerConfig.class));
+
+        // 没有 conversionService 时回退到 hutool 的基础类型转换
+        Assert.assertNull(beanFactory.getConversionService());
+        ServerConfig serverConfig = beanFactory.getBean("serverConfig", ServerConfig.class);
+        Assert.assertEquals(8080, serverConfig.getPort());
+        Assert.assertEquals(Long.valueOf(30000), serverConfig.getTimeout());
+        Assert.assertEquals("localhost", serverConfig.getHost());
+    }
+
+    @Test
+    public void test_nestedCreationWaitsForSlowSingleton() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("slowBean", new BeanDefinition(SlowBean.class));
+        PropertyValues holderValues = new PropertyValues();
+        holderValues.addPropertyValue("slowBean", new BeanReference("slowBean"));
+        beanFactory.registerBeanDefinition("slowBeanHolder", new BeanDefinition(SlowBeanHolder.class, holderValues));
+
+        // 一个线程正在创建 slowBean，另一个线程在创建 holder 的过程中等待它：没有环，必须等到初始化完成
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> slowBean = executorService.submit(() -> beanFactory.getBean("slowBean"));
+            Thread.sleep(10);
+            Future<Object> holder = executorService.submit(() -> beanFactory.getBean("slowBeanHolder"));
+            SlowBeanHolder slowBeanHolder = (SlowBeanHolder) holder.get(5, TimeUnit.SECONDS);
+            Assert.assertSame(slowBean.get(5, TimeUnit.SECONDS), slowBeanHolder.getSlowBean());
+            Assert.assertTrue(slowBeanHolder.isSlowBeanInitializedOnInjection());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void test_crossThreadCircularReference() throws Exception {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        PropertyValues firstValues = new PropertyValues();
+        firstValues.addPropertyValue("next", new BeanReference("second"));
+        beanFactory.registerBeanDefinition("first", new BeanDefinition(CycleNode.class, firstValues));
+        PropertyValues secondValues = new PropertyValues();
+        secondValues.addPropertyValue("next", new BeanReference("first"));
+        beanFactory.registerBeanDefinition("second", new BeanDefinition(CycleNode.class, secondValues));
+
+        // 两个线程各自持有一个 Bean 的创建锁并等待对方，等待图出现环时使用提前暴露的对象
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> first = executorService.submit(() -> beanFactory.getBean("first"));
+            Future<Object> second = executorService.submit(() -> beanFactory.getBean("second"));
+            CycleNode firstNode = (CycleNode) first.get(5, TimeUnit.SECONDS);
+            CycleNode secondNode = (CycleNode) second.get(5, TimeUnit.SECONDS);
+            Assert.assertSame(secondNode, firstNode.getNext());
+            Assert.assertSame(firstNode, secondNode.getNext());
+        } finally {
+            executorService.shutdown();
+        }
+    }
 
 }
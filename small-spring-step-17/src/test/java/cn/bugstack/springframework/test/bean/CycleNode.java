@@ -0,0 +1,22 @@
+package cn.bugstack.springframework.test.bean;
+
+/**
+ * 循环引用的节点，构造函数较慢，方便两个线程同时持有各自的创建锁
+ */
+public class CycleNode {
+
+    private CycleNode next;
+
+    public CycleNode() throws InterruptedException {
+        Thread.sleep(50);
+    }
+
+    public CycleNode getNext() {
+        return next;
+    }
+
+    public void setNext(CycleNode next) {
+        this.next = next;
+    }
+
+}
@@ -0,0 +1,16 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.annotation.Autowired;
+import cn.bugstack.springframework.context.annotation.Lazy;
+
+public class HusbandHolder {
+
+    @Autowired
+    @Lazy
+    private Husband husband;
+
+    public Husband getHusband() {
+        return husband;
+    }
+
+}
@@ -0,0 +1,15 @@
+package cn.bugstack.springframework.test.bean;
+
+/**
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Service
+public class OrderService {
+
+    public String queryOrderInfo() {
+        return "10001，订单已支付";
+    }
+
+}
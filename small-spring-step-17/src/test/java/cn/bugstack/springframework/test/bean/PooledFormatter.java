@@ -0,0 +1,47 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.DisposableBean;
+import cn.bugstack.springframework.beans.factory.PooledBean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 非线程安全的格式化器，内部缓冲区在两次使用之间需要清空
+ */
+public class PooledFormatter implements PooledBean, DisposableBean {
+
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    public PooledFormatter() {
+        INSTANCES.incrementAndGet();
+    }
+
+    public String format(String prefix, Object value) {
+        buffer.append(prefix).append(':').append(value);
+        return buffer.toString();
+    }
+
+    public PooledFormatter append(Object value) {
+        buffer.append(value);
+        return this;
+    }
+
+    public String current() {
+        return buffer.toString();
+    }
+
+    @Override
+    public void reset() {
+        buffer.setLength(0);
+    }
+
+    @Override
+    public void destroy() {
+        DESTROYED.incrementAndGet();
+    }
+
+}
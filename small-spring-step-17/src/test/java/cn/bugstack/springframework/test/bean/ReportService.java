@@ -0,0 +1,29 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.InitializingBean;
+import cn.bugstack.springframework.context.annotation.Lazy;
+import cn.bugstack.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Component
+@Lazy
+public class ReportService implements InitializingBean {
+
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    @Override
+    public void afterPropertiesSet() {
+        INSTANCES.incrementAndGet();
+    }
+
+    public String report() {
+        return "日报已生成";
+    }
+
+}
@@ -0,0 +1,38 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.DisposableBean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次请求内共享的缓存，构建代价较高
+ */
+public class RequestCache implements DisposableBean {
+
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    private final Map<String, Object> entries = new HashMap<>();
+
+    public RequestCache() {
+        INSTANCES.incrementAndGet();
+    }
+
+    public Object get(String key) {
+        return entries.get(key);
+    }
+
+    public void put(String key, Object value) {
+        entries.put(key, value);
+    }
+
+    @Override
+    public void destroy() {
+        entries.clear();
+        DESTROYED.incrementAndGet();
+    }
+
+}
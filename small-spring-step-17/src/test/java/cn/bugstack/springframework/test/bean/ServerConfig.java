@@ -0,0 +1,28 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.annotation.Value;
+
+public class ServerConfig {
+
+    @Value("8080")
+    private int port;
+
+    @Value("30000")
+    private Long timeout;
+
+    @Value("localhost")
+    private String host;
+
+    public int getPort() {
+        return port;
+    }
+
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+}
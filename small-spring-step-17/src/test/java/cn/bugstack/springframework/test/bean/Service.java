@@ -0,0 +1,20 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.stereotype.Component;
+
+import java.lang.annotation.*;
+
+/**
+ * 被 @Component 标注的自定义注解，用于验证元注解扫描
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Component
+public @interface Service {
+
+}
@@ -0,0 +1,27 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.InitializingBean;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SlowBean implements InitializingBean {
+
+    public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private volatile boolean initialized;
+
+    public SlowBean() {
+        INSTANCES.incrementAndGet();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Thread.sleep(50);
+        initialized = true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+}
@@ -0,0 +1,22 @@
+package cn.bugstack.springframework.test.bean;
+
+public class SlowBeanHolder {
+
+    private SlowBean slowBean;
+
+    private boolean slowBeanInitializedOnInjection;
+
+    public SlowBean getSlowBean() {
+        return slowBean;
+    }
+
+    public void setSlowBean(SlowBean slowBean) {
+        this.slowBean = slowBean;
+        this.slowBeanInitializedOnInjection = slowBean.isInitialized();
+    }
+
+    public boolean isSlowBeanInitializedOnInjection() {
+        return slowBeanInitializedOnInjection;
+    }
+
+}
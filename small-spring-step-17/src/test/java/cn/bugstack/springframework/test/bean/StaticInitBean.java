@@ -0,0 +1,18 @@
+package cn.bugstack.springframework.test.bean;
+
+/**
+ * 不是组件的类，加载时通过静态初始化留下标记，用于验证扫描不会加载非组件类
+ * <p>
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+public class StaticInitBean {
+
+    public static final String LOADED_PROPERTY = "small-spring.test.StaticInitBean.loaded";
+
+    static {
+        System.setProperty(LOADED_PROPERTY, "true");
+    }
+
+}
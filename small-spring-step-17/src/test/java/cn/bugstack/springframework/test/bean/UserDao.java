@@ -0,0 +1,28 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Component
+public class UserDao {
+
+    private static Map<String, String> hashMap = new HashMap<>();
+
+    static {
+        hashMap.put("10001", "小傅哥，北京，亦庄");
+        hashMap.put("10002", "八杯水，上海，尖沙咀");
+        hashMap.put("10003", "阿毛，香港，铜锣湾");
+    }
+
+    public String queryUserName(String uId) {
+        return hashMap.get(uId);
+    }
+
+}
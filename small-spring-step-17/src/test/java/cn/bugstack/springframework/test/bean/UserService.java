@@ -0,0 +1,49 @@
+package cn.bugstack.springframework.test.bean;
+
+import cn.bugstack.springframework.beans.factory.annotation.Autowired;
+import cn.bugstack.springframework.beans.factory.annotation.Value;
+import cn.bugstack.springframework.context.annotation.Lazy;
+import cn.bugstack.springframework.context.annotation.Scope;
+import cn.bugstack.springframework.stereotype.Component;
+
+/**
+ * 博客：https://bugstack.cn - 沉淀、分享、成长，让自己和他人都能有所收获！
+ * 公众号：bugstack虫洞栈
+ * Create by 小傅哥(fustack)
+ */
+@Component("userService")
+@Scope("prototype")
+public class UserService {
+
+    @Value("${token}")
+    private String token;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    @Lazy
+    private ReportService reportService;
+
+    public String queryUserInfo() {
+        return userDao.queryUserName("10001") + "，" + token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public UserDao getUserDao() {
+        return userDao;
+    }
+
+    public ReportService getReportService() {
+        return reportService;
+    }
+
+    @Override
+    public String toString() {
+        return "UserService#token = { " + token + " }";
+    }
+
+}
@@ -0,0 +1,33 @@
+package cn.bugstack.springframework.test.bean;
+
+public class Wife {
+
+    private String wifeName;
+
+    private Husband husband;
+
+    public String getWifeName() {
+        return wifeName;
+    }
+
+    public void setWifeName(String wifeName) {
+        this.wifeName = wifeName;
+    }
+
+    public Husband getHusband() {
+        return husband;
+    }
+
+    public void setHusband(Husband husband) {
+        this.husband = husband;
+    }
+
+    @Override
+    public String toString() {
+        return "Wife{" +
+                "wifeName='" + wifeName + '\'' +
+                ", husband=" + husband +
+                '}';
+    }
+
+}